@@ -0,0 +1,29 @@
+package retailerdiscountsapi.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class is used to run the benchmarks with the gc profiler, so allocation rates are reported with the
+ * throughput. Command line arguments are the same as the JMH arguments, e.g. a benchmark name pattern.
+ *
+ * @author gizemabali
+ *
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Start point
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,79 @@
+package retailerdiscountsapi.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import retailerdiscountsapi.CatalogSnapshot;
+import retailerdiscountsapi.ProductTable;
+
+/**
+ * This benchmark measures how long it takes to load a catalog snapshot of up to 1M products, which is the time a
+ * restarted instance needs before it can price baskets without the elastic search.
+ *
+ * @author gizemabali
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CatalogSnapshotBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int productCount;
+
+	Path snapshotPath;
+
+	ProductTable products;
+
+	@Setup
+	public void setUp() throws IOException {
+		products = new ProductTable(productCount);
+		for (int i = 0; i < productCount; i++) {
+			products.put("Product " + i, 10 + i % 500, i % 3 == 0);
+		}
+		snapshotPath = Files.createTempFile("catalog", ".snapshot");
+		CatalogSnapshot.write(snapshotPath, products, System.currentTimeMillis(),
+				CatalogSnapshot.NO_WATERMARK);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(snapshotPath);
+	}
+
+	/**
+	 * This benchmark measures the loading of the snapshot file, including the checksum verification.
+	 */
+	@Benchmark
+	public CatalogSnapshot load() throws IOException {
+		return CatalogSnapshot.read(snapshotPath);
+	}
+
+	/**
+	 * This benchmark measures the writing of the snapshot file.
+	 */
+	@Benchmark
+	public CatalogSnapshot write() throws IOException {
+		return CatalogSnapshot.write(snapshotPath, products, System.currentTimeMillis(),
+				CatalogSnapshot.NO_WATERMARK);
+	}
+
+}
@@ -0,0 +1,147 @@
+package retailerdiscountsapi.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import retailerdiscountsapi.ElasticClientFactory;
+import retailerdiscountsapi.ElasticClientSettings;
+import retailerdiscountsapi.ElasticRequestOptions;
+
+/**
+ * This benchmark measures the search throughput of the elastic search client for the connection pool and compression
+ * settings of {@link ElasticClientSettings}. The searches are answered by a local stub server with a canned product
+ * search response after a simulated latency, so elastic search is not needed. With fewer connections per route than
+ * benchmark threads the requests wait for a pooled connection; the compression trades cpu for the response bytes,
+ * which only pays off on a real network.
+ *
+ * @author gizemabali
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class ElasticClientBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean compressionEnabled;
+
+	@Param({ "10", "64" })
+	public int maxConnectionsPerRoute;
+
+	@Param({ "100" })
+	public int hits;
+
+	@Param({ "2" })
+	public int elasticLatencyMillis;
+
+	HttpServer server;
+
+	ExecutorService serverExecutor;
+
+	RestHighLevelClient client;
+
+	@Setup
+	public void setUp() throws IOException {
+		byte[] body = createSearchResponse(hits).getBytes(StandardCharsets.UTF_8);
+		byte[] compressedBody = gzip(body);
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		server.setExecutor(serverExecutor);
+		server.createContext("/", exchange -> {
+			try {
+				Thread.sleep(elasticLatencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			boolean gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			byte[] response = gzip ? compressedBody : body;
+			if (gzip) {
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			}
+			exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+			exchange.sendResponseHeaders(200, response.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(response);
+			}
+		});
+		server.start();
+
+		ElasticClientSettings settings = new ElasticClientSettings();
+		settings.setNodes(Arrays.asList("http://localhost:" + server.getAddress().getPort()));
+		settings.setCompressionEnabled(compressionEnabled);
+		settings.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+		settings.setMaxConnectionsTotal(maxConnectionsPerRoute);
+		client = ElasticClientFactory.createClient(settings, null);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	/**
+	 * This benchmark measures a product search.
+	 */
+	@Benchmark
+	public SearchResponse search() throws IOException {
+		return client.search(new SearchRequest("product"), ElasticRequestOptions.getInstance().getSearchOptions());
+	}
+
+	private static String createSearchResponse(int hits) {
+		StringBuilder builder = new StringBuilder("{\"took\":1,\"timed_out\":false,")
+				.append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+				.append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},")
+				.append("\"max_score\":1.0,\"hits\":[");
+		for (int i = 0; i < hits; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("{\"_index\":\"product\",\"_type\":\"_doc\",\"_id\":\"").append(i)
+					.append("\",\"_score\":1.0,\"_source\":{\"productName\":\"product").append(i)
+					.append("\",\"price\":").append(i % 100 + 1).append(",\"type\":\"home\"}}");
+		}
+		return builder.append("]}}").toString();
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(body);
+		}
+		return compressed.toByteArray();
+	}
+
+}
@@ -0,0 +1,186 @@
+package retailerdiscountsapi.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import retailerdiscountsapi.BasketRequestAdapter;
+import retailerdiscountsapi.Constants;
+import retailerdiscountsapi.ElasticClientOperations;
+import retailerdiscountsapi.ProductCatalogCache;
+import retailerdiscountsapi.ProductTable;
+import retailerdiscountsapi.pojos.BasketRequest;
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This benchmark measures the steps of the basket pricing hot path for basket sizes from 1 to 1000 lines on a single
+ * thread. The product lookup is stubbed by warming the {@link ProductCatalogCache}, so no elastic search is needed.
+ * Run it with the gc profiler to see the allocation rates, e.g. <code>java -jar target/benchmarks.jar -prof gc</code>
+ *
+ * @author gizemabali
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class PricingBenchmark {
+
+	static final String PRODUCT_INDEX = "product";
+
+	@Param({ "1", "10", "100", "1000" })
+	public int basketLines;
+
+	String basketRequestBody;
+
+	byte[] basketRequestBytes;
+
+	JsonObject basketAndUserDetailsObj;
+
+	JsonObject userDetailsObj;
+
+	List<String> productNames;
+
+	long totalOtherProductsPrice;
+
+	ElasticClientOperations operations;
+
+	ProductCatalogCache productCatalogCache;
+
+	BasketRequestAdapter basketRequestAdapter;
+
+	@Setup
+	public void setUp() {
+		productCatalogCache = ProductCatalogCache.getInstance();
+		productCatalogCache.configure(100000, TimeUnit.DAYS.toSeconds(1));
+		operations = ElasticClientOperations.getInstance();
+
+		productNames = new ArrayList<String>(basketLines);
+		JsonArray basketDetails = new JsonArray();
+		for (int i = 0; i < basketLines; i++) {
+			Product product = new Product();
+			product.setProductName("Product " + i);
+			product.setType(i % 3 == 0 ? Constants.GROCERIES : "home");
+			product.setPrice(10 + i % 500);
+			productCatalogCache.put(PRODUCT_INDEX, product);
+			productNames.add(product.getProductName());
+
+			JsonObject basketObject = new JsonObject();
+			basketObject.addProperty(Constants.PRODUCT_NAME, product.getProductName());
+			basketObject.addProperty(Constants.AMOUNT, 1 + i % 4);
+			basketDetails.add(basketObject);
+			if (i % 3 != 0) {
+				totalOtherProductsPrice += product.getPrice() * (1 + i % 4);
+			}
+		}
+		userDetailsObj = new JsonObject();
+		userDetailsObj.addProperty("username", "example@mail.com");
+		userDetailsObj.addProperty(Constants.EMPLOYEE, false);
+		userDetailsObj.addProperty(Constants.AFFILIATE, false);
+		userDetailsObj.addProperty(Constants.CUSTOMER, true);
+		userDetailsObj.addProperty(Constants.ACCOUNT_CREATION_DATE, "2016-12-16 00:12:47");
+		basketAndUserDetailsObj = new JsonObject();
+		basketAndUserDetailsObj.add(Constants.USER_DETAILS, userDetailsObj);
+		basketAndUserDetailsObj.add(Constants.BASKET_DETAILS, basketDetails);
+		basketRequestBody = basketAndUserDetailsObj.toString();
+		basketRequestBytes = basketRequestBody.getBytes(StandardCharsets.UTF_8);
+		basketRequestAdapter = BasketRequestAdapter.getInstance();
+	}
+
+	/**
+	 * This benchmark measures the parsing of the calculatebasket request body into a Gson tree.
+	 */
+	@Benchmark
+	public JsonObject parseRequest() {
+		return JsonParser.parseString(basketRequestBody).getAsJsonObject();
+	}
+
+	/**
+	 * This benchmark measures the streaming decoding of the calculatebasket request body like the controller does.
+	 */
+	@Benchmark
+	public BasketRequest decodeRequest() throws IOException {
+		return basketRequestAdapter.readBasket(new ByteArrayInputStream(basketRequestBytes));
+	}
+
+	/**
+	 * This benchmark measures the catalog lookup of the basket products into the product table of the basket.
+	 */
+	@Benchmark
+	public ProductTable lookupCatalog() {
+		ProductTable found = new ProductTable(basketLines);
+		ArrayList<String> missing = new ArrayList<String>();
+		productCatalogCache.lookup(PRODUCT_INDEX, productNames, found, missing);
+		return found;
+	}
+
+	/**
+	 * This benchmark measures the discount evaluation of a customer whose account age has to be checked.
+	 */
+	@Benchmark
+	public long evaluateDiscount() throws Exception {
+		return operations.calculateDiscountedPriceOfProducts(userDetailsObj, totalOtherProductsPrice);
+	}
+
+	/**
+	 * This benchmark measures the serialization of the calculatebasket response.
+	 */
+	@Benchmark
+	public String serializeResponse() {
+		JsonObject responseObj = new JsonObject();
+		responseObj.addProperty(Constants.TOTAL_PRICE, totalOtherProductsPrice);
+		return responseObj.toString();
+	}
+
+	/**
+	 * This benchmark measures the whole pricing of a parsed basket, from the catalog lookup to the response body.
+	 */
+	@Benchmark
+	public String calculateBasket() throws Exception {
+		return operations.calculateBasket(basketAndUserDetailsObj, PRODUCT_INDEX).getBody();
+	}
+
+	/**
+	 * This benchmark measures the whole pricing of a basket request body, including the parsing into a Gson tree.
+	 */
+	@Benchmark
+	public String parseAndCalculateBasket() throws Exception {
+		return operations.calculateBasket(JsonParser.parseString(basketRequestBody).getAsJsonObject(), PRODUCT_INDEX)
+				.getBody();
+	}
+
+	/**
+	 * This benchmark measures the whole pricing of a basket request body, including the streaming decoding.
+	 */
+	@Benchmark
+	public String decodeAndCalculateBasket() throws Exception {
+		return operations
+				.calculateBasket(basketRequestAdapter.readBasket(new ByteArrayInputStream(basketRequestBytes)),
+						PRODUCT_INDEX)
+				.getBody();
+	}
+
+}
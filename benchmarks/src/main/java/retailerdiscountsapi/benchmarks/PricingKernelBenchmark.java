@@ -0,0 +1,128 @@
+package retailerdiscountsapi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import retailerdiscountsapi.PricingKernel;
+import retailerdiscountsapi.ProductTable;
+
+/**
+ * This benchmark measures the cost of one basket line when the subtotals of baskets are calculated. Every invocation
+ * prices {@value #LINES} lines, split into baskets of the given size, so the scores are nanoseconds per line and
+ * the difference between the basket sizes is the cost per basket.
+ *
+ * @author gizemabali
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(PricingKernelBenchmark.LINES)
+public class PricingKernelBenchmark {
+
+	static final int LINES = 10000;
+
+	@Param({ "1", "10", "100", "1000" })
+	public int basketLines;
+
+	String[] productNames;
+
+	int[] amounts;
+
+	ProductTable products;
+
+	long[] slots;
+
+	PricingKernel kernel;
+
+	@Setup
+	public void setUp() {
+		productNames = new String[LINES];
+		amounts = new int[LINES];
+		slots = new long[LINES];
+		products = new ProductTable(LINES);
+		for (int i = 0; i < LINES; i++) {
+			productNames[i] = "Product " + i;
+			amounts[i] = 1 + i % 4;
+			products.put(productNames[i], 10 + i % 500, i % 3 == 0);
+			slots[i] = products.get(productNames[i]);
+		}
+		kernel = new PricingKernel(LINES, LINES / basketLines);
+		fillKernel();
+	}
+
+	private void fillKernel() {
+		kernel.clear();
+		for (int i = 0; i < LINES; i++) {
+			kernel.addLine(amounts[i], slots[i]);
+			if ((i + 1) % basketLines == 0) {
+				kernel.endBasket();
+			}
+		}
+	}
+
+	/**
+	 * This benchmark measures the line by line loop that looks up every line in the product table and adds it to one
+	 * of the subtotals with a branch, like the pricing did before the kernel.
+	 */
+	@Benchmark
+	public long lineByLine() {
+		long total = 0;
+		for (int start = 0; start < LINES; start += basketLines) {
+			long totalGroceriesProductsPrice = 0;
+			long totalOtherProductsPrice = 0;
+			for (int i = start; i < start + basketLines; i++) {
+				long slot = products.get(productNames[i]);
+				if (ProductTable.isGrocery(slot)) {
+					totalGroceriesProductsPrice += amounts[i] * ProductTable.price(slot);
+				} else {
+					totalOtherProductsPrice += amounts[i] * ProductTable.price(slot);
+				}
+			}
+			total += totalGroceriesProductsPrice + totalOtherProductsPrice;
+		}
+		return total;
+	}
+
+	/**
+	 * This benchmark measures the kernel pricing of the columns that are already filled.
+	 */
+	@Benchmark
+	public long price() {
+		kernel.price();
+		return kernel.getOtherSubtotal(kernel.getBasketCount() - 1);
+	}
+
+	/**
+	 * This benchmark measures the lookup of the lines in the product table, the filling of the columns and the kernel
+	 * pricing, like the pricing of a batch of baskets does.
+	 */
+	@Benchmark
+	public long lookupAndPrice() {
+		kernel.clear();
+		for (int i = 0; i < LINES; i++) {
+			kernel.addLine(amounts[i], products.get(productNames[i]));
+			if ((i + 1) % basketLines == 0) {
+				kernel.endBasket();
+			}
+		}
+		kernel.price();
+		return kernel.getOtherSubtotal(kernel.getBasketCount() - 1);
+	}
+
+}
@@ -0,0 +1,15 @@
+package retailerdiscountsapi.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * This benchmark runs the {@link PricingBenchmark} steps on one thread per processor to show the contention of the
+ * shared catalog cache and discount rules.
+ *
+ * @author gizemabali
+ *
+ */
+@Threads(Threads.MAX)
+public class PricingMultiThreadedBenchmark extends PricingBenchmark {
+
+}
@@ -0,0 +1,114 @@
+package retailerdiscountsapi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import retailerdiscountsapi.ElasticRequestLimiter;
+import retailerdiscountsapi.VirtualThreadExecution;
+
+/**
+ * This benchmark compares the platform thread mode with the virtual thread mode of the http requests. A burst of
+ * blocking requests is run on a fixed pool of the tomcat default size or on virtual threads; every request waits for a
+ * simulated elastic search search behind the {@link ElasticRequestLimiter} and then prices the basket with some cpu
+ * work. The score is the time of the whole burst. The virtual mode needs Java 21, e.g.
+ * <code>java -jar target/benchmarks.jar ThreadingModeBenchmark</code> on a Java 21 JVM.
+ *
+ * @author gizemabali
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+	static final String PLATFORM = "platform";
+
+	static final String VIRTUAL = "virtual";
+
+	@Param({ PLATFORM, VIRTUAL })
+	public String mode;
+
+	@Param({ "2000" })
+	public int concurrentRequests;
+
+	@Param({ "10" })
+	public int elasticLatencyMillis;
+
+	/**
+	 * This is the maximum number of elastic search requests in flight, 0 means unlimited.
+	 */
+	@Param({ "0", "64" })
+	public int maxConcurrentElasticRequests;
+
+	/**
+	 * This is the default maximum number of tomcat threads.
+	 */
+	@Param({ "200" })
+	public int platformThreads;
+
+	ExecutorService executor;
+
+	ElasticRequestLimiter limiter;
+
+	@Setup
+	public void setUp() {
+		limiter = ElasticRequestLimiter.getInstance();
+		limiter.configure(maxConcurrentElasticRequests, TimeUnit.MINUTES.toMillis(1));
+		if (VIRTUAL.equals(mode)) {
+			executor = VirtualThreadExecution.newVirtualThreadPerTaskExecutor("benchmark-virtual-");
+			if (executor == null) {
+				throw new IllegalStateException("virtual threads need java 21: " + System.getProperty("java.version"));
+			}
+		} else {
+			executor = Executors.newFixedThreadPool(platformThreads);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * This benchmark measures the time of a burst of basket requests.
+	 */
+	@Benchmark
+	public void requestBurst() throws Exception {
+		List<Future<?>> futures = new ArrayList<Future<?>>(concurrentRequests);
+		for (int i = 0; i < concurrentRequests; i++) {
+			futures.add(executor.submit(() -> {
+				limiter.execute(() -> {
+					Thread.sleep(elasticLatencyMillis);
+					return null;
+				});
+				Blackhole.consumeCPU(10000);
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+}
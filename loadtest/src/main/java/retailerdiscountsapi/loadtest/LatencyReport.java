@@ -0,0 +1,243 @@
+package retailerdiscountsapi.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * This class keeps the latencies of a load test run in HdrHistograms and writes the reports of the run.
+ *
+ * <ul>
+ * <li>The corrected latency of a request is measured from the time it should have been sent by the schedule of the
+ * run, so the waiting of the requests behind a slow one is not omitted (coordinated omission). It is the latency that
+ * a user of the service sees.</li>
+ * <li>The service latency is measured from the time the request is actually sent.</li>
+ * </ul>
+ *
+ * Both are recorded in microseconds. Failed requests, i.e. transport errors and responses other than 2xx and 304, are
+ * recorded and counted as errors.
+ *
+ * @author gizemabali
+ *
+ */
+public final class LatencyReport {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+	private final Histogram correctedLatencies = newHistogram();
+
+	private final Histogram serviceLatencies = newHistogram();
+
+	private final Map<String, Histogram> endpointLatencies = new ConcurrentHashMap<String, Histogram>();
+
+	private final Map<String, AtomicLong> endpointErrors = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final AtomicLong errorCount = new AtomicLong();
+
+	private final LoadTestOptions options;
+
+	private volatile long elapsedNanos;
+
+	public LatencyReport(LoadTestOptions options) {
+		this.options = options;
+	}
+
+	private static Histogram newHistogram() {
+		return new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+	}
+
+	/**
+	 * This method is used to record a completed request.
+	 *
+	 * @param request       it is the request.
+	 * @param success       it is false if the request failed.
+	 * @param intendedNanos it is the time that the request should have been sent.
+	 * @param sentNanos     it is the time that the request is sent.
+	 * @param doneNanos     it is the time that the response is read.
+	 */
+	public void record(ReplayRequest request, boolean success, long intendedNanos, long sentNanos, long doneNanos) {
+		long correctedMicros = toMicros(doneNanos - intendedNanos);
+		correctedLatencies.recordValue(correctedMicros);
+		serviceLatencies.recordValue(toMicros(doneNanos - sentNanos));
+		endpointLatencies.computeIfAbsent(request.getEndpoint(), endpoint -> newHistogram())
+				.recordValue(correctedMicros);
+		if (!success) {
+			errorCount.incrementAndGet();
+			endpointErrors.computeIfAbsent(request.getEndpoint(), endpoint -> new AtomicLong()).incrementAndGet();
+		}
+	}
+
+	private static long toMicros(long nanos) {
+		return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), HIGHEST_TRACKABLE_MICROS);
+	}
+
+	/**
+	 * @param nanos it is the time from the start of the measurement to the completion of the last request.
+	 */
+	public void setElapsedNanos(long nanos) {
+		elapsedNanos = nanos;
+	}
+
+	public long getRequestCount() {
+		return correctedLatencies.getTotalCount();
+	}
+
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+
+	/**
+	 * @return the number of completed requests per second.
+	 */
+	public double getThroughput() {
+		return elapsedNanos > 0 ? getRequestCount() * 1e9 / elapsedNanos : 0;
+	}
+
+	public Histogram getCorrectedLatencies() {
+		return correctedLatencies;
+	}
+
+	public Histogram getServiceLatencies() {
+		return serviceLatencies;
+	}
+
+	/**
+	 * This method is used to create the json report of the run. It has the options of the run, the throughput, the
+	 * number of the requests and the errors, and the latency percentiles in microseconds, in total and by endpoint.
+	 *
+	 * @return the report
+	 */
+	public JsonObject toJson() {
+		JsonObject reportObj = new JsonObject();
+		reportObj.addProperty("mode", options.isOpenLoop() ? "open-loop" : "closed-loop");
+		reportObj.addProperty("target", options.getTarget());
+		reportObj.addProperty("rate", options.getRate());
+		reportObj.addProperty("concurrency", options.getConcurrency());
+		reportObj.addProperty("durationSeconds", options.getDurationSeconds());
+		reportObj.addProperty("requests", getRequestCount());
+		reportObj.addProperty("errors", getErrorCount());
+		reportObj.addProperty("throughput", Math.round(getThroughput() * 10) / 10.0);
+		reportObj.add("latencyMicros", percentiles(correctedLatencies));
+		reportObj.add("serviceLatencyMicros", percentiles(serviceLatencies));
+		JsonObject endpointsObj = new JsonObject();
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(endpointLatencies).entrySet()) {
+			JsonObject endpointObj = percentiles(entry.getValue());
+			endpointObj.addProperty("requests", entry.getValue().getTotalCount());
+			AtomicLong errors = endpointErrors.get(entry.getKey());
+			endpointObj.addProperty("errors", errors != null ? errors.get() : 0);
+			endpointsObj.add(entry.getKey(), endpointObj);
+		}
+		reportObj.add("endpoints", endpointsObj);
+		return reportObj;
+	}
+
+	private static JsonObject percentiles(Histogram histogram) {
+		JsonObject percentilesObj = new JsonObject();
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			percentilesObj.addProperty(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+		}
+		percentilesObj.addProperty("max", histogram.getMaxValue());
+		percentilesObj.addProperty("mean", Math.round(histogram.getMean()));
+		return percentilesObj;
+	}
+
+	/**
+	 * This method is used to write the json report to the given file.
+	 */
+	public void writeJson(Path path) throws IOException {
+		Files.write(path, gson.toJson(toJson()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * This method is used to write the corrected latencies to the given file in the HdrHistogram log format, so the
+	 * whole distribution of runs can be plotted and compared, e.g. with the HistogramLogAnalyzer.
+	 */
+	public void writeHistogramLog(Path path) throws IOException {
+		try (PrintStream output = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8.name())) {
+			HistogramLogWriter writer = new HistogramLogWriter(output);
+			writer.outputLogFormatVersion();
+			writer.outputLegend();
+			correctedLatencies.setStartTimeStamp(0);
+			correctedLatencies.setEndTimeStamp(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+			writer.outputIntervalHistogram(correctedLatencies);
+		}
+	}
+
+	/**
+	 * This method is used to print the summary of the run.
+	 */
+	public void print(PrintStream output) {
+		output.println(String.format("requests: %d, errors: %d, throughput: %.1f requests/s", getRequestCount(),
+				getErrorCount(), getThroughput()));
+		output.println(String.format("%-28s %10s %10s %10s %10s %10s", "latency (us)", "p50", "p90", "p99", "p999",
+				"max"));
+		printRow(output, "corrected", correctedLatencies);
+		printRow(output, "service", serviceLatencies);
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(endpointLatencies).entrySet()) {
+			printRow(output, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static void printRow(PrintStream output, String name, Histogram histogram) {
+		output.println(String.format("%-28s %10d %10d %10d %10d %10d", name, histogram.getValueAtPercentile(50),
+				histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+				histogram.getValueAtPercentile(99.9), histogram.getMaxValue()));
+	}
+
+	/**
+	 * This method is used to print the changes of the throughput and of the latency percentiles from the given json
+	 * report of an earlier run.
+	 *
+	 * @param baselinePath it is the path of the json report of the earlier run.
+	 */
+	public void printComparison(Path baselinePath, PrintStream output) throws IOException {
+		JsonObject baselineObj = JsonParser
+				.parseString(new String(Files.readAllBytes(baselinePath), StandardCharsets.UTF_8)).getAsJsonObject();
+		JsonObject currentObj = toJson();
+		output.println(String.format("compared with %s", baselinePath));
+		output.println(String.format("%-28s %12s %12s %9s", "", "baseline", "current", "change"));
+		printChange(output, "throughput", baselineObj.get("throughput"), currentObj.get("throughput"));
+		printChange(output, "errors", baselineObj.get("errors"), currentObj.get("errors"));
+		JsonObject baselineLatencies = baselineObj.getAsJsonObject("latencyMicros");
+		JsonObject currentLatencies = currentObj.getAsJsonObject("latencyMicros");
+		for (String name : PERCENTILE_NAMES) {
+			printChange(output, name + " (us)", baselineLatencies.get(name), currentLatencies.get(name));
+		}
+		printChange(output, "max (us)", baselineLatencies.get("max"), currentLatencies.get("max"));
+	}
+
+	private static void printChange(PrintStream output, String name, JsonElement baseline, JsonElement current) {
+		double baselineValue = baseline != null ? baseline.getAsDouble() : 0;
+		double currentValue = current.getAsDouble();
+		String change = baselineValue != 0
+				? String.format("%+.1f%%", (currentValue - baselineValue) * 100 / baselineValue)
+				: "-";
+		output.println(String.format("%-28s %12.1f %12.1f %9s", name, baselineValue, currentValue, change));
+	}
+
+}
@@ -0,0 +1,221 @@
+package retailerdiscountsapi.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class replays recorded requests against the retailer discounts api and measures their latencies with the
+ * {@link LatencyReport}. The requests of the {@link ReplayRequest} file are sent in a loop in the order of the file.
+ *
+ * <ul>
+ * <li>Open loop (--rate): a request is due every 1 / rate seconds and is sent asynchronously when it is due, whether
+ * the earlier requests are answered or not, like the independent users of the service.</li>
+ * <li>Closed loop (--concurrency): every worker sends a request and waits for its response before it sends the next
+ * one. With --rate every worker has its own schedule of due times, otherwise a request is due when the worker is
+ * free.</li>
+ * </ul>
+ *
+ * The latency of a request is measured from its due time, so a request that waits behind a slow response because the
+ * generator or the worker is busy is measured with its waiting time (coordinated omission correction). Requests of
+ * the warmup are sent but not recorded.
+ *
+ * @author gizemabali
+ *
+ */
+public final class LoadGenerator {
+
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final LoadTestOptions options;
+
+	private final List<ReplayRequest> requests;
+
+	private final HttpClient client;
+
+	private final LatencyReport report;
+
+	private final AtomicLong nextRequest = new AtomicLong();
+
+	public LoadGenerator(LoadTestOptions options, List<ReplayRequest> requests) {
+		this.options = options;
+		this.requests = requests;
+		this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofMillis(options.getTimeoutMillis())).build();
+		this.report = new LatencyReport(options);
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestOptions options;
+		try {
+			options = LoadTestOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: java -jar loadtest.jar --requests <file.jsonl> (--rate <requests/s> | "
+					+ "--concurrency <workers> [--rate <requests/s>]) [--target <url>] [--duration-seconds <s>] "
+					+ "[--warmup-seconds <s>] [--timeout-millis <ms>] [--report <file.json>] "
+					+ "[--histogram-log <file.hlog>] [--compare <file.json>] [--stub [--stub-latency-millis <ms>]]");
+			System.exit(2);
+			return;
+		}
+		List<ReplayRequest> requests = ReplayRequest.read(options.getRequests());
+		StubServer stub = options.isStub() ? new StubServer(options.getStubLatencyMillis()) : null;
+		try {
+			if (stub != null) {
+				options.setTarget(stub.getUrl());
+			}
+			System.out.println(String.format("replaying %d requests against %s, %s, rate: %s, concurrency: %d, "
+					+ "warmup: %d s, duration: %d s", requests.size(), options.getTarget(),
+					options.isOpenLoop() ? "open loop" : "closed loop",
+					options.getRate() > 0 ? String.valueOf(options.getRate()) : "unlimited", options.getConcurrency(),
+					options.getWarmupSeconds(), options.getDurationSeconds()));
+			LatencyReport report = new LoadGenerator(options, requests).run();
+			report.print(System.out);
+			if (options.getReport() != null) {
+				report.writeJson(options.getReport());
+			}
+			if (options.getHistogramLog() != null) {
+				report.writeHistogramLog(options.getHistogramLog());
+			}
+			if (options.getCompare() != null) {
+				report.printComparison(options.getCompare(), System.out);
+			}
+		} finally {
+			if (stub != null) {
+				stub.close();
+			}
+		}
+	}
+
+	/**
+	 * This method is used to run the load test.
+	 *
+	 * @return the report of the run
+	 */
+	public LatencyReport run() throws InterruptedException, TimeoutException {
+		long startNanos = System.nanoTime();
+		long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+		long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+		if (options.isOpenLoop()) {
+			runOpenLoop(startNanos, measureFromNanos, endNanos);
+		} else {
+			runClosedLoop(startNanos, measureFromNanos, endNanos);
+		}
+		report.setElapsedNanos(System.nanoTime() - measureFromNanos);
+		return report;
+	}
+
+	private void runOpenLoop(long startNanos, long measureFromNanos, long endNanos)
+			throws InterruptedException, TimeoutException {
+		double intervalNanos = SECOND_NANOS / options.getRate();
+		// the requests in flight and the generator itself; a Phaser would be simpler but it has at most 65535
+		// parties, which a high rate with a slow target can exceed
+		AtomicLong inFlight = new AtomicLong(1);
+		CountDownLatch answered = new CountDownLatch(1);
+		for (long i = 0;; i++) {
+			long intendedNanos = startNanos + (long) (i * intervalNanos);
+			if (intendedNanos >= endNanos) {
+				break;
+			}
+			sleepUntil(intendedNanos);
+			ReplayRequest request = nextRequest();
+			inFlight.incrementAndGet();
+			long sentNanos = System.nanoTime();
+			client.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						if (intendedNanos >= measureFromNanos) {
+							report.record(request, error == null && isSuccess(response.statusCode()), intendedNanos,
+									sentNanos, System.nanoTime());
+						}
+						if (inFlight.decrementAndGet() == 0) {
+							answered.countDown();
+						}
+					});
+		}
+		if (inFlight.decrementAndGet() == 0) {
+			answered.countDown();
+		}
+		// the last requests are answered or time out within the request timeout
+		if (!answered.await(2 * options.getTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+			throw new TimeoutException(String.format("%d requests are not answered in time", inFlight.get()));
+		}
+	}
+
+	private void runClosedLoop(long startNanos, long measureFromNanos, long endNanos) throws InterruptedException {
+		int concurrency = options.getConcurrency();
+		// every worker has its own share of the rate
+		long intervalNanos = options.getRate() > 0 ? (long) (SECOND_NANOS * concurrency / options.getRate()) : 0;
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int worker = 0; worker < concurrency; worker++) {
+			long workerStartNanos = startNanos + (intervalNanos * worker) / concurrency;
+			Thread thread = new Thread(() -> runWorker(workerStartNanos, intervalNanos, measureFromNanos, endNanos),
+					"load-worker-" + worker);
+			thread.setDaemon(true);
+			thread.start();
+			workers.add(thread);
+		}
+		for (Thread thread : workers) {
+			thread.join();
+		}
+	}
+
+	private void runWorker(long workerStartNanos, long intervalNanos, long measureFromNanos, long endNanos) {
+		for (long i = 0;; i++) {
+			long intendedNanos = intervalNanos > 0 ? workerStartNanos + i * intervalNanos : System.nanoTime();
+			if (intendedNanos >= endNanos) {
+				return;
+			}
+			sleepUntil(intendedNanos);
+			ReplayRequest request = nextRequest();
+			long sentNanos = System.nanoTime();
+			boolean success;
+			try {
+				success = isSuccess(client.send(toHttpRequest(request), HttpResponse.BodyHandlers.discarding())
+						.statusCode());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				success = false;
+			}
+			if (intendedNanos >= measureFromNanos) {
+				report.record(request, success, intendedNanos, sentNanos, System.nanoTime());
+			}
+		}
+	}
+
+	private ReplayRequest nextRequest() {
+		return requests.get((int) (nextRequest.getAndIncrement() % requests.size()));
+	}
+
+	private HttpRequest toHttpRequest(ReplayRequest request) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(options.getTarget() + request.getPath()))
+				.timeout(Duration.ofMillis(options.getTimeoutMillis()));
+		if (request.getBody() != null) {
+			builder.header("Content-Type", "application/json");
+			return builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofString(request.getBody())).build();
+		}
+		return builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+	}
+
+	private static boolean isSuccess(int statusCode) {
+		return (statusCode >= 200 && statusCode < 300) || statusCode == 304;
+	}
+
+	private static void sleepUntil(long nanos) {
+		long remainingNanos;
+		while ((remainingNanos = nanos - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remainingNanos);
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package retailerdiscountsapi.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is the options of a load test run that are read from the command line arguments of the
+ * {@link LoadGenerator}, e.g. --requests requests.jsonl --rate 500 --duration-seconds 60.
+ *
+ * <ul>
+ * <li>--target: base url of the service, default http://localhost:8080</li>
+ * <li>--requests: JSONL file of the recorded requests, see {@link ReplayRequest}</li>
+ * <li>--rate: requests per second. Without --concurrency the requests are sent open loop at this rate, however slow
+ * the service is.</li>
+ * <li>--concurrency: number of closed loop workers that send one request at a time. With --rate the workers share the
+ * rate, otherwise they send as fast as the service answers.</li>
+ * <li>--duration-seconds, --warmup-seconds: length of the measurement and of the warmup before it, default 60 and
+ * 10</li>
+ * <li>--timeout-millis: timeout of a request, default 10000</li>
+ * <li>--report: path of the json report, --histogram-log: path of the HdrHistogram log of the corrected latencies,
+ * --compare: path of the json report of an earlier run that the run is compared with</li>
+ * <li>--stub: answers the requests with a local {@link StubServer} instead of the target,
+ * --stub-latency-millis: service time of the stub, default 1</li>
+ * </ul>
+ *
+ * @author gizemabali
+ *
+ */
+public final class LoadTestOptions {
+
+	private String target = "http://localhost:8080";
+
+	private Path requests;
+
+	private double rate;
+
+	private int concurrency;
+
+	private long durationSeconds = 60;
+
+	private long warmupSeconds = 10;
+
+	private long timeoutMillis = 10000;
+
+	private Path report;
+
+	private Path histogramLog;
+
+	private Path compare;
+
+	private boolean stub;
+
+	private long stubLatencyMillis = 1;
+
+	/**
+	 * This method is used to read the options from the given command line arguments.
+	 *
+	 * @throws IllegalArgumentException if an option is unknown or not valid
+	 */
+	public static LoadTestOptions parse(String[] args) {
+		Map<String, String> values = new HashMap<String, String>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--")) {
+				throw new IllegalArgumentException(String.format("unexpected argument %s!", args[i]));
+			}
+			String name = args[i].substring(2);
+			if ("stub".equals(name)) {
+				values.put(name, "true");
+			} else if (i + 1 < args.length) {
+				values.put(name, args[++i]);
+			} else {
+				throw new IllegalArgumentException(String.format("option %s has no value!", args[i]));
+			}
+		}
+		LoadTestOptions options = new LoadTestOptions();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			String value = entry.getValue();
+			switch (entry.getKey()) {
+			case "target":
+				options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+				break;
+			case "requests":
+				options.requests = Paths.get(value);
+				break;
+			case "rate":
+				options.rate = Double.parseDouble(value);
+				break;
+			case "concurrency":
+				options.concurrency = Integer.parseInt(value);
+				break;
+			case "duration-seconds":
+				options.durationSeconds = Long.parseLong(value);
+				break;
+			case "warmup-seconds":
+				options.warmupSeconds = Long.parseLong(value);
+				break;
+			case "timeout-millis":
+				options.timeoutMillis = Long.parseLong(value);
+				break;
+			case "report":
+				options.report = Paths.get(value);
+				break;
+			case "histogram-log":
+				options.histogramLog = Paths.get(value);
+				break;
+			case "compare":
+				options.compare = Paths.get(value);
+				break;
+			case "stub":
+				options.stub = true;
+				break;
+			case "stub-latency-millis":
+				options.stubLatencyMillis = Long.parseLong(value);
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("unknown option --%s!", entry.getKey()));
+			}
+		}
+		if (options.requests == null) {
+			throw new IllegalArgumentException("--requests must be given!");
+		}
+		if (options.rate <= 0 && options.concurrency <= 0) {
+			throw new IllegalArgumentException("--rate or --concurrency must be given!");
+		}
+		if (options.durationSeconds <= 0 || options.warmupSeconds < 0) {
+			throw new IllegalArgumentException("--duration-seconds must be positive!");
+		}
+		return options;
+	}
+
+	/**
+	 * @return true if the requests are sent at the rate without waiting for the responses.
+	 */
+	public boolean isOpenLoop() {
+		return concurrency <= 0;
+	}
+
+	public String getTarget() {
+		return target;
+	}
+
+	public void setTarget(String target) {
+		this.target = target;
+	}
+
+	public Path getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return the requests per second or 0 if the workers send as fast as the service answers.
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public long getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public long getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public Path getReport() {
+		return report;
+	}
+
+	public Path getHistogramLog() {
+		return histogramLog;
+	}
+
+	public Path getCompare() {
+		return compare;
+	}
+
+	public boolean isStub() {
+		return stub;
+	}
+
+	public long getStubLatencyMillis() {
+		return stubLatencyMillis;
+	}
+
+}
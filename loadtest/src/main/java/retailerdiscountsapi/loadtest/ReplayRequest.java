@@ -0,0 +1,123 @@
+package retailerdiscountsapi.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * This class is a recorded request that is replayed by the {@link LoadGenerator}. Recorded requests are kept in a
+ * JSONL file, one request object per line:
+ *
+ * <pre>
+ * {"method": "POST", "path": "/calculatebasket", "body": {"username": "example@mail.com", "basketDetails": [...]}}
+ * {"method": "GET", "path": "/products/home"}
+ * </pre>
+ *
+ * The body may be a json value or a string. Empty lines and lines that start with # are skipped.
+ *
+ * @author gizemabali
+ *
+ */
+public final class ReplayRequest {
+
+	private final String method;
+
+	private final String path;
+
+	private final String body;
+
+	/**
+	 * This is the endpoint of the request in the reports, e.g. GET /products for GET /products/home.
+	 */
+	private final String endpoint;
+
+	public ReplayRequest(String method, String path, String body) {
+		this.method = method.toUpperCase();
+		this.path = path.startsWith("/") ? path : "/" + path;
+		this.body = body;
+		int endpointEnd = this.path.indexOf('/', 1);
+		int queryStart = this.path.indexOf('?');
+		if (endpointEnd < 0 || (queryStart >= 0 && queryStart < endpointEnd)) {
+			endpointEnd = queryStart;
+		}
+		this.endpoint = this.method + " " + (endpointEnd < 0 ? this.path : this.path.substring(0, endpointEnd));
+	}
+
+	/**
+	 * This method is used to read the recorded requests of the given JSONL file.
+	 *
+	 * @param path it is the path of the file.
+	 * @return the requests in the order of the file
+	 * @throws IOException              if the file can not be read
+	 * @throws IllegalArgumentException if a line is not a valid request
+	 */
+	public static List<ReplayRequest> read(Path path) throws IOException {
+		List<ReplayRequest> requests = new ArrayList<ReplayRequest>();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					requests.add(parse(JsonParser.parseString(line).getAsJsonObject()));
+				} catch (RuntimeException e) {
+					throw new IllegalArgumentException(
+							String.format("line %d of %s is not a valid request: %s", lineNumber, path, e.getMessage()),
+							e);
+				}
+			}
+		}
+		if (requests.isEmpty()) {
+			throw new IllegalArgumentException(String.format("%s has no requests!", path));
+		}
+		return requests;
+	}
+
+	private static ReplayRequest parse(JsonObject requestObj) {
+		JsonElement method = requestObj.get("method");
+		JsonElement path = requestObj.get("path");
+		if (path == null || path.isJsonNull()) {
+			throw new IllegalArgumentException("path must be given");
+		}
+		JsonElement body = requestObj.get("body");
+		String bodyText = null;
+		if (body != null && !body.isJsonNull()) {
+			bodyText = body.isJsonPrimitive() && body.getAsJsonPrimitive().isString() ? body.getAsString()
+					: body.toString();
+		}
+		return new ReplayRequest(method != null && !method.isJsonNull() ? method.getAsString() : "GET",
+				path.getAsString(), bodyText);
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the body of the request or null if it has no body.
+	 */
+	public String getBody() {
+		return body;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+}
@@ -0,0 +1,99 @@
+package retailerdiscountsapi.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class is a local stub of the retailer discounts api. It answers /calculatebasket, /calculatebaskets,
+ * /products/{type}, /user and /users with canned responses after a fixed service time, so the load generator, its
+ * schedule and its reports can be checked without the service, the elastic search or a network.
+ *
+ * @author gizemabali
+ *
+ */
+public final class StubServer implements AutoCloseable {
+
+	private static final byte[] BASKET_RESPONSE = "{\"totalPrice\":1205}".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] BASKETS_RESPONSE = "[{\"totalPrice\":1205}]".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] PRODUCTS_RESPONSE = "[{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100}]"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] USER_RESPONSE = "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+
+	static {
+		// small responses are not held back by the nagle algorithm until the delayed ack of the client
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	/**
+	 * This method is used to start a stub on a free local port.
+	 *
+	 * @param latencyMillis it is the service time of every request.
+	 */
+	public StubServer(long latencyMillis) throws IOException {
+		executor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		server.setExecutor(executor);
+		server.createContext("/", exchange -> handle(exchange, latencyMillis));
+		server.start();
+	}
+
+	private static void handle(HttpExchange exchange, long latencyMillis) throws IOException {
+		try (InputStream requestBody = exchange.getRequestBody()) {
+			requestBody.transferTo(OutputStream.nullOutputStream());
+		}
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		String path = exchange.getRequestURI().getPath();
+		byte[] response;
+		if (path.startsWith("/calculatebaskets")) {
+			response = BASKETS_RESPONSE;
+		} else if (path.startsWith("/calculatebasket")) {
+			response = BASKET_RESPONSE;
+		} else if (path.startsWith("/products/")) {
+			response = PRODUCTS_RESPONSE;
+		} else if (path.startsWith("/user")) {
+			response = USER_RESPONSE;
+		} else {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, response.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response);
+		}
+	}
+
+	/**
+	 * @return the base url of the stub.
+	 */
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
@@ -51,3 +51,13 @@ curl -X PUT "localhost:9200/product/_doc/7?pretty" -H 'Content-Type: application
   "price": 15
 }
 '
+
+# a product is deleted from the catalog by indexing it again as a tombstone, e.g.
+# curl -X PUT "localhost:9200/product/_doc/7?pretty" -H 'Content-Type: application/json' -d'
+# {
+#   "productName": "Apple",
+#   "type": "groceries",
+#   "price": 15,
+#   "deleted": true
+# }
+# '
@@ -2,6 +2,10 @@ curl -X PUT "localhost:9200/_template/template_userinfo?pretty" -H 'Content-Type
 {"index_patterns":["userinfo*"],"settings":{"number_of_shards":1},"mappings":{"_source":{"enabled":true},"properties":{"username":{"type":"keyword"},"password":{"type":"keyword"},"accountCreationDate":{"type":"date","format":"yyyy-MM-dd HH:mm:ss"},"employee":{"type":"boolean"},"affiliate":{"type":"boolean"},"customer":{"type":"boolean"}}}}
 '
 
+curl -X PUT "localhost:9200/_ingest/pipeline/product_updated_at?pretty" -H 'Content-Type: application/json' -d'
+{"description":"sets the update time of the product documents for the incremental catalog sync","processors":[{"set":{"field":"updatedAt","value":"{{_ingest.timestamp}}"}},{"set":{"field":"deleted","value":false,"override":false}}]}
+'
+
 curl -X PUT "localhost:9200/_template/template_product?pretty" -H 'Content-Type: application/json' -d'
-{"index_patterns":["product*"],"settings":{"number_of_shards":1},"mappings":{"_source":{"enabled":true},"properties":{"productName":{"type":"keyword"},"type":{"type":"keyword"},"price":{"type":"long"}}}}
+{"index_patterns":["product*"],"settings":{"number_of_shards":1,"index.default_pipeline":"product_updated_at"},"mappings":{"_source":{"enabled":true},"properties":{"productName":{"type":"keyword"},"type":{"type":"keyword"},"price":{"type":"long"},"updatedAt":{"type":"date"},"deleted":{"type":"boolean"}}}}
 '
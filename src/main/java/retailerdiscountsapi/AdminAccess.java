@@ -0,0 +1,76 @@
+package retailerdiscountsapi;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component is used to guard the admin apis that change the discount rules or the product catalog. A request of
+ * an admin api must have the configured token in its {@value Constants#ADMIN_TOKEN_HEADER} header. If no token is
+ * configured, the admin apis are disabled.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class AdminAccess {
+
+	private static final Logger logger = LogManager.getLogger(AdminAccess.class);
+
+	/**
+	 * This is the bytes of the admin token or null if the admin apis are disabled.
+	 */
+	private static volatile byte[] token;
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final AdminAccess instance = new AdminAccess();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private AdminAccess() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static AdminAccess getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the admin token.
+	 *
+	 * @param adminToken it is the token of the admin apis, an empty token disables them.
+	 */
+	@Autowired
+	public void configure(@Value("${admin.token:}") String adminToken) {
+		token = adminToken.isEmpty() ? null : adminToken.getBytes(StandardCharsets.UTF_8);
+		logger.info(String.format("admin access is configured! enabled: %b", token != null));
+	}
+
+	/**
+	 * This method is used to check the token of an admin api request. The tokens are compared in constant time.
+	 *
+	 * @param requestToken it is the token of the request or null.
+	 * @return true if the admin apis are enabled and the token is the admin token
+	 */
+	public boolean isAuthorized(String requestToken) {
+		byte[] adminToken = token;
+		if (adminToken == null || requestToken == null) {
+			return false;
+		}
+		return MessageDigest.isEqual(adminToken, requestToken.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,262 @@
+package retailerdiscountsapi;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.ActionListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * This class is used to record the metrics of the elastic search requests and of the api operations. The meters are
+ * registered to the global registry which the actuator registries, e.g. the prometheus registry, are added to. Timers
+ * publish percentile histograms, so the percentiles can be aggregated over instances by the monitoring system instead
+ * of being calculated here.
+ *
+ * <p>
+ * Meters are created once and kept, so recording a value does not look up the registry. Times are measured with
+ * {@link System#nanoTime()} by the callers and recorded with the start time, so there are no timer samples.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+public class ApiMetrics {
+
+	public static final String ELASTIC_REQUESTS = "elastic.requests";
+
+	public static final String ELASTIC_SCANS = "elastic.scans";
+
+	public static final String ELASTIC_PAGE_HITS = "elastic.page.hits";
+
+	public static final String BASKET_STAGES = "basket.stages";
+
+	public static final String BASKET_LINES = "basket.lines";
+
+	public static final String RESPONSE_SIZE = "api.response.size";
+
+	public static final String ERRORS = "api.errors";
+
+	public static final String NOT_MODIFIED = "api.not.modified";
+
+	public static final String STALE = "api.stale";
+
+	public static final String SEARCH = "search";
+
+	public static final String INDEX = "index";
+
+	public static final String BULK = "bulk";
+
+	public static final String DECODE = "decode";
+
+	public static final String LOOKUP = "lookup";
+
+	public static final String PRICE = "price";
+
+	private static final String SUCCESS = "success";
+
+	private static final String FAILURE = "failure";
+
+	private static final MeterRegistry registry = Metrics.globalRegistry;
+
+	private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+	private static final ConcurrentHashMap<String, DistributionSummary> summaries =
+			new ConcurrentHashMap<String, DistributionSummary>();
+
+	private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+
+	private static final DistributionSummary basketLines = DistributionSummary.builder(BASKET_LINES)
+			.description("number of lines of the priced baskets").baseUnit("lines").publishPercentileHistogram()
+			.register(registry);
+
+	private static final Timer decodeTimer = basketStageTimer(DECODE);
+
+	private static final Timer lookupTimer = basketStageTimer(LOOKUP);
+
+	private static final Timer priceTimer = basketStageTimer(PRICE);
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ApiMetrics instance = new ApiMetrics();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ApiMetrics() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ApiMetrics getInstance() {
+		return instance;
+	}
+
+	private static Timer basketStageTimer(String stage) {
+		return Timer.builder(BASKET_STAGES).description("time spent in the stages of the basket pricing")
+				.tag("stage", stage).publishPercentileHistogram().register(registry);
+	}
+
+	/**
+	 * This method is used to record an elastic search request.
+	 *
+	 * @param operation it is the operation of the request, e.g. {@value #SEARCH}.
+	 * @param index     it is the name of the index.
+	 * @param startTime it is the {@link System#nanoTime()} of the start of the request.
+	 * @param success   it is false if the request failed.
+	 */
+	public void recordElasticRequest(String operation, String index, long startTime, boolean success) {
+		String outcome = success ? SUCCESS : FAILURE;
+		timers.computeIfAbsent(ELASTIC_REQUESTS + '|' + operation + '|' + index + '|' + outcome,
+				key -> Timer.builder(ELASTIC_REQUESTS).description("elastic search requests")
+						.tags("operation", operation, "index", index, "outcome", outcome).publishPercentileHistogram()
+						.register(registry))
+				.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to wrap the given listener of an asynchronous elastic search request, so the request is
+	 * recorded when it completes.
+	 *
+	 * @param operation it is the operation of the request, e.g. {@value #BULK}.
+	 * @param index     it is the name of the index.
+	 * @param listener  it is the listener of the request.
+	 * @return the wrapping listener
+	 */
+	public <T> ActionListener<T> timeElasticRequest(String operation, String index, ActionListener<T> listener) {
+		long startTime = System.nanoTime();
+		return new ActionListener<T>() {
+
+			@Override
+			public void onResponse(T response) {
+				recordElasticRequest(operation, index, startTime, true);
+				listener.onResponse(response);
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				recordElasticRequest(operation, index, startTime, false);
+				listener.onFailure(e);
+			}
+		};
+	}
+
+	/**
+	 * This method is used to record a search that is read page by page, from the first page request to the last
+	 * consumed page.
+	 *
+	 * @param index     it is the name of the index.
+	 * @param startTime it is the {@link System#nanoTime()} of the start of the search.
+	 * @param success   it is false if the search failed.
+	 */
+	public void recordElasticScan(String index, long startTime, boolean success) {
+		String outcome = success ? SUCCESS : FAILURE;
+		timers.computeIfAbsent(ELASTIC_SCANS + '|' + index + '|' + outcome,
+				key -> Timer.builder(ELASTIC_SCANS).description("searches that are read page by page")
+						.tags("index", index, "outcome", outcome).publishPercentileHistogram().register(registry))
+				.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to record the number of hits of a search page.
+	 */
+	public void recordPageHits(String index, int hitCount) {
+		summaries.computeIfAbsent(ELASTIC_PAGE_HITS + '|' + index,
+				key -> DistributionSummary.builder(ELASTIC_PAGE_HITS).description("hits per search page")
+						.baseUnit("hits").tag("index", index).publishPercentileHistogram().register(registry))
+				.record(hitCount);
+	}
+
+	/**
+	 * This method is used to record the time of reading a basket request.
+	 */
+	public void recordDecode(long startTime) {
+		decodeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to record the time of finding the products of a basket in the catalog, the cache and the
+	 * elastic search.
+	 */
+	public void recordLookup(long startTime) {
+		lookupTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to record the time of calculating the discounted price of a basket, or of all baskets of a
+	 * batch.
+	 */
+	public void recordPrice(long startTime) {
+		priceTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to record the number of lines of a priced basket.
+	 */
+	public void recordBasketLines(int lineCount) {
+		basketLines.record(lineCount);
+	}
+
+	/**
+	 * This method is used to record the size of a response body.
+	 *
+	 * @param endpoint it is the name of the api.
+	 * @param size     it is the number of characters of the response body.
+	 */
+	public void recordResponseSize(String endpoint, long size) {
+		summaries.computeIfAbsent(RESPONSE_SIZE + '|' + endpoint,
+				key -> DistributionSummary.builder(RESPONSE_SIZE).description("size of the response bodies")
+						.baseUnit("chars").tag("endpoint", endpoint).publishPercentileHistogram().register(registry))
+				.record(size);
+	}
+
+	/**
+	 * This method is used to count a request of an api that is answered with 304 Not Modified.
+	 *
+	 * @param endpoint it is the name of the api.
+	 */
+	public void recordNotModified(String endpoint) {
+		counters.computeIfAbsent(NOT_MODIFIED + '|' + endpoint,
+				key -> Counter.builder(NOT_MODIFIED).description("requests that are answered with 304 Not Modified")
+						.tag("endpoint", endpoint).register(registry))
+				.increment();
+	}
+
+	/**
+	 * This method is used to count a request of an api that is answered from the last known good products.
+	 *
+	 * @param endpoint it is the name of the api.
+	 */
+	public void recordStale(String endpoint) {
+		counters.computeIfAbsent(STALE + '|' + endpoint,
+				key -> Counter.builder(STALE).description("requests that are answered from the last known products")
+						.tag("endpoint", endpoint).register(registry))
+				.increment();
+	}
+
+	/**
+	 * This method is used to count an error of an api.
+	 *
+	 * @param endpoint it is the name of the api.
+	 * @param e        it is the error, its class is the exception tag.
+	 */
+	public void recordError(String endpoint, Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		String exception = cause != null ? cause.getClass().getSimpleName() : "none";
+		counters.computeIfAbsent(ERRORS + '|' + endpoint + '|' + exception,
+				key -> Counter.builder(ERRORS).description("errors of the api operations")
+						.tags("endpoint", endpoint, "exception", exception).register(registry))
+				.increment();
+	}
+
+}
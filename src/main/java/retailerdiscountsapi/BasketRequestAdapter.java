@@ -0,0 +1,290 @@
+package retailerdiscountsapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.BasketRequest;
+
+/**
+ * This class is used to read the calculatebasket request body directly from a {@link JsonReader} into a
+ * {@link BasketRequest}. The request body is never kept as a string or as a Gson tree; basket lines go straight into
+ * the parallel arrays of the basket. A {@link com.google.gson.JsonObject} can still be read with
+ * {@link #fromJsonTree(com.google.gson.JsonElement)}.
+ *
+ * <p>
+ * A basket has either the user details or the username of the user. If the user details that the client sends are not
+ * trusted, the user details are skipped and a basket without a username is not valid.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class BasketRequestAdapter extends TypeAdapter<BasketRequest> {
+
+	private static final Logger logger = LogManager.getLogger(BasketRequestAdapter.class);
+
+	private static final UserInfoAdapter userInfoAdapter = UserInfoAdapter.getInstance();
+
+	/**
+	 * This is the initial capacity of the basket line arrays.
+	 */
+	private static final int INITIAL_LINE_CAPACITY = 16;
+
+	private static volatile boolean clientUserDetailsEnabled = true;
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final BasketRequestAdapter instance = new BasketRequestAdapter();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private BasketRequestAdapter() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static BasketRequestAdapter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure if the user details of the baskets are trusted.
+	 *
+	 * @param enabled it is false if the baskets must have a username and their user details are skipped.
+	 */
+	@Autowired
+	public void configure(@Value("${pricing.client-user-details.enabled:true}") boolean enabled) {
+		clientUserDetailsEnabled = enabled;
+		logger.info(String.format("basket request adapter is configured! clientUserDetailsEnabled: %b", enabled));
+	}
+
+	/**
+	 * This method is used to read one basket from the given UTF-8 stream.
+	 *
+	 * @param inputStream it is the stream of the calculatebasket request body.
+	 * @return the basket
+	 * @throws IllegalArgumentException if the body is not a valid basket
+	 * @throws IOException              if the json is malformed
+	 */
+	public BasketRequest readBasket(InputStream inputStream) throws IOException {
+		try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			return read(reader);
+		}
+	}
+
+	/**
+	 * This method is used to read a json array of baskets from the given UTF-8 stream. A basket that is not valid does
+	 * not stop the reading; it is returned as null, so the other baskets can still be priced.
+	 *
+	 * @param inputStream it is the stream of the calculatebaskets request body.
+	 * @return the baskets in the given order, null for the baskets that are not valid
+	 * @throws IllegalArgumentException if the body is not an array
+	 * @throws IOException              if the json is malformed
+	 */
+	public List<BasketRequest> readBaskets(InputStream inputStream) throws IOException {
+		try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+				throw new IllegalArgumentException(Constants.INVALID_BASKET);
+			}
+			List<BasketRequest> baskets = new ArrayList<BasketRequest>();
+			reader.beginArray();
+			while (reader.hasNext()) {
+				try {
+					baskets.add(read(reader));
+				} catch (IllegalArgumentException e) {
+					baskets.add(null);
+				}
+			}
+			reader.endArray();
+			return baskets;
+		}
+	}
+
+	/**
+	 * This method is used to read a basket object. The whole object is consumed even if it is not valid, so the reader
+	 * can go on with the next basket.
+	 *
+	 * @throws IllegalArgumentException if the value is not a valid basket
+	 * @throws IOException              if the json is malformed
+	 */
+	@Override
+	public BasketRequest read(JsonReader reader) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+			reader.skipValue();
+			throw new IllegalArgumentException(Constants.INVALID_BASKET);
+		}
+		BasketRequest basket = new BasketRequest();
+		boolean valid = true;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case Constants.USER_DETAILS:
+				if (!clientUserDetailsEnabled) {
+					reader.skipValue();
+					break;
+				}
+				try {
+					basket.setUserInfo(userInfoAdapter.read(reader));
+				} catch (IllegalArgumentException e) {
+					valid = false;
+				}
+				break;
+			case Constants.USERNAME:
+				basket.setUsername(UserInfoAdapter.readString(reader));
+				break;
+			case Constants.BASKET_DETAILS:
+				valid &= readBasketDetails(reader, basket);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (!valid || (basket.getUserInfo() == null && basket.getUsername() == null)
+				|| basket.getProductNames() == null) {
+			throw new IllegalArgumentException(Constants.INVALID_BASKET);
+		}
+		return basket;
+	}
+
+	/**
+	 * This method is used to read the basket lines into the given basket. An amount must be an integer, e.g. 3.5 is
+	 * not valid.
+	 *
+	 * @return false if a line is not valid
+	 */
+	private boolean readBasketDetails(JsonReader reader, BasketRequest basket) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+			reader.skipValue();
+			return false;
+		}
+		boolean valid = true;
+		String[] productNames = new String[INITIAL_LINE_CAPACITY];
+		int[] amounts = new int[INITIAL_LINE_CAPACITY];
+		int lineCount = 0;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				reader.skipValue();
+				valid = false;
+				continue;
+			}
+			String productName = null;
+			int amount = -1;
+			boolean hasAmount = false;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case Constants.PRODUCT_NAME:
+					productName = UserInfoAdapter.readString(reader);
+					break;
+				case Constants.AMOUNT:
+					hasAmount = true;
+					try {
+						amount = reader.nextInt();
+					} catch (NumberFormatException | IllegalStateException e) {
+						reader.skipValue();
+						valid = false;
+					}
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			if (productName == null || !hasAmount) {
+				valid = false;
+				continue;
+			}
+			if (lineCount == productNames.length) {
+				productNames = Arrays.copyOf(productNames, lineCount * 2);
+				amounts = Arrays.copyOf(amounts, lineCount * 2);
+			}
+			productNames[lineCount] = productName;
+			amounts[lineCount] = amount;
+			lineCount++;
+		}
+		reader.endArray();
+		lineCount = removeDuplicateLines(productNames, amounts, lineCount);
+		basket.setProductNames(Arrays.copyOf(productNames, lineCount));
+		basket.setAmounts(Arrays.copyOf(amounts, lineCount));
+		return valid;
+	}
+
+	/**
+	 * This method is used to keep every product name once in the given basket lines. A product keeps the position of
+	 * its first line and the amount of its last line. The lines are indexed in an open addressing table of line
+	 * indexes, so no map entry or boxed index is created for a line.
+	 *
+	 * @param productNames it is the product names of the lines.
+	 * @param amounts      it is the amounts of the lines.
+	 * @param lineCount    it is the number of the lines.
+	 * @return the number of the lines that are left at the beginning of the arrays
+	 */
+	private static int removeDuplicateLines(String[] productNames, int[] amounts, int lineCount) {
+		int[] lineIndexes = new int[Integer.highestOneBit(Math.max(lineCount, 1) * 2 - 1) << 1];
+		int mask = lineIndexes.length - 1;
+		int uniqueCount = 0;
+		for (int i = 0; i < lineCount; i++) {
+			String productName = productNames[i];
+			int h = productName.hashCode();
+			int index = (h ^ (h >>> 16)) & mask;
+			while (lineIndexes[index] != 0 && !productNames[lineIndexes[index] - 1].equals(productName)) {
+				index = (index + 1) & mask;
+			}
+			if (lineIndexes[index] != 0) {
+				amounts[lineIndexes[index] - 1] = amounts[i];
+				continue;
+			}
+			productNames[uniqueCount] = productName;
+			amounts[uniqueCount] = amounts[i];
+			lineIndexes[index] = ++uniqueCount;
+		}
+		return uniqueCount;
+	}
+
+	@Override
+	public void write(JsonWriter writer, BasketRequest basket) throws IOException {
+		writer.beginObject();
+		if (basket.getUsername() != null) {
+			writer.name(Constants.USERNAME).value(basket.getUsername());
+		}
+		if (basket.getUserInfo() != null) {
+			writer.name(Constants.USER_DETAILS);
+			userInfoAdapter.write(writer, basket.getUserInfo());
+		}
+		writer.name(Constants.BASKET_DETAILS).beginArray();
+		for (int i = 0; i < basket.getLineCount(); i++) {
+			writer.beginObject();
+			writer.name(Constants.PRODUCT_NAME).value(basket.getProductNames()[i]);
+			writer.name(Constants.AMOUNT).value(basket.getAmounts()[i]);
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,213 @@
+package retailerdiscountsapi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * This class is a point in time copy of the product catalog that can be written to and read from a local file. The
+ * file is compact and versioned; it is loaded into a {@link ProductTable} in one sequential read, so a restarted
+ * instance can price baskets before the elastic search is asked for a single product. The file layout is:
+ *
+ * <pre>
+ * int    magic            "RDCS"
+ * int    formatVersion    {@value #FORMAT_VERSION}
+ * long   catalogVersion   the version of the catalog, e.g. the time it is read from the elastic search
+ * long   watermark        the highest update time of the products, it is not in the format version 1
+ * int    productCount
+ * productCount times:
+ *   short  nameLength     unsigned length of the UTF-8 product name
+ *   byte[] name
+ *   long   slot           price &lt;&lt; 1 | grocery, see {@link ProductTable#slot(long, boolean)}
+ * long   checksum         CRC32 of all previous bytes
+ * </pre>
+ *
+ * @author gizemabali
+ *
+ */
+public final class CatalogSnapshot {
+
+	public static final int MAGIC = 0x52444353;
+
+	public static final int FORMAT_VERSION = 2;
+
+	/**
+	 * This is the watermark of the snapshots whose highest update time is not known.
+	 */
+	public static final long NO_WATERMARK = -1;
+
+	private static final int MIN_HEADER_LENGTH = 4 + 4 + 8 + 4;
+
+	private static final int CHECKSUM_LENGTH = 8;
+
+	private static final int MAX_NAME_LENGTH = 0xFFFF;
+
+	/**
+	 * This is the length of a product with an empty name.
+	 */
+	private static final int MIN_PRODUCT_LENGTH = 2 + 8;
+
+	private final ProductTable products;
+
+	private final long version;
+
+	private final long watermark;
+
+	private final long checksum;
+
+	/**
+	 * @param products  it is the products of the catalog. It must not be changed after the snapshot is created.
+	 * @param version   it is the version of the catalog.
+	 * @param watermark it is the highest update time of the products or {@link #NO_WATERMARK}.
+	 * @param checksum  it is the CRC32 checksum of the snapshot file.
+	 */
+	public CatalogSnapshot(ProductTable products, long version, long watermark, long checksum) {
+		this.products = products;
+		this.version = version;
+		this.watermark = watermark;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * This method is used to write the given products to the given file. The file is written next to the target and
+	 * then moved over it, so a reader never sees a half written snapshot.
+	 *
+	 * @param path     it is the path of the snapshot file.
+	 * @param products  it is the products that will be written.
+	 * @param version   it is the version of the catalog.
+	 * @param watermark it is the highest update time of the products or {@link #NO_WATERMARK}.
+	 * @return the snapshot of the written file
+	 * @throws IOException
+	 */
+	public static CatalogSnapshot write(Path path, ProductTable products, long version, long watermark)
+			throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path tempPath = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+		CRC32 crc = new CRC32();
+		try {
+			try (OutputStream fileStream = Files.newOutputStream(tempPath);
+					DataOutputStream output = new DataOutputStream(
+							new CheckedOutputStream(new BufferedOutputStream(fileStream, 1 << 16), crc))) {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeLong(version);
+				output.writeLong(watermark);
+				output.writeInt(products.size());
+				try {
+					products.forEach((productName, slot) -> writeProduct(output, productName, slot));
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				output.flush();
+				// the checksum itself is not a part of the checksum
+				new DataOutputStream(fileStream).writeLong(crc.getValue());
+			}
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+		return new CatalogSnapshot(products, version, watermark, crc.getValue());
+	}
+
+	private static void writeProduct(DataOutputStream output, String productName, long slot) {
+		byte[] name = productName.getBytes(StandardCharsets.UTF_8);
+		try {
+			if (name.length > MAX_NAME_LENGTH) {
+				throw new IOException(String.format("product name is too long: %s", productName));
+			}
+			output.writeShort(name.length);
+			output.write(name);
+			output.writeLong(slot);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * This method is used to load the snapshot of the given file into a {@link ProductTable}. The file is read once
+	 * from the beginning to the end while its checksum is calculated, and the snapshot is returned only if the
+	 * checksum is right. Files of the format version 1 are read with {@link #NO_WATERMARK}.
+	 *
+	 * @param path it is the path of the snapshot file.
+	 * @return the snapshot
+	 * @throws IOException if the file can not be read, its format version is not supported or it is corrupted
+	 */
+	public static CatalogSnapshot read(Path path) throws IOException {
+		long fileLength = Files.size(path);
+		if (fileLength < MIN_HEADER_LENGTH + CHECKSUM_LENGTH) {
+			throw new IOException(String.format("invalid catalog snapshot length: %d", fileLength));
+		}
+		CRC32 crc = new CRC32();
+		try (InputStream fileStream = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+				DataInputStream input = new DataInputStream(new CheckedInputStream(fileStream, crc))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException(String.format("not a catalog snapshot: %s", path));
+			}
+			int formatVersion = input.readInt();
+			if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+				throw new IOException(String.format("unsupported catalog snapshot format version: %d", formatVersion));
+			}
+			long version = input.readLong();
+			long watermark = formatVersion >= 2 ? input.readLong() : NO_WATERMARK;
+			int productCount = input.readInt();
+			if (productCount < 0 || productCount > fileLength / MIN_PRODUCT_LENGTH) {
+				throw new IOException(String.format("catalog snapshot is corrupted: %s", path));
+			}
+			ProductTable products = new ProductTable(productCount);
+			byte[] name = new byte[MAX_NAME_LENGTH];
+			for (int i = 0; i < productCount; i++) {
+				int nameLength = input.readUnsignedShort();
+				input.readFully(name, 0, nameLength);
+				products.putSlot(new String(name, 0, nameLength, StandardCharsets.UTF_8), input.readLong());
+			}
+			// the checksum itself is not a part of the checksum
+			long checksum = crc.getValue();
+			if (new DataInputStream(fileStream).readLong() != checksum || fileStream.read() != -1) {
+				throw new IOException(String.format("catalog snapshot is corrupted: %s", path));
+			}
+			return new CatalogSnapshot(products, version, watermark, checksum);
+		}
+	}
+
+	/**
+	 * @return the products of the catalog. They must not be changed.
+	 */
+	public ProductTable getProducts() {
+		return products;
+	}
+
+	/**
+	 * @return the version of the catalog.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the highest update time of the products or {@link #NO_WATERMARK}.
+	 */
+	public long getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * @return the CRC32 checksum of the snapshot file.
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+}
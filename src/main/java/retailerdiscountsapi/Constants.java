@@ -14,8 +14,53 @@ public class Constants {
 
 	public static final String UNEXPECTED_ERROR_OCCUR = "unexpected error occur";
 
+	public static final String COULD_NOT_INDEX_USERS = "could not index users!";
+
+	public static final String COULD_NOT_INDEX_USERS_IN_TIME = "could not index users in time!";
+
+	public static final String COULD_NOT_LOAD_DISCOUNT_RULES = "could not load discount rules!";
+
+	public static final String COULD_NOT_LOAD_CATALOG_SNAPSHOT = "could not load catalog snapshot!";
+
+	public static final String COULD_NOT_REFRESH_CATALOG = "could not refresh product catalog!";
+
+	public static final String COULD_NOT_SYNCHRONIZE_CATALOG = "could not synchronize product catalog!";
+
+	public static final String TOO_MANY_ELASTIC_REQUESTS = "too many elastic search requests!";
+
+	public static final String ELASTIC_CIRCUIT_OPEN = "elastic search circuit breaker is open!";
+
+	public static final String COULD_NOT_SEARCH_PRODUCTS_ANSWERED_STALE =
+			"could not search products, answered from the last known products!";
+
+	/**
+	 * This is the Warning header of the responses that are answered from the last known products.
+	 */
+	public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+	public static final String INVALID_USER = "invalid user";
+
+	public static final String INVALID_BASKET = "invalid basket";
+
+	public static final String PRODUCT_NOT_FOUND = "product not found: %s";
+
+	public static final String USER_NOT_FOUND = "user not found: %s";
+
+	public static final String ACCOUNT_CREATION_DATE_REQUIRED = "accountCreationDate is required";
+
+	public static final String BASKET_PRICE_OVERFLOW = "basket price is too high";
+
 	public static final String ERROR = "error";
 
+	public static final String USERNAME = "username";
+
+	public static final String USERINFO = "userinfo";
+
+	/**
+	 * This is the spring profile that keeps the products and the users in memory instead of the elastic search.
+	 */
+	public static final String IN_MEMORY_PROFILE = "inmemory";
+
 	public static final String PASSWORD = "password";
 
 	public static final String SUCCESS = "success";
@@ -24,6 +69,28 @@ public class Constants {
 
 	public static final String STATUS = "status";
 
+	public static final String INDEXED = "indexed";
+
+	public static final String FAILED = "failed";
+
+	public static final String FAILURES = "failures";
+
+	public static final String POSITION = "position";
+
+	public static final String REASON = "reason";
+
+	public static final String TOOK = "took";
+
+	public static final String USERS_PER_SECOND = "usersPerSecond";
+
+	public static final String VERSION = "version";
+
+	public static final String PRODUCT_COUNT = "productCount";
+
+	public static final String UPDATED_AT = "updatedAt";
+
+	public static final String DELETED = "deleted";
+
 	public static final String PRICE = "price";
 
 	public static final String GROCERIES = "groceries";
@@ -52,4 +119,8 @@ public class Constants {
 
 	public static final String EMPLOYEE = "employee";
 
+	public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+	public static final String ADMIN_TOKEN_REQUIRED = "a valid admin token is required!";
+
 }
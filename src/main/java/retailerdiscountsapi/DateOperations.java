@@ -1,15 +1,53 @@
 package retailerdiscountsapi;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This class is used to perform date operations in the GMT+3 time zone. It is thread safe. The current time that is
+ * used for the account age checks is read from a pluggable {@link Clock} and refreshed periodically, so pricing a basket
+ * does not need to create any calendar or formatter.
+ *
+ * @author gizemabali
+ *
+ */
 public class DateOperations {
 
 	public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
 	private static final String GMT_3 = "GMT+3";
 
+	private static final ZoneId ZONE = ZoneId.of(GMT_3);
+
+	private static final long ZONE_OFFSET_MILLIS = TimeUnit.HOURS.toMillis(3);
+
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT).withZone(ZONE);
+
+	/**
+	 * This is the period of refreshing the cached current time.
+	 */
+	public static final long CURRENT_TIME_REFRESH_MILLIS = 1000;
+
+	private static volatile Clock clock = Clock.system(ZONE);
+
+	private static volatile long currentTimeMillis = clock.millis();
+
+	static {
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("date-operations-%d").setDaemon(true).build());
+		scheduler.scheduleAtFixedRate(DateOperations::refreshCurrentTime, CURRENT_TIME_REFRESH_MILLIS,
+				CURRENT_TIME_REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
 	/**
 	 * Singleton utility class instance.
 	 */
@@ -31,21 +69,122 @@ public class DateOperations {
 		return instance;
 	}
 
+	/**
+	 * This method is used to change the clock of the date operations, e.g. to use a fixed clock in tests. The cached
+	 * current time is refreshed immediately.
+	 *
+	 * @param newClock it is the clock that will be used.
+	 */
+	public void setClock(Clock newClock) {
+		clock = newClock;
+		refreshCurrentTime();
+	}
+
+	/**
+	 * @return the clock of the date operations.
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	private static void refreshCurrentTime() {
+		currentTimeMillis = clock.millis();
+	}
+
+	/**
+	 * This method returns the cached current time. It is refreshed every {@value #CURRENT_TIME_REFRESH_MILLIS}
+	 * milliseconds, so it is enough for account age checks but not for measuring durations.
+	 *
+	 * @return the current time in epoch milliseconds
+	 */
+	public long currentTimeMillis() {
+		return currentTimeMillis;
+	}
+
 	/**
 	 * This method returns current date in the DATE_FORMAT string.
-	 * 
+	 *
 	 * @return
 	 * @param format
 	 */
 	public String getCurrentDate() {
-		Calendar calendar = getCalendar();
-		Date date = calendar.getTime();
-		SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
-		dateFormat.setTimeZone(TimeZone.getTimeZone(GMT_3));
-		return dateFormat.format(date);
+		return DATE_FORMATTER.format(clock.instant());
 	}
 
 	public Calendar getCalendar() {
-		return Calendar.getInstance(TimeZone.getTimeZone(GMT_3));
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(GMT_3));
+		calendar.setTimeInMillis(clock.millis());
+		return calendar;
+	}
+
+	/**
+	 * This method is used to parse the given DATE_FORMAT string in the GMT+3 time zone. Well formed dates are parsed
+	 * without creating any object; other dates are parsed leniently like the {@link SimpleDateFormat} does.
+	 *
+	 * @param date it is the date string.
+	 * @return the date in epoch milliseconds
+	 * @throws ParseException if the date can not be parsed
+	 */
+	public long parseDateMillis(String date) throws ParseException {
+		if (date.length() == DATE_FORMAT.length() && date.charAt(4) == '-' && date.charAt(7) == '-'
+				&& date.charAt(10) == ' ' && date.charAt(13) == ':' && date.charAt(16) == ':') {
+			int year = parseDigits(date, 0, 4);
+			int month = parseDigits(date, 5, 7);
+			int day = parseDigits(date, 8, 10);
+			int hour = parseDigits(date, 11, 13);
+			int minute = parseDigits(date, 14, 16);
+			int second = parseDigits(date, 17, 19);
+			if (year >= 1600 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+					&& hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+				long epochDay = epochDay(year, month, day);
+				long epochSecond = ((epochDay * 24 + hour) * 60 + minute) * 60 + second;
+				return epochSecond * 1000 - ZONE_OFFSET_MILLIS;
+			}
+		}
+		SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
+		sdf.setTimeZone(TimeZone.getTimeZone(GMT_3));
+		return sdf.parse(date).getTime();
+	}
+
+	/**
+	 * @return the number of the digits between the given indices or -1 if there is a non digit character.
+	 */
+	private static int parseDigits(String text, int start, int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+			return leapYear ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * @return the number of days from 1970-01-01 to the given date of the gregorian calendar.
+	 */
+	private static long epochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = y / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
 	}
 }
@@ -0,0 +1,198 @@
+package retailerdiscountsapi;
+
+import java.util.List;
+
+import retailerdiscountsapi.pojos.DiscountRule;
+import retailerdiscountsapi.pojos.DiscountRules;
+
+/**
+ * This class is the compiled, immutable form of the discount rules. Rules are kept in primitive arrays in the order of
+ * the configuration, so evaluating a basket only reads arrays and does not create any object.
+ *
+ * <ul>
+ * <li>The first percentage rule whose user types and minimum account age match the user is applied on the products
+ * except from groceries.</li>
+ * <li>For every billThreshold on the bill, there is a billDiscount discount.</li>
+ * </ul>
+ *
+ * @author gizemabali
+ *
+ */
+public final class DiscountPlan {
+
+	public static final int EMPLOYEE_FLAG = 1;
+
+	public static final int AFFILIATE_FLAG = 1 << 1;
+
+	public static final int CUSTOMER_FLAG = 1 << 2;
+
+	/**
+	 * This is the rule index that is returned when no rule matches the user.
+	 */
+	public static final int NO_RULE = -1;
+
+	private final String[] ruleNames;
+
+	private final int[] requiredUserFlags;
+
+	private final boolean[] requiresAccountAge;
+
+	private final long[] minimumAccountAgeMillis;
+
+	private final long[] payablePercents;
+
+	private final long billThreshold;
+
+	private final long billDiscount;
+
+	private DiscountPlan(int ruleCount, long billThreshold, long billDiscount) {
+		this.ruleNames = new String[ruleCount];
+		this.requiredUserFlags = new int[ruleCount];
+		this.requiresAccountAge = new boolean[ruleCount];
+		this.minimumAccountAgeMillis = new long[ruleCount];
+		this.payablePercents = new long[ruleCount];
+		this.billThreshold = billThreshold;
+		this.billDiscount = billDiscount;
+	}
+
+	/**
+	 * This method is used to compile the given discount rules.
+	 *
+	 * @param rules it is the discount rules configuration.
+	 * @return the compiled plan
+	 * @throws IllegalArgumentException if the rules are not valid
+	 */
+	public static DiscountPlan compile(DiscountRules rules) {
+		List<DiscountRule> percentageRules = rules.getPercentageRules();
+		if (percentageRules == null) {
+			throw new IllegalArgumentException("percentageRules must be given!");
+		}
+		if (rules.getBillThreshold() < 0 || rules.getBillDiscount() < 0) {
+			throw new IllegalArgumentException("billThreshold and billDiscount can not be negative!");
+		}
+		DiscountPlan plan = new DiscountPlan(percentageRules.size(), rules.getBillThreshold(), rules.getBillDiscount());
+		for (int i = 0; i < percentageRules.size(); i++) {
+			DiscountRule rule = percentageRules.get(i);
+			if (rule.getPercent() < 0 || rule.getPercent() > 100) {
+				throw new IllegalArgumentException(
+						String.format("percent of the rule %s must be between 0 and 100!", rule.getName()));
+			}
+			plan.ruleNames[i] = rule.getName();
+			plan.requiredUserFlags[i] = userFlags(rule.getUserTypes());
+			plan.requiresAccountAge[i] = rule.getMinimumAccountAgeMillis() > 0;
+			plan.minimumAccountAgeMillis[i] = rule.getMinimumAccountAgeMillis();
+			plan.payablePercents[i] = 100 - rule.getPercent();
+		}
+		return plan;
+	}
+
+	private static int userFlags(List<String> userTypes) {
+		int flags = 0;
+		if (userTypes == null) {
+			return flags;
+		}
+		for (String userType : userTypes) {
+			if (Constants.EMPLOYEE.equals(userType)) {
+				flags |= EMPLOYEE_FLAG;
+			} else if (Constants.AFFILIATE.equals(userType)) {
+				flags |= AFFILIATE_FLAG;
+			} else if (Constants.CUSTOMER.equals(userType)) {
+				flags |= CUSTOMER_FLAG;
+			} else {
+				throw new IllegalArgumentException(String.format("unknown user type %s!", userType));
+			}
+		}
+		return flags;
+	}
+
+	/**
+	 * This method is used to create the user flags of the given user types.
+	 *
+	 * @return the bitmask of {@link #EMPLOYEE_FLAG}, {@link #AFFILIATE_FLAG} and {@link #CUSTOMER_FLAG}
+	 */
+	public static int userFlags(boolean employee, boolean affiliate, boolean customer) {
+		return (employee ? EMPLOYEE_FLAG : 0) | (affiliate ? AFFILIATE_FLAG : 0) | (customer ? CUSTOMER_FLAG : 0);
+	}
+
+	/**
+	 * This method is used to check if the account age of the user is needed to find the rule of the user. If it is not
+	 * needed, the account creation date does not have to be parsed. It is needed if an account age rule matches the
+	 * user flags before the first rule that matches them without an account age.
+	 *
+	 * @param userFlags it is the user flags.
+	 * @return true if the account age is needed
+	 */
+	public boolean requiresAccountAge(int userFlags) {
+		for (int i = 0; i < requiredUserFlags.length; i++) {
+			if ((userFlags & requiredUserFlags[i]) == requiredUserFlags[i]) {
+				if (requiresAccountAge[i]) {
+					return true;
+				}
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method is used to find the first percentage rule that matches the user. A rule whose minimum account age is
+	 * not reached is skipped, so the account age rules of the same user flags can be tiered, the longest first.
+	 *
+	 * @param userFlags        it is the user flags.
+	 * @param accountAgeMillis it is the age of the user account in milliseconds, it is used only if
+	 *                         {@link #requiresAccountAge(int)} is true.
+	 * @return the index of the rule or {@link #NO_RULE}
+	 */
+	public int findRule(int userFlags, long accountAgeMillis) {
+		for (int i = 0; i < requiredUserFlags.length; i++) {
+			if ((userFlags & requiredUserFlags[i]) == requiredUserFlags[i]
+					&& (!requiresAccountAge[i] || accountAgeMillis > minimumAccountAgeMillis[i])) {
+				return i;
+			}
+		}
+		return NO_RULE;
+	}
+
+	/**
+	 * This method is used to apply the percentage discount of the given rule.
+	 *
+	 * @param ruleIndex it is the index of the rule that is found with {@link #findRule(int, long)}.
+	 * @param price     it is the total price of the products except from groceries.
+	 * @return the discounted price
+	 */
+	public long applyPercentageDiscount(int ruleIndex, long price) {
+		if (ruleIndex == NO_RULE) {
+			return price;
+		}
+		return (price * payablePercents[ruleIndex]) / 100;
+	}
+
+	/**
+	 * This method is used to apply the bill discount on the total price.
+	 *
+	 * @param totalPrice it is the total price of the bill.
+	 * @return the discounted total price
+	 */
+	public long applyBillDiscount(long totalPrice) {
+		if (billThreshold == 0) {
+			return totalPrice;
+		}
+		long discount = (totalPrice - (totalPrice % billThreshold)) / billThreshold;
+		return totalPrice - (discount * billDiscount);
+	}
+
+	/**
+	 * @return the name of the rule at the given index.
+	 */
+	public String getRuleName(int ruleIndex) {
+		return ruleNames[ruleIndex];
+	}
+
+	/**
+	 * @return the number of percentage rules.
+	 */
+	public int getRuleCount() {
+		return ruleNames.length;
+	}
+
+}
@@ -0,0 +1,145 @@
+package retailerdiscountsapi;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.google.gson.Gson;
+
+import retailerdiscountsapi.pojos.DiscountRules;
+
+/**
+ * This class is used to keep the discount rules. Rules are loaded from a json configuration, compiled into a
+ * {@link DiscountPlan} and swapped atomically, so the rules can be changed at runtime without a redeploy and a basket
+ * is always priced with one consistent plan.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class DiscountRuleEngine {
+
+	private static final Logger logger = LogManager.getLogger(DiscountRuleEngine.class);
+
+	public static final String DEFAULT_RULES_LOCATION = "classpath:discount-rules.json";
+
+	private static final Gson gson = new Gson();
+
+	private static volatile String rulesLocation = DEFAULT_RULES_LOCATION;
+
+	/**
+	 * This is the json of the current rules.
+	 */
+	private static volatile String rulesJson;
+
+	/**
+	 * This is the current compiled plan. It is replaced as a whole when the rules are changed.
+	 */
+	private static volatile DiscountPlan plan;
+
+	static {
+		try {
+			loadRules(readRules(DEFAULT_RULES_LOCATION));
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_LOAD_DISCOUNT_RULES, e);
+		}
+	}
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final DiscountRuleEngine instance = new DiscountRuleEngine();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private DiscountRuleEngine() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static DiscountRuleEngine getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to load the discount rules from the given location.
+	 *
+	 * @param location it is a spring resource location such as classpath:discount-rules.json or
+	 *                 file:/etc/retailer/discount-rules.json
+	 * @throws Exception
+	 */
+	@Autowired
+	public void configure(@Value("${discount.rules.location:" + DEFAULT_RULES_LOCATION + "}") String location)
+			throws Exception {
+		rulesLocation = location;
+		reload();
+	}
+
+	/**
+	 * This method is used to load the discount rules again from the configured location.
+	 *
+	 * @throws Exception
+	 */
+	public void reload() throws Exception {
+		load(readRules(rulesLocation));
+	}
+
+	/**
+	 * This method is used to compile the given discount rules and to replace the current rules with them. If the rules
+	 * are not valid, the current rules are kept.
+	 *
+	 * @param json it is the json of the discount rules.
+	 * @throws IllegalArgumentException if the rules are not valid
+	 */
+	public void load(String json) {
+		loadRules(json);
+	}
+
+	private static void loadRules(String json) {
+		DiscountRules rules = gson.fromJson(json, DiscountRules.class);
+		if (rules == null) {
+			throw new IllegalArgumentException("discount rules must be given!");
+		}
+		DiscountPlan newPlan = DiscountPlan.compile(rules);
+		synchronized (DiscountRuleEngine.class) {
+			plan = newPlan;
+			rulesJson = gson.toJson(rules);
+		}
+		logger.info(String.format("discount rules are loaded! ruleCount: %d", newPlan.getRuleCount()));
+	}
+
+	private static String readRules(String location) throws Exception {
+		Resource resource = new DefaultResourceLoader().getResource(location);
+		try (InputStream inputStream = resource.getInputStream()) {
+			return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return the current compiled plan.
+	 */
+	public DiscountPlan getPlan() {
+		return plan;
+	}
+
+	/**
+	 * @return the json of the current rules.
+	 */
+	public String getRulesJson() {
+		return rulesJson;
+	}
+
+}
@@ -0,0 +1,296 @@
+package retailerdiscountsapi;
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import retailerdiscountsapi.ElasticRequestLimiter.ElasticRequest;
+
+/**
+ * This component is used to stop sending the searches to the elastic search while it fails or is slow, so the requests
+ * do not wait for the client timeouts and the threads do not pile up.
+ *
+ * <ul>
+ * <li>CLOSED: the searches are sent and their outcomes are kept in a window of the last calls. When the window has
+ * the minimum number of calls and the rate of the failed calls or of the slow calls reaches its threshold, the breaker
+ * opens.</li>
+ * <li>OPEN: the searches are rejected at once. The callers answer them from the last known good products and mark
+ * the responses stale. After the open duration the breaker is half open.</li>
+ * <li>HALF_OPEN: a few searches are sent as probes and the others are rejected. If all probes succeed in time the
+ * breaker closes, otherwise it opens again.</li>
+ * </ul>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class ElasticCircuitBreaker {
+
+	private static final Logger logger = LogManager.getLogger(ElasticCircuitBreaker.class);
+
+	public static final String STATE = "elastic.circuit.state";
+
+	public static final String REJECTED = "elastic.circuit.rejected";
+
+	/**
+	 * This enum is the states of the breaker, the ordinal is the value of the {@value #STATE} gauge.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final Counter rejectedCalls = Counter.builder(REJECTED)
+			.description("elastic search requests that are rejected by the open circuit breaker")
+			.register(Metrics.globalRegistry);
+
+	private static volatile boolean enabled = true;
+
+	private static int failureRateThreshold = 50;
+
+	private static int slowCallRateThreshold = 50;
+
+	private static long slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(2000);
+
+	private static int minimumCalls = 10;
+
+	private static long openDurationNanos = TimeUnit.MILLISECONDS.toNanos(10000);
+
+	private static int halfOpenCalls = 3;
+
+	/**
+	 * This is the outcomes of the last calls in a ring, see {@link #FAILED_CALL} and {@link #SLOW_CALL}.
+	 */
+	private static byte[] window = new byte[20];
+
+	private static final byte FAILED_CALL = 1;
+
+	private static final byte SLOW_CALL = 2;
+
+	private static int windowPosition;
+
+	private static int windowCalls;
+
+	private static int failedCalls;
+
+	private static int slowCalls;
+
+	private static volatile State state = State.CLOSED;
+
+	private static long openedAt;
+
+	/**
+	 * This is the number of probes that are sent and that have succeeded in the half open state.
+	 */
+	private static int probeCalls;
+
+	private static int succeededProbeCalls;
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ElasticCircuitBreaker instance = new ElasticCircuitBreaker();
+
+	static {
+		Gauge.builder(STATE, () -> state.ordinal())
+				.description("state of the elastic search circuit breaker, 0 closed, 1 open, 2 half open")
+				.register(Metrics.globalRegistry);
+	}
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ElasticCircuitBreaker() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ElasticCircuitBreaker getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the breaker. The breaker is closed and the window is cleared.
+	 *
+	 * @param enabledValue           it is false if the searches are never rejected.
+	 * @param failureRate            it is the percentage of the failed calls of the window that opens the breaker.
+	 * @param slowCallRate           it is the percentage of the slow calls of the window that opens the breaker.
+	 * @param slowCallDurationMillis it is the number of milliseconds after which a call is slow.
+	 * @param windowSize             it is the number of the last calls whose outcomes are kept.
+	 * @param minimumCallCount       it is the number of calls of the window that are needed to open the breaker.
+	 * @param openDurationMillis     it is the number of milliseconds that the breaker stays open.
+	 * @param halfOpenCallCount      it is the number of probes in the half open state.
+	 */
+	@Autowired
+	public void configure(@Value("${elastic.circuit-breaker.enabled:true}") boolean enabledValue,
+			@Value("${elastic.circuit-breaker.failure-rate-threshold:50}") int failureRate,
+			@Value("${elastic.circuit-breaker.slow-call-rate-threshold:50}") int slowCallRate,
+			@Value("${elastic.circuit-breaker.slow-call-duration-millis:2000}") long slowCallDurationMillis,
+			@Value("${elastic.circuit-breaker.window-size:20}") int windowSize,
+			@Value("${elastic.circuit-breaker.minimum-calls:10}") int minimumCallCount,
+			@Value("${elastic.circuit-breaker.open-duration-millis:10000}") long openDurationMillis,
+			@Value("${elastic.circuit-breaker.half-open-calls:3}") int halfOpenCallCount) {
+		synchronized (ElasticCircuitBreaker.class) {
+			enabled = enabledValue;
+			failureRateThreshold = failureRate;
+			slowCallRateThreshold = slowCallRate;
+			slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+			window = new byte[Math.max(1, windowSize)];
+			minimumCalls = Math.max(1, Math.min(minimumCallCount, window.length));
+			openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+			halfOpenCalls = Math.max(1, halfOpenCallCount);
+			close();
+		}
+		logger.info(String.format(
+				"elastic circuit breaker is configured! enabled: %b, failureRateThreshold: %d, slowCallRateThreshold: "
+						+ "%d, slowCallDurationMillis: %d, windowSize: %d, minimumCalls: %d, openDurationMillis: %d, "
+						+ "halfOpenCalls: %d",
+				enabledValue, failureRate, slowCallRate, slowCallDurationMillis, windowSize, minimumCallCount,
+				openDurationMillis, halfOpenCallCount));
+	}
+
+	/**
+	 * This method is used to send the given request if the breaker permits it and to record its outcome.
+	 *
+	 * @param request it is the request that will be sent.
+	 * @return the result of the request
+	 * @throws RejectedExecutionException if the breaker is open
+	 * @throws Exception                  if the request fails
+	 */
+	public <T> T execute(ElasticRequest<T> request) throws Exception {
+		acquirePermission();
+		long startTime = System.nanoTime();
+		boolean success = false;
+		try {
+			T result = request.execute();
+			success = true;
+			return result;
+		} finally {
+			onResult(startTime, success);
+		}
+	}
+
+	/**
+	 * This method is used to wrap the given listener of an asynchronous request, so the outcome of the request is
+	 * recorded when it completes. The request must be sent only if this method does not throw.
+	 *
+	 * @param listener it is the listener of the request.
+	 * @return the wrapping listener
+	 * @throws RejectedExecutionException if the breaker is open
+	 */
+	public <T> ActionListener<T> track(ActionListener<T> listener) {
+		acquirePermission();
+		long startTime = System.nanoTime();
+		return new ActionListener<T>() {
+
+			@Override
+			public void onResponse(T response) {
+				onResult(startTime, true);
+				listener.onResponse(response);
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				onResult(startTime, false);
+				listener.onFailure(e);
+			}
+		};
+	}
+
+	/**
+	 * @return true if the breaker rejects the requests now.
+	 */
+	public boolean isOpen() {
+		return state == State.OPEN;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	private static synchronized void acquirePermission() {
+		if (!enabled || state == State.CLOSED) {
+			return;
+		}
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+			state = State.HALF_OPEN;
+			probeCalls = 0;
+			succeededProbeCalls = 0;
+			logger.info("elastic circuit breaker is half open!");
+		}
+		if (state == State.HALF_OPEN && probeCalls < halfOpenCalls) {
+			probeCalls++;
+			return;
+		}
+		rejectedCalls.increment();
+		throw new RejectedExecutionException(Constants.ELASTIC_CIRCUIT_OPEN);
+	}
+
+	private static synchronized void onResult(long startTime, boolean success) {
+		if (!enabled) {
+			return;
+		}
+		boolean slow = System.nanoTime() - startTime >= slowCallDurationNanos;
+		if (state == State.HALF_OPEN) {
+			if (success && !slow) {
+				if (++succeededProbeCalls >= halfOpenCalls) {
+					close();
+					logger.info("elastic circuit breaker is closed!");
+				}
+			} else {
+				logger.warn("elastic circuit breaker is open again! a probe failed or was slow");
+				open();
+			}
+			return;
+		}
+		if (state == State.OPEN) {
+			return;
+		}
+		byte outcome = (byte) ((success ? 0 : FAILED_CALL) | (slow ? SLOW_CALL : 0));
+		byte evicted = window[windowPosition];
+		if (windowCalls == window.length) {
+			failedCalls -= evicted & FAILED_CALL;
+			slowCalls -= (evicted & SLOW_CALL) >> 1;
+		} else {
+			windowCalls++;
+		}
+		window[windowPosition] = outcome;
+		windowPosition = (windowPosition + 1) % window.length;
+		failedCalls += outcome & FAILED_CALL;
+		slowCalls += (outcome & SLOW_CALL) >> 1;
+		if (windowCalls >= minimumCalls && (failedCalls * 100 >= failureRateThreshold * windowCalls
+				|| slowCalls * 100 >= slowCallRateThreshold * windowCalls)) {
+			logger.warn(String.format("elastic circuit breaker is open! failedCalls: %d, slowCalls: %d, calls: %d",
+					failedCalls, slowCalls, windowCalls));
+			open();
+		}
+	}
+
+	private static void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+	}
+
+	private static void close() {
+		state = State.CLOSED;
+		windowPosition = 0;
+		windowCalls = 0;
+		failedCalls = 0;
+		slowCalls = 0;
+		Arrays.fill(window, (byte) 0);
+	}
+
+}
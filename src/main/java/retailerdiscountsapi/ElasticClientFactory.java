@@ -0,0 +1,124 @@
+package retailerdiscountsapi;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This configuration is used to create the elastic search client from the elastic.client.* properties instead of the
+ * spring boot defaults, so the connection pool, the timeouts, the keep alive, the i/o threads, the response
+ * compression and the response buffers can be tuned. The client can use many nodes and can sniff the nodes of the
+ * cluster. The request options of the operations are set in {@link ElasticRequestOptions}.
+ *
+ * @author gizemabali
+ *
+ */
+@Configuration
+public class ElasticClientFactory {
+
+	private static final Logger logger = LogManager.getLogger(ElasticClientFactory.class);
+
+	private Sniffer sniffer;
+
+	/**
+	 * This method is used to bind the elastic.client.* properties.
+	 */
+	@Bean
+	@ConfigurationProperties("elastic.client")
+	public ElasticClientSettings elasticClientSettings() {
+		return new ElasticClientSettings();
+	}
+
+	/**
+	 * This method is used to create the elastic search client of the application and to start sniffing the nodes if it
+	 * is enabled.
+	 *
+	 * @param settings it is the settings of the client.
+	 * @return the client
+	 */
+	@Bean(destroyMethod = "")
+	public RestHighLevelClient restHighLevelClient(ElasticClientSettings settings) {
+		SniffOnFailureListener failureListener = settings.isSniffEnabled() ? new SniffOnFailureListener() : null;
+		RestHighLevelClient client = createClient(settings, failureListener);
+		if (failureListener != null) {
+			sniffer = Sniffer.builder(client.getLowLevelClient())
+					.setSniffIntervalMillis(settings.getSniffIntervalMillis())
+					.setSniffAfterFailureDelayMillis(settings.getSniffAfterFailureDelayMillis())
+					.setNodesSniffer(new ElasticsearchNodesSniffer(client.getLowLevelClient(),
+							ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme(settings)))
+					.build();
+			failureListener.setSniffer(sniffer);
+		}
+		return client;
+	}
+
+	/**
+	 * This method is used to stop sniffing the nodes. The client itself is closed by
+	 * {@link ElasticClientOperations#closeClient()}.
+	 */
+	@PreDestroy
+	public void closeSniffer() {
+		if (sniffer != null) {
+			sniffer.close();
+		}
+	}
+
+	/**
+	 * This method is used to create an elastic search client with the given settings and to configure the request
+	 * options of the operations.
+	 *
+	 * @param settings        it is the settings of the client.
+	 * @param failureListener it is the listener of the failed nodes or null.
+	 * @return the client
+	 */
+	public static RestHighLevelClient createClient(ElasticClientSettings settings,
+			RestClient.FailureListener failureListener) {
+		HttpHost[] hosts = settings.getNodes().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+		RestClientBuilder builder = RestClient.builder(hosts)
+				.setRequestConfigCallback(requestConfig -> requestConfig
+						.setConnectTimeout(settings.getConnectTimeoutMillis())
+						.setSocketTimeout(settings.getSocketTimeoutMillis())
+						.setConnectionRequestTimeout(settings.getConnectionRequestTimeoutMillis()))
+				.setHttpClientConfigCallback(httpClient -> {
+					httpClient.setMaxConnPerRoute(settings.getMaxConnectionsPerRoute())
+							.setMaxConnTotal(settings.getMaxConnectionsTotal());
+					if (settings.getKeepAliveMillis() >= 0) {
+						httpClient.setKeepAliveStrategy((response, context) -> settings.getKeepAliveMillis());
+					}
+					if (settings.getIoThreadCount() > 0) {
+						httpClient.setDefaultIOReactorConfig(
+								IOReactorConfig.custom().setIoThreadCount(settings.getIoThreadCount()).build());
+					}
+					return httpClient;
+				});
+		if (failureListener != null) {
+			builder.setFailureListener(failureListener);
+		}
+		ElasticRequestOptions.getInstance().configure(settings);
+		logger.info(String.format(
+				"elastic client is created! nodes: %s, maxConnectionsPerRoute: %d, maxConnectionsTotal: %d, "
+						+ "compressionEnabled: %b, sniffEnabled: %b",
+				settings.getNodes(), settings.getMaxConnectionsPerRoute(), settings.getMaxConnectionsTotal(),
+				settings.isCompressionEnabled(), settings.isSniffEnabled()));
+		return new RestHighLevelClient(builder);
+	}
+
+	private static ElasticsearchNodesSniffer.Scheme scheme(ElasticClientSettings settings) {
+		return settings.getNodes().stream().anyMatch(node -> node.startsWith("https"))
+				? ElasticsearchNodesSniffer.Scheme.HTTPS
+				: ElasticsearchNodesSniffer.Scheme.HTTP;
+	}
+
+}
@@ -1,36 +1,50 @@
 package retailerdiscountsapi;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Map.Entry;
-import java.util.TimeZone;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.BasketRequest;
+import retailerdiscountsapi.pojos.Product;
+import retailerdiscountsapi.pojos.UserInfo;
 
 /**
- * This is a component class which is used to perform elastic queries over given elastic indices.
+ * This is a component class which is used to price the baskets and to read and write the products and the users
+ * through the {@link ProductStore} and the {@link UserStore} of the application. The stores are the elastic search
+ * stores unless the {@value Constants#IN_MEMORY_PROFILE} profile is active.
  * 
  * @author gizemabali
  *
@@ -40,6 +54,51 @@ public class ElasticClientOperations {
 
 	private static final ExternalHashOperations hashOperations = ExternalHashOperations.getInstance();
 
+	private static final ProductCatalog productCatalog = ProductCatalog.getInstance();
+
+	private static final ProductCatalogCache productCatalogCache = ProductCatalogCache.getInstance();
+
+	private static final UserTierCache userTierCache = UserTierCache.getInstance();
+
+	private static final DiscountRuleEngine discountRuleEngine = DiscountRuleEngine.getInstance();
+
+	private static final DateOperations dateOperations = DateOperations.getInstance();
+
+	private static final BasketRequestAdapter basketRequestAdapter = BasketRequestAdapter.getInstance();
+
+	private static final UserInfoAdapter userInfoAdapter = UserInfoAdapter.getInstance();
+
+	private static final ApiMetrics metrics = ApiMetrics.getInstance();
+
+	private static final ElasticRequestLimiter limiter = ElasticRequestLimiter.getInstance();
+
+	private static final ElasticRequestOptions requestOptions = ElasticRequestOptions.getInstance();
+
+	/**
+	 * This is the in flight product searches of the baskets by their index and product names.
+	 */
+	private static final SingleFlight<Map.Entry<String, Set<String>>, ProductTable> productLookups =
+			new SingleFlight<Map.Entry<String, Set<String>>, ProductTable>("productLookups");
+
+	/**
+	 * This is the in flight user searches of the baskets by their usernames.
+	 */
+	private static final SingleFlight<Set<String>, Map<String, Long>> userLookups =
+			new SingleFlight<Set<String>, Map<String, Long>>("userLookups");
+
+	/**
+	 * This is the in flight product searches of the types by their index and type.
+	 */
+	private static final SingleFlight<Map.Entry<String, String>, JsonArray> typeRelatedProducts =
+			new SingleFlight<Map.Entry<String, String>, JsonArray>("typeRelatedProducts");
+
+	/**
+	 * This is the last product lists that are read by their "index/type" keys. They answer the product list requests
+	 * while the elastic search is not available.
+	 */
+	private static final Cache<String, JsonArray> lastKnownTypeRelatedProducts =
+			CacheBuilder.newBuilder().maximumSize(1000).build();
+
 	private static final Logger logger = LogManager.getLogger(ElasticClientOperations.class);
 
 	/**
@@ -48,6 +107,16 @@ public class ElasticClientOperations {
 	@Autowired
 	static RestHighLevelClient client;
 
+	/**
+	 * This is the store that the products are read from.
+	 */
+	private static volatile ProductStore productStore = ElasticProductStore.getInstance();
+
+	/**
+	 * This is the store that the users are read from and written to.
+	 */
+	private static volatile UserStore userStore = ElasticUserStore.getInstance();
+
 	/**
 	 * Singleton utility class instance.
 	 */
@@ -72,6 +141,18 @@ public class ElasticClientOperations {
 		client = restClient;
 	}
 
+	/**
+	 * This method is used to set the stores of the products and of the users.
+	 * 
+	 * @param products it is the product store of the active profile.
+	 * @param users    it is the user store of the active profile.
+	 */
+	@Autowired
+	public void setStores(ProductStore products, UserStore users) {
+		productStore = products;
+		userStore = users;
+	}
+
 	/**
 	 * This method is used to close elastic client gracefully
 	 * 
@@ -96,8 +177,14 @@ public class ElasticClientOperations {
 	}
 
 	/**
-	 * This method is used to calculate total price of the products in the basket. It searchs in the index and according
-	 * to the user information, discount operation is performed.
+	 * This method is used to calculate total price of the products in the basket. Products are looked up in the
+	 * {@link ProductCatalog} and the {@link ProductCatalogCache} first and only the missing ones are searched in the
+	 * index. If the search fails, e.g. while the {@link ElasticCircuitBreaker} is open, the basket is priced with the
+	 * last known good products and the response has the {@value Constants#STALE_WARNING} Warning header. If the basket
+	 * has a username, the user information is read from the {@value Constants#USERINFO} index through the
+	 * {@link UserTierCache} instead of the user details of the basket. According to the user
+	 * information, discount operation is performed with the rules of the {@link DiscountRuleEngine}. The default rules
+	 * are:
 	 * 
 	 * <ul>
 	 * <li>If the user is an employee of the store, he gets a 30% discount</li>
@@ -114,39 +201,374 @@ public class ElasticClientOperations {
 	 * @throws Exception
 	 */
 	public ResponseEntity<String> calculateBasket(JsonObject basketAndUserDetailsObj, String index) throws Exception {
-		JsonObject userDetailsObj = basketAndUserDetailsObj.get(Constants.USER_DETAILS).getAsJsonObject();
-		JsonArray basketDetailsList = basketAndUserDetailsObj.get(Constants.BASKET_DETAILS).getAsJsonArray();
-
-		HashMap<String, Integer> productAmounts = new HashMap<String, Integer>();
-		BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
-		for (JsonElement basketElement : basketDetailsList) {
-			JsonObject basketObject = basketElement.getAsJsonObject();
-			boolQuery.should(QueryBuilders.termQuery(Constants.PRODUCT_NAME,
-					basketObject.get(Constants.PRODUCT_NAME).getAsString()));
-			productAmounts.put(basketObject.get(Constants.PRODUCT_NAME).getAsString(),
-					basketObject.get(Constants.AMOUNT).getAsInt());
-		}
-		HashMap<String, Long> groceriesProducts = new HashMap<String, Long>();
-		HashMap<String, Long> otherProducts = new HashMap<String, Long>();
-		getProductDetails(index, boolQuery, groceriesProducts, otherProducts);
-
-		long totalGroceriesProductsPrice = (long) 0;
-		long totalOtherProductsPrice = (long) 0;
-		for (Entry<String, Integer> productEntry : productAmounts.entrySet()) {
-			if (groceriesProducts.containsKey(productEntry.getKey())) {
-				totalGroceriesProductsPrice += productEntry.getValue() * groceriesProducts.get(productEntry.getKey());
+		return priceBasket(basketRequestAdapter.fromJsonTree(basketAndUserDetailsObj), index);
+	}
+
+	/**
+	 * This method is used to calculate total price of the products of the given basket with the same rules as
+	 * {@link #calculateBasket(JsonObject, String)}.
+	 * 
+	 * @param basket it is the basket that is read by the {@link BasketRequestAdapter}
+	 * @param index  it is the name of the index that will be searched
+	 * @return a Response Entity object to the user.
+	 * @throws Exception
+	 */
+	public ResponseEntity<String> calculateBasket(BasketRequest basket, String index) throws Exception {
+		return priceBasket(basket, index);
+	}
+
+	private ResponseEntity<String> priceBasket(BasketRequest basket, String index) throws Exception {
+		long startTime = System.nanoTime();
+		Map<String, Long> userTiers = resolveUserTiers(usernames(Collections.singletonList(basket)));
+		ProductTable products = new ProductTable(basket.getLineCount());
+		List<String> missingProducts = fillCachedProductDetails(index, Arrays.asList(basket.getProductNames()),
+				products);
+		boolean stale = false;
+		if (!missingProducts.isEmpty()) {
+			Set<String> uniqueProductNames = new HashSet<String>(missingProducts);
+			try {
+				ProductTable foundProducts = productLookups.execute(Map.entry(index, uniqueProductNames), () -> {
+					ProductTable found = new ProductTable(uniqueProductNames.size());
+					productStore.findProducts(index, uniqueProductNames, cachingConsumer(index, found::put));
+					return found;
+				});
+				foundProducts.forEach(products::putSlot);
+			} catch (Exception e) {
+				if (!fillStaleProductDetails(index, uniqueProductNames, products, e)) {
+					throw e;
+				}
+				stale = true;
+			}
+		}
+		metrics.recordLookup(startTime);
+		return markStale(priceBasket(basket, products, userTiers), stale);
+	}
+
+	/**
+	 * This method is the non-blocking version of {@link #calculateBasket(JsonObject, String)}.
+	 * 
+	 * @param basketAndUserDetailsObj it is the object that has basket product information and user information
+	 * @param index                   it is the name of the index that will be searched
+	 * @return a future of the Response Entity object to the user.
+	 */
+	public CompletableFuture<ResponseEntity<String>> calculateBasketAsync(JsonObject basketAndUserDetailsObj,
+			String index) {
+		return calculateBasketAsync(basketRequestAdapter.fromJsonTree(basketAndUserDetailsObj), index);
+	}
+
+	/**
+	 * This method is the non-blocking version of {@link #calculateBasket(BasketRequest, String)}. Products that are
+	 * missing from the {@link ProductCatalogCache} and the user that is missing from the {@link UserTierCache} are
+	 * searched asynchronously at the same time and the basket is priced in the completion callback on a thread of the
+	 * {@link PricingExecution}, so no thread waits for the elastic search and no elastic client i/o thread prices it.
+	 * 
+	 * @param basket it is the basket that is read by the {@link BasketRequestAdapter}
+	 * @param index  it is the name of the index that will be searched
+	 * @return a future of the Response Entity object to the user.
+	 */
+	public CompletableFuture<ResponseEntity<String>> calculateBasketAsync(BasketRequest basket, String index) {
+		long startTime = System.nanoTime();
+		ProductTable products = new ProductTable(basket.getLineCount());
+		List<String> missingProducts = fillCachedProductDetails(index, Arrays.asList(basket.getProductNames()),
+				products);
+		CompletableFuture<Map<String, Long>> userTiers =
+				resolveUserTiersAsync(usernames(Collections.singletonList(basket)));
+		return combineLookups(fillProductDetailsAsync(index, missingProducts, products), userTiers, (stale, tiers) -> {
+			metrics.recordLookup(startTime);
+			return markStale(priceBasket(basket, products, tiers), stale);
+		});
+	}
+
+	/**
+	 * This method is used to combine the results of the given lookups with the given function. If a lookup is not
+	 * completed yet, the function runs on a thread of the {@link PricingExecution}, because the lookup may be completed
+	 * on an elastic client i/o thread; otherwise it runs on the calling thread.
+	 */
+	private static <T> CompletableFuture<T> combineLookups(CompletableFuture<Boolean> productLookup,
+			CompletableFuture<Map<String, Long>> userLookup, BiFunction<Boolean, Map<String, Long>, T> function) {
+		if (productLookup.isDone() && userLookup.isDone()) {
+			return productLookup.thenCombine(userLookup, function);
+		}
+		return productLookup.thenCombineAsync(userLookup, function, PricingExecution.getInstance().getExecutor());
+	}
+
+	/**
+	 * This method is used to calculate total prices of many baskets at once with
+	 * {@link #calculateBasketsAsync(List, String)}.
+	 * 
+	 * @param basketAndUserDetailsList it is the list of objects that have basket product information and user
+	 *                                 information
+	 * @param index                    it is the name of the index that will be searched
+	 * @return a future of the Response Entity object which has one result per basket in the given order.
+	 */
+	public CompletableFuture<ResponseEntity<String>> calculateBasketsAsync(JsonArray basketAndUserDetailsList,
+			String index) {
+		List<BasketRequest> baskets = new ArrayList<BasketRequest>(basketAndUserDetailsList.size());
+		for (JsonElement basketAndUserDetailsElement : basketAndUserDetailsList) {
+			try {
+				baskets.add(basketRequestAdapter.fromJsonTree(basketAndUserDetailsElement));
+			} catch (Exception e) {
+				logger.error(Constants.INVALID_BASKET, e);
+				baskets.add(null);
+			}
+		}
+		return calculateBasketsAsync(baskets, index);
+	}
+
+	/**
+	 * This method is used to calculate total prices of many baskets at once. The product names of all baskets are
+	 * resolved together, the products that are missing from the {@link ProductCatalogCache} are searched with one
+	 * asynchronous lookup, the users that are missing from the {@link UserTierCache} are searched with another one at
+	 * the same time, and every basket is priced against that shared lookup with the same rules as
+	 * {@link #calculateBasket(JsonObject, String)}. A basket that can not be priced gets an error result without
+	 * affecting the other baskets.
+	 * 
+	 * @param baskets it is the list of baskets that are read by the {@link BasketRequestAdapter}, a null basket gets the
+	 *                {@value Constants#INVALID_BASKET} error
+	 * @param index   it is the name of the index that will be searched
+	 * @return a future of the Response Entity object which has one result per basket in the given order.
+	 */
+	public CompletableFuture<ResponseEntity<String>> calculateBasketsAsync(List<BasketRequest> baskets, String index) {
+		long startTime = System.nanoTime();
+		Set<String> productNames = new HashSet<String>();
+		for (BasketRequest basket : baskets) {
+			if (basket != null) {
+				Collections.addAll(productNames, basket.getProductNames());
+			}
+		}
+		ProductTable products = new ProductTable(productNames.size());
+		List<String> missingProducts = fillCachedProductDetails(index, productNames, products);
+		CompletableFuture<Map<String, Long>> userTiers = resolveUserTiersAsync(usernames(baskets));
+		return combineLookups(fillProductDetailsAsync(index, missingProducts, products), userTiers, (stale, tiers) -> {
+			metrics.recordLookup(startTime);
+			return markStale(ResponseEntity.status(200).body(priceBaskets(baskets, products, tiers).toString()),
+					stale);
+		});
+	}
+
+	/**
+	 * This method is used to price the given baskets at once with a {@link PricingKernel}. The lines of the baskets
+	 * that can be priced are added to the kernel, the subtotals of all baskets are calculated with one pass and then
+	 * the discounts are applied to every basket.
+	 * 
+	 * @return the list of results, which has one result per basket in the given order.
+	 */
+	private JsonArray priceBaskets(List<BasketRequest> baskets, ProductTable products, Map<String, Long> userTiers) {
+		long startTime = System.nanoTime();
+		int lineCount = 0;
+		for (BasketRequest basket : baskets) {
+			if (basket != null) {
+				lineCount += basket.getLineCount();
+			}
+		}
+		PricingKernel kernel = new PricingKernel(lineCount, baskets.size());
+		String[] errors = new String[baskets.size()];
+		for (int i = 0; i < baskets.size(); i++) {
+			BasketRequest basket = baskets.get(i);
+			if (basket == null) {
+				errors[i] = Constants.INVALID_BASKET;
 			} else {
-				totalOtherProductsPrice += productEntry.getValue() * otherProducts.get(productEntry.getKey());
+				metrics.recordBasketLines(basket.getLineCount());
+				try {
+					checkProductsFound(basket, products);
+					checkUserFound(basket, userTiers);
+					addLines(kernel, basket, products);
+				} catch (Exception e) {
+					logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
+					errors[i] = errorMessage(e);
+				}
 			}
+			// a basket that can not be priced is ended without lines, so the kernel basket index is the list index
+			kernel.endBasket();
 		}
-		try {
-			totalOtherProductsPrice = calculateDiscountedPriceOfProducts(userDetailsObj, totalOtherProductsPrice);
-			long totalProductPrice = (long) 0;
-			totalProductPrice += totalGroceriesProductsPrice;
-			totalProductPrice += totalOtherProductsPrice;
+		kernel.price();
+		JsonArray responseList = new JsonArray();
+		for (int i = 0; i < baskets.size(); i++) {
+			JsonObject responseObj = new JsonObject();
+			if (errors[i] == null) {
+				try {
+					responseObj.addProperty(Constants.TOTAL_PRICE,
+							calculateTotalPrice(baskets.get(i), kernel, i, userTiers));
+				} catch (Exception e) {
+					logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
+					errors[i] = errorMessage(e);
+				}
+			}
+			if (errors[i] != null) {
+				responseObj.addProperty(Constants.ERROR, errors[i]);
+			}
+			responseList.add(responseObj);
+		}
+		metrics.recordPrice(startTime);
+		return responseList;
+	}
+
+	private static String errorMessage(Exception e) {
+		return e.getMessage() != null ? e.getMessage() : Constants.UNEXPECTED_ERROR_OCCUR;
+	}
+
+	/**
+	 * @return the usernames of the given baskets that have a username.
+	 */
+	private static Set<String> usernames(Collection<BasketRequest> baskets) {
+		Set<String> usernames = new HashSet<String>();
+		for (BasketRequest basket : baskets) {
+			if (basket != null && basket.getUsername() != null) {
+				usernames.add(basket.getUsername());
+			}
+		}
+		return usernames;
+	}
+
+	/**
+	 * This method is used to get the tiers of the given users from the {@link UserTierCache} and to search the ones
+	 * that are not cached. Concurrent searches of the same usernames share one search.
+	 * 
+	 * @return the tiers of the known users by their usernames.
+	 */
+	private Map<String, Long> resolveUserTiers(Set<String> usernames) throws Exception {
+		HashMap<String, Long> userTiers = new HashMap<String, Long>();
+		if (usernames.isEmpty()) {
+			return userTiers;
+		}
+		ArrayList<String> missingUsers = new ArrayList<String>();
+		userTierCache.lookup(usernames, userTiers, missingUsers);
+		if (!missingUsers.isEmpty()) {
+			Set<String> uniqueUsernames = new HashSet<String>(missingUsers);
+			userTiers.putAll(userLookups.execute(uniqueUsernames, () -> {
+				Map<String, Long> found = userStore.findUserTiers(Constants.USERINFO, uniqueUsernames);
+				cacheUserTiers(uniqueUsernames, found);
+				return found;
+			}));
+		}
+		return userTiers;
+	}
+
+	/**
+	 * This method is the non-blocking version of {@link #resolveUserTiers(Set)}.
+	 * 
+	 * @return a future of the tiers of the known users by their usernames.
+	 */
+	private CompletableFuture<Map<String, Long>> resolveUserTiersAsync(Set<String> usernames) {
+		HashMap<String, Long> userTiers = new HashMap<String, Long>();
+		ArrayList<String> missingUsers = new ArrayList<String>();
+		userTierCache.lookup(usernames, userTiers, missingUsers);
+		if (missingUsers.isEmpty()) {
+			return CompletableFuture.completedFuture(userTiers);
+		}
+		Set<String> uniqueUsernames = new HashSet<String>(missingUsers);
+		return userLookups.executeAsync(uniqueUsernames,
+				() -> userStore.findUserTiersAsync(Constants.USERINFO, uniqueUsernames).thenApply(found -> {
+					cacheUserTiers(uniqueUsernames, found);
+					return found;
+				})).thenApply(foundUsers -> {
+			userTiers.putAll(foundUsers);
+			return userTiers;
+		});
+	}
+
+	/**
+	 * This method is used to put the tiers of the given found users into the {@link UserTierCache} and to remember the
+	 * given usernames that are not found.
+	 */
+	private void cacheUserTiers(Set<String> usernames, Map<String, Long> foundUsers) {
+		for (String username : usernames) {
+			Long userTier = foundUsers.get(username);
+			if (userTier != null) {
+				userTierCache.put(username, userTier);
+			} else {
+				userTierCache.putUnknown(username);
+			}
+		}
+	}
 
-			long discount = (totalProductPrice - (totalProductPrice % 100)) / 100;
-			totalProductPrice = totalProductPrice - (discount * 5);
+	/**
+	 * This method is used to fill the given table with the products of the {@link ProductCatalog} and then with the
+	 * products of the {@link ProductCatalogCache}.
+	 * 
+	 * @return the names of the products that are neither in the catalog nor cached.
+	 */
+	private List<String> fillCachedProductDetails(String index, Collection<String> productNames,
+			ProductTable products) {
+		ArrayList<String> missingProducts = new ArrayList<String>();
+		if (productCatalog.isLoaded(index)) {
+			ArrayList<String> uncataloguedProducts = new ArrayList<String>();
+			productCatalog.lookup(index, productNames, products, uncataloguedProducts);
+			productCatalogCache.lookup(index, uncataloguedProducts, products, missingProducts);
+		} else {
+			productCatalogCache.lookup(index, productNames, products, missingProducts);
+		}
+		return missingProducts;
+	}
+
+	/**
+	 * This method is used to search the given products asynchronously and to put the found ones into the given table.
+	 * Concurrent searches of the same product names share one search. If the search fails, the last known good
+	 * products are put into the table instead.
+	 * 
+	 * @return a future that is completed with true if the products are the last known good products.
+	 */
+	private CompletableFuture<Boolean> fillProductDetailsAsync(String index, List<String> missingProducts,
+			ProductTable products) {
+		if (missingProducts.isEmpty()) {
+			return CompletableFuture.completedFuture(false);
+		}
+		Set<String> uniqueProductNames = new HashSet<String>(missingProducts);
+		return productLookups.executeAsync(Map.entry(index, uniqueProductNames), () -> {
+			ProductTable found = new ProductTable(uniqueProductNames.size());
+			return productStore.findProductsAsync(index, uniqueProductNames, cachingConsumer(index, found::put))
+					.thenApply(productCount -> found);
+		}).handle((foundProducts, e) -> {
+			if (e == null) {
+				foundProducts.forEach(products::putSlot);
+				return false;
+			}
+			if (!fillStaleProductDetails(index, uniqueProductNames, products, e)) {
+				throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * This method is used to put the last known good products of the {@link ProductCatalogCache} into the given table
+	 * after the search of the given products failed.
+	 * 
+	 * @return true if all given products are known.
+	 */
+	private boolean fillStaleProductDetails(String index, Collection<String> productNames, ProductTable products,
+			Throwable e) {
+		ArrayList<String> unknownProducts = new ArrayList<String>();
+		productCatalogCache.lookupStale(index, productNames, products, unknownProducts);
+		if (!unknownProducts.isEmpty()) {
+			return false;
+		}
+		logger.warn(String.format("%s productCount: %d, error: %s", Constants.COULD_NOT_SEARCH_PRODUCTS_ANSWERED_STALE,
+				productNames.size(), e.getMessage()));
+		return true;
+	}
+
+	/**
+	 * This method is used to add the {@value Constants#STALE_WARNING} Warning header to the given response if it is
+	 * answered from the last known good products.
+	 */
+	private static ResponseEntity<String> markStale(ResponseEntity<String> response, boolean stale) {
+		if (!stale) {
+			return response;
+		}
+		return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders())
+				.header(HttpHeaders.WARNING, Constants.STALE_WARNING).body(response.getBody());
+	}
+
+	private ResponseEntity<String> priceBasket(BasketRequest basket, ProductTable products,
+			Map<String, Long> userTiers) {
+		long startTime = System.nanoTime();
+		metrics.recordBasketLines(basket.getLineCount());
+		checkProductsFound(basket, products);
+		checkUserFound(basket, userTiers);
+		try {
+			long totalProductPrice = calculateTotalPrice(basket, products, userTiers);
+			metrics.recordPrice(startTime);
 			JsonObject responseObj = new JsonObject();
 			responseObj.addProperty(Constants.TOTAL_PRICE, totalProductPrice);
 			return ResponseEntity.status(200).body(responseObj.toString());
@@ -159,7 +581,88 @@ public class ElasticClientOperations {
 	}
 
 	/**
-	 * This method is used to calculate discounted price of the products except from grocery prodcuts.
+	 * This method is used to calculate the total price of the given basket products after the discounts.
+	 * 
+	 * @return the total price
+	 * @throws ParseException
+	 */
+	private long calculateTotalPrice(BasketRequest basket, ProductTable products, Map<String, Long> userTiers)
+			throws ParseException {
+		PricingKernel kernel = new PricingKernel(basket.getLineCount(), 1);
+		addLines(kernel, basket, products);
+		int basketIndex = kernel.endBasket();
+		kernel.price();
+		return calculateTotalPrice(basket, kernel, basketIndex, userTiers);
+	}
+
+	/**
+	 * This method is used to add the lines of the given basket to the current basket of the given kernel.
+	 */
+	private static void addLines(PricingKernel kernel, BasketRequest basket, ProductTable products) {
+		String[] productNames = basket.getProductNames();
+		int[] amounts = basket.getAmounts();
+		for (int i = 0; i < productNames.length; i++) {
+			kernel.addLine(amounts[i], products.get(productNames[i]));
+		}
+	}
+
+	/**
+	 * This method is used to calculate the total price of the given basket after the discounts from the subtotals that
+	 * are calculated by the given kernel.
+	 * 
+	 * @param basketIndex it is the index of the basket in the kernel.
+	 * @return the total price
+	 * @throws ParseException
+	 * @throws ArithmeticException if the total price overflows
+	 */
+	private long calculateTotalPrice(BasketRequest basket, PricingKernel kernel, int basketIndex,
+			Map<String, Long> userTiers) throws ParseException {
+		long totalGroceriesProductsPrice = kernel.getGroceriesSubtotal(basketIndex);
+		long totalOtherProductsPrice = kernel.getOtherSubtotal(basketIndex);
+		DiscountPlan plan = discountRuleEngine.getPlan();
+		if (basket.getUsername() != null) {
+			totalOtherProductsPrice = calculateDiscountedPriceOfProducts(plan, userTiers.get(basket.getUsername()),
+					totalOtherProductsPrice);
+		} else {
+			totalOtherProductsPrice = calculateDiscountedPriceOfProducts(plan, basket.getUserInfo(),
+					totalOtherProductsPrice);
+		}
+		long totalProductPrice = totalGroceriesProductsPrice + totalOtherProductsPrice;
+		// the sum overflows only if both prices have the same sign and the sum has the other sign
+		if (((totalGroceriesProductsPrice ^ totalProductPrice) & (totalOtherProductsPrice ^ totalProductPrice)) < 0) {
+			throw new ArithmeticException(Constants.BASKET_PRICE_OVERFLOW);
+		}
+		return plan.applyBillDiscount(totalProductPrice);
+	}
+
+	/**
+	 * This method is used to check that every product of the basket is found in the product index.
+	 * 
+	 * @throws IllegalArgumentException if a product is not found
+	 */
+	private void checkProductsFound(BasketRequest basket, ProductTable products) {
+		for (String productName : basket.getProductNames()) {
+			if (!products.contains(productName)) {
+				throw new IllegalArgumentException(String.format(Constants.PRODUCT_NOT_FOUND, productName));
+			}
+		}
+	}
+
+	/**
+	 * This method is used to check that the user of the basket is found in the userinfo index if the basket has a
+	 * username.
+	 * 
+	 * @throws IllegalArgumentException if the user is not found
+	 */
+	private void checkUserFound(BasketRequest basket, Map<String, Long> userTiers) {
+		if (basket.getUsername() != null && !userTiers.containsKey(basket.getUsername())) {
+			throw new IllegalArgumentException(String.format(Constants.USER_NOT_FOUND, basket.getUsername()));
+		}
+	}
+
+	/**
+	 * This method is used to calculate discounted price of the products except from grocery prodcuts with the current
+	 * rules of the {@link DiscountRuleEngine}.
 	 * 
 	 * @param userDetailsObj          it is the user information object.
 	 * @param totalOtherProductsPrice it is the total price of the products except from groceries products
@@ -168,30 +671,40 @@ public class ElasticClientOperations {
 	 */
 	public long calculateDiscountedPriceOfProducts(JsonObject userDetailsObj, long totalOtherProductsPrice)
 			throws ParseException {
-		if (userDetailsObj.get(Constants.EMPLOYEE).getAsBoolean()) {
-			totalOtherProductsPrice = (totalOtherProductsPrice * 70) / 100;
-		} else if (userDetailsObj.get(Constants.AFFILIATE).getAsBoolean()) {
-			totalOtherProductsPrice = (totalOtherProductsPrice * 90) / 100;
-		} else if (userDetailsObj.get(Constants.CUSTOMER).getAsBoolean()) {
-			String accountCreationDate = userDetailsObj.get(Constants.ACCOUNT_CREATION_DATE).getAsString();
-			long calenderTodayLong = getCalendar().getTimeInMillis();
-			SimpleDateFormat sdf = new SimpleDateFormat(Constants.YYYY_MM_DD_HH_MM_SS);
-			sdf.setTimeZone(TimeZone.getTimeZone(Constants.GMT_3));
-			Date date;
-			date = sdf.parse(accountCreationDate);
-			Calendar consentDateCalendar = getCalendar();
-			consentDateCalendar.setTime(date);
-			long consentDateCalendarLong = consentDateCalendar.getTimeInMillis();
-			if (calenderTodayLong - consentDateCalendarLong > 63113904000L) {
-				totalOtherProductsPrice = (totalOtherProductsPrice * 95) / 100;
+		return calculateDiscountedPriceOfProducts(discountRuleEngine.getPlan(),
+				userInfoAdapter.fromJsonTree(userDetailsObj), totalOtherProductsPrice);
+	}
+
+	private long calculateDiscountedPriceOfProducts(DiscountPlan plan, UserInfo userInfo,
+			long totalOtherProductsPrice) throws ParseException {
+		int userFlags = DiscountPlan.userFlags(userInfo.isEmployee(), userInfo.isAffiliate(), userInfo.isCustomer());
+		long accountAgeMillis = 0;
+		if (plan.requiresAccountAge(userFlags)) {
+			String accountCreationDate = userInfo.getAccountCreationDate();
+			if (accountCreationDate == null) {
+				throw new IllegalArgumentException(Constants.ACCOUNT_CREATION_DATE_REQUIRED);
 			}
+			accountAgeMillis = dateOperations.currentTimeMillis() - dateOperations.parseDateMillis(accountCreationDate);
 		}
-		return totalOtherProductsPrice;
+		return plan.applyPercentageDiscount(plan.findRule(userFlags, accountAgeMillis), totalOtherProductsPrice);
+	}
+
+	private long calculateDiscountedPriceOfProducts(DiscountPlan plan, long userTier, long totalOtherProductsPrice) {
+		int userFlags = UserTierCache.userFlags(userTier);
+		long accountAgeMillis = 0;
+		if (plan.requiresAccountAge(userFlags)) {
+			if (!UserTierCache.hasAccountCreation(userTier)) {
+				throw new IllegalArgumentException(Constants.ACCOUNT_CREATION_DATE_REQUIRED);
+			}
+			accountAgeMillis = dateOperations.currentTimeMillis() - UserTierCache.accountCreationMillis(userTier);
+		}
+		return plan.applyPercentageDiscount(plan.findRule(userFlags, accountAgeMillis), totalOtherProductsPrice);
 	}
 
 	/**
 	 * This method is used to get product details from the given index using the given bool querty, then it fills the
-	 * given groceriesProducts and otherProducts maps.
+	 * given groceriesProducts and otherProducts maps. The query is always searched in the elastic search, see
+	 * {@link ElasticProductStore}. Found products are also put into the {@link ProductCatalogCache}.
 	 * 
 	 * @param index             it is the name of the index.
 	 * @param boolQuery         it is the bool query that will be used to search documents.
@@ -202,51 +715,89 @@ public class ElasticClientOperations {
 	 */
 	public void getProductDetails(String index, BoolQueryBuilder boolQuery, HashMap<String, Long> groceriesProducts,
 			HashMap<String, Long> otherProducts) throws Exception {
-		int size = 100;
-		int from = 0;
-		boolean getNextChunk = true;
-		while (getNextChunk) {
-			SearchRequest searchRequest = new SearchRequest(index);
-			SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-			searchSourceBuilder.query(boolQuery).from(from).size(size);
-			searchRequest.source(searchSourceBuilder);
-			SearchResponse searchResponse = null;
-			try {
-				searchResponse = client.search(searchRequest, RequestOptions.DEFAULT);
-				SearchHit[] hits = searchResponse.getHits().getHits();
-				for (SearchHit hit : hits) {
-					JsonObject hitObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
-					String type = hitObj.get(Constants.TYPE).getAsString();
-					if (type.equals(Constants.GROCERIES)) {
-						groceriesProducts.put(hitObj.get(Constants.PRODUCT_NAME).getAsString(),
-								hitObj.get(Constants.PRICE).getAsLong());
-					} else {
-						otherProducts.put(hitObj.get(Constants.PRODUCT_NAME).getAsString(),
-								hitObj.get(Constants.PRICE).getAsLong());
-					}
-				}
-				if (hits.length < size) {
-					getNextChunk = false;
-				}
-			} catch (Exception e) {
-				logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
-				throw e;
-			}
-			from += size;
+		ElasticProductStore.getInstance().findProducts(index, boolQuery,
+				cachingConsumer(index, product -> putProduct(product, groceriesProducts, otherProducts)));
+	}
+
+	/**
+	 * This method is used to get details of the given products from the given index, then it fills the given
+	 * groceriesProducts and otherProducts maps. Product names are deduplicated and found with one lookup of the
+	 * {@link ProductStore}, which is one terms filter in the elastic search. Found products are also put into the
+	 * {@link ProductCatalogCache}.
+	 * 
+	 * @param index             it is the name of the index.
+	 * @param productNames      it is the names of the products that will be searched.
+	 * @param groceriesProducts it is the map object that will be filled with only groceries products
+	 * @param otherProducts     it is the map object that will be filled with only products except from groceries
+	 *                          products
+	 * @throws Exception
+	 */
+	public void getProductDetails(String index, Collection<String> productNames,
+			HashMap<String, Long> groceriesProducts, HashMap<String, Long> otherProducts) throws Exception {
+		Set<String> uniqueProductNames = new HashSet<String>(productNames);
+		if (uniqueProductNames.isEmpty()) {
+			return;
+		}
+		productStore.findProducts(index, uniqueProductNames,
+				cachingConsumer(index, product -> putProduct(product, groceriesProducts, otherProducts)));
+	}
+
+	/**
+	 * This method is the non-blocking version of {@link #getProductDetails(String, Collection, HashMap, HashMap)}.
+	 * The given maps are filled on the elastic client thread, if the products are searched in the elastic search,
+	 * before the returned future is completed.
+	 * 
+	 * @param index             it is the name of the index.
+	 * @param productNames      it is the names of the products that will be searched.
+	 * @param groceriesProducts it is the map object that will be filled with only groceries products
+	 * @param otherProducts     it is the map object that will be filled with only products except from groceries
+	 *                          products
+	 * @return a future that is completed with the number of found products.
+	 */
+	public CompletableFuture<Long> getProductDetailsAsync(String index, Collection<String> productNames,
+			HashMap<String, Long> groceriesProducts, HashMap<String, Long> otherProducts) {
+		Set<String> uniqueProductNames = new HashSet<String>(productNames);
+		if (uniqueProductNames.isEmpty()) {
+			return CompletableFuture.completedFuture((long) 0);
+		}
+		return productStore.findProductsAsync(index, uniqueProductNames,
+				cachingConsumer(index, product -> putProduct(product, groceriesProducts, otherProducts)));
+	}
+
+	private void putProduct(Product product, HashMap<String, Long> groceriesProducts,
+			HashMap<String, Long> otherProducts) {
+		if (product.getType().equals(Constants.GROCERIES)) {
+			groceriesProducts.put(product.getProductName(), product.getPrice());
+		} else {
+			otherProducts.put(product.getProductName(), product.getPrice());
 		}
 	}
 
+	/**
+	 * This method is used to create a product consumer that puts the products into the {@link ProductCatalogCache} and
+	 * passes them to the given consumer.
+	 */
+	private static Consumer<Product> cachingConsumer(String index, Consumer<Product> productConsumer) {
+		return product -> {
+			productConsumer.accept(product);
+			productCatalogCache.put(index, product);
+		};
+	}
+
 	/**
 	 * This method is used to create Calendar object of the current date.
 	 * 
 	 * @return a Calendar object
 	 */
 	public Calendar getCalendar() {
-		return Calendar.getInstance(TimeZone.getTimeZone(Constants.GMT_3));
+		return dateOperations.getCalendar();
 	}
 
 	/**
-	 * This method is used to get product list of the given type from the given index.
+	 * This method is used to get product list of the given type from the given index. Concurrent calls for the same
+	 * type and index share one search and get the same product list, so the returned list must not be changed. The
+	 * list is kept as the last known product list of the type, see
+	 * {@link #getStaleTypeRelatedProducts(String, String)}.
 	 * 
 	 * @param type  it is the type of the product.
 	 * @param index is is the name of the index.
@@ -254,46 +805,56 @@ public class ElasticClientOperations {
 	 * @throws Exception
 	 */
 	public Object getTypeRelatedProducts(String type, String index) throws Exception {
-		logger.debug(String.format("getting type related documents type: \"%s\", index: \"%s\"", type, index));
-		JsonArray productDetails = new JsonArray();
-		try {
-			int size = 100;
-			int from = 0;
-			boolean getNextChunk = true;
-			while (getNextChunk) {
-				SearchSourceBuilder builder = new SearchSourceBuilder()
-						.query(QueryBuilders.termQuery(Constants.TYPE, type)).from(from).size(size);
-				SearchRequest searchRequest = new SearchRequest().indices(index).source(builder);
-				SearchResponse response = null;
-				try {
-					response = client.search(searchRequest, RequestOptions.DEFAULT);
-					SearchHit[] hits = response.getHits().getHits();
-					for (SearchHit hit : hits) {
-						JsonObject hitObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
-
-						productDetails.add(hitObj);
-					}
-					if (hits.length < size) {
-						getNextChunk = false;
-					}
-				} catch (Exception e) {
-					logger.error(Constants.COULD_NOT_SEARCH_IN_ELASTIC, e);
-					throw e;
-				}
-				from += size;
-			}
+		return typeRelatedProducts.execute(Map.entry(index, type), () -> searchTypeRelatedProducts(type, index));
+	}
 
-		} catch (Exception e) {
-			logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
-			throw e;
-		}
-		logger.info(String.format("got question details for category %s! questionDetails %s", type,
-				productDetails.toString()));
+	/**
+	 * This method is used to get the last product list of the given type that is read from the given index. It is used
+	 * when the product list can not be read, e.g. while the {@link ElasticCircuitBreaker} is open.
+	 * 
+	 * @param type  it is the type of the product.
+	 * @param index is is the name of the index.
+	 * @return the last known product list, which must not be changed, or null if it has not been read
+	 */
+	public JsonArray getStaleTypeRelatedProducts(String type, String index) {
+		return lastKnownTypeRelatedProducts.getIfPresent(index + '/' + type);
+	}
+
+	private JsonArray searchTypeRelatedProducts(String type, String index) throws Exception {
+		logger.debug(String.format("getting type related documents type: \"%s\", index: \"%s\"", type, index));
+		JsonArray productDetails = productStore.findTypeRelatedProducts(type, index);
+		logger.info(String.format("got product details for category %s! productCount: %d", type,
+				productDetails.size()));
+		lastKnownTypeRelatedProducts.put(index + '/' + type, productDetails);
 		return productDetails;
 	}
 
 	/**
-	 * This methos is used to index user information to the given index. Password is hashed and then saved to the index.
+	 * This method is used to write the product list of the given type from the given index to the given output stream
+	 * as a json array. The products are written and flushed while they are read from the {@link ProductStore}, e.g.
+	 * every page of hits as soon as it comes back from the elastic search, so the whole product list is never kept in
+	 * memory.
+	 * 
+	 * @param type         it is the type of the product.
+	 * @param index        is is the name of the index.
+	 * @param outputStream it is the stream that the json array will be written to.
+	 * @return the number of written products
+	 * @throws Exception
+	 */
+	public long streamTypeRelatedProducts(String type, String index, OutputStream outputStream) throws Exception {
+		logger.debug(String.format("streaming type related documents type: \"%s\", index: \"%s\"", type, index));
+		JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		writer.beginArray();
+		long productCount = productStore.writeTypeRelatedProducts(type, index, writer);
+		writer.endArray();
+		writer.flush();
+		logger.info(String.format("streamed product details for category %s! productCount: %d", type, productCount));
+		return productCount;
+	}
+
+	/**
+	 * This methos is used to index user information to the given index of the {@link UserStore}. Password is hashed and
+	 * then saved to the index.
 	 * 
 	 * @param userDetailsObj it is the user information object.
 	 * @param index          it is the name of the index.
@@ -304,7 +865,10 @@ public class ElasticClientOperations {
 		userDetailsObj.addProperty(Constants.ACCOUNT_CREATION_DATE, getDateOperations().getCurrentDate());
 		String password = userDetailsObj.get(Constants.PASSWORD).getAsString();
 		userDetailsObj.addProperty(Constants.PASSWORD, hashOperations.hashText(password));
-		String docId = indexDocument(index, userDetailsObj, null);
+		String docId = userStore.indexUser(index, userDetailsObj);
+		if (docId != null && userDetailsObj.has(Constants.USERNAME)) {
+			userTierCache.invalidate(userDetailsObj.get(Constants.USERNAME).getAsString());
+		}
 		JsonObject responseObj = new JsonObject();
 		int statusCode = 200;
 		if (docId != null) {
@@ -335,7 +899,16 @@ public class ElasticClientOperations {
 			insertRequest.id(id);
 		}
 		insertRequest.source(documentObj.toString(), XContentType.JSON);
-		return client.index(insertRequest, RequestOptions.DEFAULT).getId();
+		long startTime = System.nanoTime();
+		boolean success = false;
+		try {
+			String documentId = limiter.execute(() -> client.index(insertRequest, requestOptions.getIndexOptions()))
+					.getId();
+			success = true;
+			return documentId;
+		} finally {
+			metrics.recordElasticRequest(ApiMetrics.INDEX, index, startTime, success);
+		}
 	}
 
 }
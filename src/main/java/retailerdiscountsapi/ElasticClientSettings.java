@@ -0,0 +1,185 @@
+package retailerdiscountsapi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is used to keep the settings of the elastic search client. The settings are bound from the
+ * elastic.client.* properties by the {@link ElasticClientFactory}; the defaults are the defaults of the elastic search
+ * rest client.
+ *
+ * @author gizemabali
+ *
+ */
+public class ElasticClientSettings {
+
+	/**
+	 * This is the urls of the elastic search nodes, e.g. http://localhost:9200.
+	 */
+	private List<String> nodes = new ArrayList<String>(Arrays.asList("http://localhost:9200"));
+
+	private int connectTimeoutMillis = 1000;
+
+	private int socketTimeoutMillis = 30000;
+
+	/**
+	 * This is the time that a request waits for a connection of the pool, -1 means no limit.
+	 */
+	private int connectionRequestTimeoutMillis = -1;
+
+	private int maxConnectionsPerRoute = 10;
+
+	private int maxConnectionsTotal = 30;
+
+	/**
+	 * This is the time that an idle connection is kept alive, -1 means as long as the server allows.
+	 */
+	private long keepAliveMillis = -1;
+
+	/**
+	 * This is the number of the i/o dispatcher threads of the client, 0 means one per processor.
+	 */
+	private int ioThreadCount = 0;
+
+	/**
+	 * This is true if the search responses should be gzip compressed by the elastic search.
+	 */
+	private boolean compressionEnabled = false;
+
+	/**
+	 * This is true if the bulk responses should be gzip compressed by the elastic search.
+	 */
+	private boolean bulkCompressionEnabled = false;
+
+	private int searchBufferLimitMb = 100;
+
+	private int indexBufferLimitMb = 10;
+
+	private boolean sniffEnabled = false;
+
+	private int sniffIntervalMillis = 300000;
+
+	private int sniffAfterFailureDelayMillis = 60000;
+
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(List<String> nodes) {
+		this.nodes = nodes;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getSocketTimeoutMillis() {
+		return socketTimeoutMillis;
+	}
+
+	public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+		this.socketTimeoutMillis = socketTimeoutMillis;
+	}
+
+	public int getConnectionRequestTimeoutMillis() {
+		return connectionRequestTimeoutMillis;
+	}
+
+	public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+		this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+	public int getIoThreadCount() {
+		return ioThreadCount;
+	}
+
+	public void setIoThreadCount(int ioThreadCount) {
+		this.ioThreadCount = ioThreadCount;
+	}
+
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+
+	public boolean isBulkCompressionEnabled() {
+		return bulkCompressionEnabled;
+	}
+
+	public void setBulkCompressionEnabled(boolean bulkCompressionEnabled) {
+		this.bulkCompressionEnabled = bulkCompressionEnabled;
+	}
+
+	public int getSearchBufferLimitMb() {
+		return searchBufferLimitMb;
+	}
+
+	public void setSearchBufferLimitMb(int searchBufferLimitMb) {
+		this.searchBufferLimitMb = searchBufferLimitMb;
+	}
+
+	public int getIndexBufferLimitMb() {
+		return indexBufferLimitMb;
+	}
+
+	public void setIndexBufferLimitMb(int indexBufferLimitMb) {
+		this.indexBufferLimitMb = indexBufferLimitMb;
+	}
+
+	public boolean isSniffEnabled() {
+		return sniffEnabled;
+	}
+
+	public void setSniffEnabled(boolean sniffEnabled) {
+		this.sniffEnabled = sniffEnabled;
+	}
+
+	public int getSniffIntervalMillis() {
+		return sniffIntervalMillis;
+	}
+
+	public void setSniffIntervalMillis(int sniffIntervalMillis) {
+		this.sniffIntervalMillis = sniffIntervalMillis;
+	}
+
+	public int getSniffAfterFailureDelayMillis() {
+		return sniffAfterFailureDelayMillis;
+	}
+
+	public void setSniffAfterFailureDelayMillis(int sniffAfterFailureDelayMillis) {
+		this.sniffAfterFailureDelayMillis = sniffAfterFailureDelayMillis;
+	}
+
+}
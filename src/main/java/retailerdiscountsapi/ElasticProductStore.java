@@ -0,0 +1,180 @@
+package retailerdiscountsapi;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This is the {@link ProductStore} of the elastic search. Products are searched with the {@link SearchAfterPager}
+ * through the client of the {@link ElasticClientOperations}, so the searches go through the
+ * {@link ElasticRequestLimiter} and the {@link ElasticCircuitBreaker}. It is the product store of the application
+ * unless the {@value Constants#IN_MEMORY_PROFILE} profile is active.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+public class ElasticProductStore implements ProductStore {
+
+	private static final Logger logger = LogManager.getLogger(ElasticProductStore.class);
+
+	private static final Gson gson = new Gson();
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ElasticProductStore instance = new ElasticProductStore();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ElasticProductStore() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ElasticProductStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to find the given products with one non-scoring terms filter that fetches only the
+	 * productName, type and price fields, so the products cost one round trip with a single query clause. The page
+	 * has room for one more product than the product names, so when every product is found the first page is also the
+	 * last one.
+	 */
+	@Override
+	public long findProducts(String index, Set<String> productNames, Consumer<Product> productConsumer)
+			throws Exception {
+		return readProducts(createProductNamesPager(index, productNames), productConsumer);
+	}
+
+	/**
+	 * This method is used to find the products of the given query.
+	 *
+	 * @param index           it is the name of the product index.
+	 * @param query           it is the query of the products.
+	 * @param productConsumer it is the consumer that gets every found product.
+	 * @return the number of found products
+	 * @throws Exception
+	 */
+	public long findProducts(String index, QueryBuilder query, Consumer<Product> productConsumer) throws Exception {
+		return readProducts(new SearchAfterPager(ElasticClientOperations.client, index, query,
+				Constants.PRODUCT_NAME, SearchAfterPager.DEFAULT_PAGE_SIZE), productConsumer);
+	}
+
+	private long readProducts(SearchAfterPager pager, Consumer<Product> productConsumer) throws Exception {
+		try {
+			return pager.forEachPage(productsConsumer(productConsumer));
+		} catch (Exception e) {
+			logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Long> findProductsAsync(String index, Set<String> productNames,
+			Consumer<Product> productConsumer) {
+		return createProductNamesPager(index, productNames).forEachPageAsync(productsConsumer(productConsumer))
+				.whenComplete((productCount, e) -> {
+					if (e != null) {
+						logger.error(Constants.UNEXPECTED_ERROR_OCCUR, e);
+					}
+				});
+	}
+
+	SearchAfterPager createProductNamesPager(String index, Set<String> uniqueProductNames) {
+		return new SearchAfterPager(ElasticClientOperations.client, index,
+				notDeleted(QueryBuilders.termsQuery(Constants.PRODUCT_NAME, uniqueProductNames)),
+				Constants.PRODUCT_NAME, Math.min(uniqueProductNames.size() + 1, SearchAfterPager.MAX_PAGE_SIZE))
+				.includeFields(Constants.PRODUCT_NAME, Constants.TYPE, Constants.PRICE);
+	}
+
+	private SearchAfterPager createTypePager(String type, String index) {
+		return new SearchAfterPager(ElasticClientOperations.client, index,
+				notDeleted(QueryBuilders.termQuery(Constants.TYPE, type)), Constants.PRODUCT_NAME,
+				SearchAfterPager.DEFAULT_PAGE_SIZE)
+				.includeFields(Constants.PRODUCT_NAME, Constants.TYPE, Constants.PRICE);
+	}
+
+	/**
+	 * This method is used to filter the products of the given query that are not deleted, i.e. the products whose
+	 * deleted tombstone is not set.
+	 */
+	private static QueryBuilder notDeleted(QueryBuilder query) {
+		return QueryBuilders.boolQuery().filter(query).mustNot(QueryBuilders.termQuery(Constants.DELETED, true));
+	}
+
+	/**
+	 * This method is used to create a page consumer that reads the products of the hits and passes them to the given
+	 * consumer.
+	 */
+	private static SearchAfterPager.PageConsumer productsConsumer(Consumer<Product> productConsumer) {
+		return hits -> {
+			for (SearchHit hit : hits) {
+				JsonObject hitObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
+				Product product = new Product();
+				product.setProductName(hitObj.get(Constants.PRODUCT_NAME).getAsString());
+				product.setType(hitObj.get(Constants.TYPE).getAsString());
+				product.setPrice(hitObj.get(Constants.PRICE).getAsLong());
+				productConsumer.accept(product);
+			}
+		};
+	}
+
+	@Override
+	public JsonArray findTypeRelatedProducts(String type, String index) throws Exception {
+		JsonArray productDetails = new JsonArray();
+		try {
+			createTypePager(type, index).forEachPage(hits -> {
+				for (SearchHit hit : hits) {
+					productDetails.add(JsonParser.parseString(hit.getSourceAsString()));
+				}
+			});
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_SEARCH_IN_ELASTIC, e);
+			throw e;
+		}
+		return productDetails;
+	}
+
+	/**
+	 * This method is used to write every page of hits and to flush it as soon as it comes back from the elastic search.
+	 */
+	@Override
+	public long writeTypeRelatedProducts(String type, String index, JsonWriter writer) throws Exception {
+		try {
+			return createTypePager(type, index).forEachPage(hits -> {
+				for (SearchHit hit : hits) {
+					gson.toJson(JsonParser.parseString(hit.getSourceAsString()), writer);
+				}
+				writer.flush();
+			});
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_SEARCH_IN_ELASTIC, e);
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package retailerdiscountsapi;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * This component is used to limit the number of blocking elastic search requests that are in flight at the same time.
+ * When the http requests run on virtual threads, there is no thread pool that limits them, so without this limit every
+ * waiting request would send its search to the elastic search at once. A request that can not get a permit in the
+ * configured time is rejected instead of waiting without a limit.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class ElasticRequestLimiter {
+
+	private static final Logger logger = LogManager.getLogger(ElasticRequestLimiter.class);
+
+	public static final String WAITING_REQUESTS = "elastic.requests.waiting";
+
+	/**
+	 * This is the limit that is used when no limit is configured and the http requests run on virtual threads.
+	 */
+	public static final int DEFAULT_VIRTUAL_THREAD_LIMIT = 64;
+
+	/**
+	 * This is the permits of the requests or null if the requests are not limited.
+	 */
+	private static volatile Semaphore permits;
+
+	/**
+	 * This is the maximum number of requests in flight, 0 if the requests are not limited.
+	 */
+	private static volatile int limit;
+
+	private static volatile long acquireTimeoutMillis = 1000;
+
+	/**
+	 * This interface is used to send a blocking elastic search request.
+	 */
+	@FunctionalInterface
+	public interface ElasticRequest<T> {
+
+		T execute() throws Exception;
+	}
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ElasticRequestLimiter instance = new ElasticRequestLimiter();
+
+	static {
+		Gauge.builder(WAITING_REQUESTS, () -> {
+			Semaphore currentPermits = permits;
+			return currentPermits != null ? currentPermits.getQueueLength() : 0;
+		}).description("elastic search requests that wait for a permit").register(Metrics.globalRegistry);
+	}
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ElasticRequestLimiter() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ElasticRequestLimiter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the limit. If no limit is configured, the requests are limited only when the
+	 * http requests run on virtual threads; on the platform threads the tomcat thread pool already limits them.
+	 *
+	 * @param maxConcurrentRequests it is the maximum number of requests in flight, 0 disables the limit and -1 uses
+	 *                              the default limit of the threading mode.
+	 * @param timeoutMillis         it is the number of milliseconds that a request waits for a permit.
+	 * @param virtualThreads        it is true if the http requests run on virtual threads.
+	 */
+	@Autowired
+	public void configure(@Value("${elastic.max-concurrent-requests:-1}") int maxConcurrentRequests,
+			@Value("${elastic.acquire-timeout-millis:1000}") long timeoutMillis,
+			@Value("${execution.virtual-threads.enabled:false}") boolean virtualThreads) {
+		if (maxConcurrentRequests < 0) {
+			configure(virtualThreads ? DEFAULT_VIRTUAL_THREAD_LIMIT : 0, timeoutMillis);
+		} else {
+			configure(maxConcurrentRequests, timeoutMillis);
+		}
+	}
+
+	/**
+	 * This method is used to configure the limit. Requests that already have a permit keep it.
+	 *
+	 * @param maxConcurrentRequests it is the maximum number of requests in flight, 0 disables the limit.
+	 * @param timeoutMillis         it is the number of milliseconds that a request waits for a permit.
+	 */
+	public void configure(int maxConcurrentRequests, long timeoutMillis) {
+		permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+		limit = Math.max(maxConcurrentRequests, 0);
+		acquireTimeoutMillis = timeoutMillis;
+		logger.info(String.format("elastic request limiter is configured! maxConcurrentRequests: %d, timeoutMillis: %d",
+				maxConcurrentRequests, timeoutMillis));
+	}
+
+	/**
+	 * This method is used to send the given request when a permit is available.
+	 *
+	 * @param request it is the request that will be sent.
+	 * @return the result of the request
+	 * @throws RejectedExecutionException if no permit is available in the configured time
+	 * @throws Exception                  if the request fails
+	 */
+	public <T> T execute(ElasticRequest<T> request) throws Exception {
+		Semaphore currentPermits = permits;
+		if (currentPermits == null) {
+			return request.execute();
+		}
+		if (!currentPermits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+			throw new RejectedExecutionException(Constants.TOO_MANY_ELASTIC_REQUESTS);
+		}
+		try {
+			return request.execute();
+		} finally {
+			currentPermits.release();
+		}
+	}
+
+	/**
+	 * @return the maximum number of requests in flight, 0 if the requests are not limited.
+	 */
+	public int getMaxConcurrentRequests() {
+		return limit;
+	}
+
+}
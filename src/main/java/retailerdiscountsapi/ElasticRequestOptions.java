@@ -0,0 +1,130 @@
+package retailerdiscountsapi;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.HttpAsyncResponseConsumerFactory;
+import org.elasticsearch.client.RequestOptions;
+
+/**
+ * This class is used to keep the request options of the elastic search operations. Searches may read large responses,
+ * so they have a larger response buffer than the index and bulk requests, whose responses have one short item per
+ * document. Searches and bulk requests ask for compressed responses when their compression is enabled. The options are replaced by the {@link ElasticClientFactory} when the client is created;
+ * before that they are {@link RequestOptions#DEFAULT}.
+ *
+ * @author gizemabali
+ *
+ */
+public class ElasticRequestOptions {
+
+	private static final String GZIP = "gzip";
+
+	private static final int BYTES_PER_MB = 1024 * 1024;
+
+	private static volatile RequestOptions searchOptions = RequestOptions.DEFAULT;
+
+	private static volatile RequestOptions indexOptions = RequestOptions.DEFAULT;
+
+	private static volatile RequestOptions bulkOptions = RequestOptions.DEFAULT;
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ElasticRequestOptions instance = new ElasticRequestOptions();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ElasticRequestOptions() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ElasticRequestOptions getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to create the request options of the operations from the given settings.
+	 *
+	 * @param settings it is the settings of the client.
+	 */
+	public void configure(ElasticClientSettings settings) {
+		searchOptions = createOptions(settings.getSearchBufferLimitMb(), settings.isCompressionEnabled());
+		indexOptions = createOptions(settings.getIndexBufferLimitMb(), false);
+		bulkOptions = createOptions(settings.getIndexBufferLimitMb(), settings.isBulkCompressionEnabled());
+	}
+
+	private static RequestOptions createOptions(int bufferLimitMb, boolean compressionEnabled) {
+		RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
+		if (compressionEnabled) {
+			builder.addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+		}
+		int bufferLimitBytes = (int) Math.min(Integer.MAX_VALUE, (long) bufferLimitMb * BYTES_PER_MB);
+		builder.setHttpAsyncResponseConsumerFactory(new DecompressingResponseConsumerFactory(bufferLimitBytes));
+		return builder.build();
+	}
+
+	/**
+	 * @return the request options of the searches.
+	 */
+	public RequestOptions getSearchOptions() {
+		return searchOptions;
+	}
+
+	/**
+	 * @return the request options of the index requests.
+	 */
+	public RequestOptions getIndexOptions() {
+		return indexOptions;
+	}
+
+	/**
+	 * @return the request options of the bulk requests.
+	 */
+	public RequestOptions getBulkOptions() {
+		return bulkOptions;
+	}
+
+	/**
+	 * This class is used to buffer the responses on the heap up to a limit like the default consumer of the rest client
+	 * and to decompress the gzip responses, which the rest client of this elastic search version does not do. The
+	 * limit applies to the compressed response.
+	 */
+	static class DecompressingResponseConsumerFactory implements HttpAsyncResponseConsumerFactory {
+
+		private final int bufferLimitBytes;
+
+		DecompressingResponseConsumerFactory(int bufferLimitBytes) {
+			this.bufferLimitBytes = bufferLimitBytes;
+		}
+
+		@Override
+		public HttpAsyncResponseConsumer<HttpResponse> createHttpAsyncResponseConsumer() {
+			return new HeapBufferedAsyncResponseConsumer(bufferLimitBytes) {
+
+				@Override
+				protected HttpResponse buildResult(HttpContext context) throws Exception {
+					HttpResponse response = super.buildResult(context);
+					Header contentEncoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+					if (response.getEntity() != null && contentEncoding != null
+							&& GZIP.equalsIgnoreCase(contentEncoding.getValue())) {
+						response.setEntity(new GzipDecompressingEntity(response.getEntity()));
+						response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+						response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+					}
+					return response;
+				}
+			};
+		}
+	}
+
+}
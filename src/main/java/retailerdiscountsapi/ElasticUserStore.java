@@ -0,0 +1,124 @@
+package retailerdiscountsapi;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * This is the {@link UserStore} of the elastic search. Users are searched with the {@link SearchAfterPager} and
+ * indexed through the client of the {@link ElasticClientOperations}. It is the user store of the application unless
+ * the {@value Constants#IN_MEMORY_PROFILE} profile is active.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+@Profile("!" + Constants.IN_MEMORY_PROFILE)
+public class ElasticUserStore implements UserStore {
+
+	private static final Logger logger = LogManager.getLogger(ElasticUserStore.class);
+
+	private static final ApiMetrics metrics = ApiMetrics.getInstance();
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ElasticUserStore instance = new ElasticUserStore();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ElasticUserStore() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ElasticUserStore getInstance() {
+		return instance;
+	}
+
+	@Override
+	public Map<String, Long> findUserTiers(String index, Set<String> usernames) throws Exception {
+		Map<String, Long> userTiers = new HashMap<String, Long>();
+		try {
+			createUsernamesPager(index, usernames).forEachPage(userTiersConsumer(userTiers));
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_SEARCH_IN_ELASTIC, e);
+			throw e;
+		}
+		return userTiers;
+	}
+
+	@Override
+	public CompletableFuture<Map<String, Long>> findUserTiersAsync(String index, Set<String> usernames) {
+		Map<String, Long> userTiers = new HashMap<String, Long>();
+		return createUsernamesPager(index, usernames).forEachPageAsync(userTiersConsumer(userTiers))
+				.thenApply(userCount -> userTiers);
+	}
+
+	/**
+	 * This method is used to create the pager of the given users. The page has room for one more user than the
+	 * usernames, so when every user is found the first page is also the last one.
+	 */
+	private SearchAfterPager createUsernamesPager(String index, Set<String> uniqueUsernames) {
+		return new SearchAfterPager(ElasticClientOperations.client, index,
+				QueryBuilders.termsQuery(Constants.USERNAME, uniqueUsernames), Constants.USERNAME,
+				Math.min(uniqueUsernames.size() + 1, SearchAfterPager.MAX_PAGE_SIZE))
+				.includeFields(Constants.USERNAME, Constants.EMPLOYEE, Constants.AFFILIATE, Constants.CUSTOMER,
+						Constants.ACCOUNT_CREATION_DATE);
+	}
+
+	/**
+	 * This method is used to create a page consumer that reads the tiers of the users of the hits into the given map.
+	 * If a username has more than one document, the first one is used.
+	 */
+	private static SearchAfterPager.PageConsumer userTiersConsumer(Map<String, Long> userTiers) {
+		return hits -> {
+			for (SearchHit hit : hits) {
+				JsonObject userObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
+				JsonElement username = userObj.get(Constants.USERNAME);
+				if (username == null || username.isJsonNull() || userTiers.containsKey(username.getAsString())) {
+					continue;
+				}
+				userTiers.put(username.getAsString(), UserTierCache.readTier(userObj));
+			}
+		};
+	}
+
+	@Override
+	public String indexUser(String index, JsonObject userDetailsObj) throws Exception {
+		return ElasticClientOperations.getInstance().indexDocument(index, userDetailsObj, null);
+	}
+
+	/**
+	 * This method is used to get the consumer that sends the bulk requests asynchronously with the bulk request
+	 * options, see {@link ElasticRequestOptions#getBulkOptions()}.
+	 */
+	@Override
+	public BiConsumer<BulkRequest, ActionListener<BulkResponse>> getBulkConsumer(String index) {
+		return (request, bulkListener) -> ElasticClientOperations.client.bulkAsync(request,
+				ElasticRequestOptions.getInstance().getBulkOptions(),
+				metrics.timeElasticRequest(ApiMetrics.BULK, index, bulkListener));
+	}
+
+}
@@ -0,0 +1,264 @@
+package retailerdiscountsapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This is the {@link ProductStore} that keeps the products in memory, so the service can run, be benchmarked and be
+ * load tested without an elastic search. It is the product store of the application when the
+ * {@value Constants#IN_MEMORY_PROFILE} profile is active. The products are loaded from a file of product documents
+ * like the documents of the product index, either a json array or one document per line (NDJSON).
+ *
+ * <p>
+ * The products of an index are kept in a hash map by their names and the product lists of the types are built when
+ * the products are loaded, so a lookup is a map get and a product list is answered without being built again. The
+ * products of an index are replaced as a whole, so a reader always sees one version of them.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+@Profile(Constants.IN_MEMORY_PROFILE)
+public class InMemoryProductStore implements ProductStore {
+
+	private static final Logger logger = LogManager.getLogger(InMemoryProductStore.class);
+
+	private static final Gson gson = new Gson();
+
+	private static final JsonArray NO_PRODUCTS = new JsonArray();
+
+	/**
+	 * This is the products by their index names.
+	 */
+	private static volatile Map<String, ProductIndex> indices = Collections.emptyMap();
+
+	/**
+	 * This class is the immutable products of an index.
+	 */
+	private static final class ProductIndex {
+
+		private final Map<String, Product> products;
+
+		/**
+		 * This is the names, types and prices of the products by their types ordered by their product names. The other
+		 * fields of the product documents are not listed. They must not be changed.
+		 */
+		private final Map<String, JsonArray> typeRelatedProducts;
+
+		private ProductIndex(Map<String, Product> products, Map<String, JsonArray> typeRelatedProducts) {
+			this.products = products;
+			this.typeRelatedProducts = typeRelatedProducts;
+		}
+	}
+
+	/**
+	 * This interface is used to consume the documents of a file.
+	 */
+	interface DocumentConsumer {
+
+		void accept(JsonObject documentObj) throws Exception;
+	}
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final InMemoryProductStore instance = new InMemoryProductStore();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private InMemoryProductStore() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static InMemoryProductStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to load the products of the given location, if it is given.
+	 *
+	 * @param location it is the location of the product documents, e.g. file:/data/products.json, an empty location
+	 *                 leaves the store empty.
+	 * @param index    it is the name of the product index that the products are loaded into.
+	 * @throws Exception if the products can not be read
+	 */
+	@Autowired
+	public void configure(@Value("${store.in-memory.products-location:}") String location,
+			@Value("${store.in-memory.product-index:product}") String index) throws Exception {
+		if (location == null || location.isEmpty()) {
+			logger.info(String.format("in-memory product store is empty! index: %s", index));
+			return;
+		}
+		try (InputStream inputStream = new DefaultResourceLoader().getResource(location).getInputStream()) {
+			load(index, inputStream);
+		}
+	}
+
+	/**
+	 * This method is used to replace the products of the given index with the product documents of the given stream.
+	 * The deleted products are skipped. If a product name has more than one document, the last one is used.
+	 *
+	 * @param index       it is the name of the product index.
+	 * @param inputStream it is the stream of a json array or of one product document per line.
+	 * @return the number of loaded products
+	 * @throws Exception if the stream can not be read or a document is not a valid product
+	 */
+	public int load(String index, InputStream inputStream) throws Exception {
+		long startTime = System.nanoTime();
+		Map<String, JsonObject> productObjs = new HashMap<String, JsonObject>();
+		readDocuments(inputStream, productObj -> {
+			String productName = productObj.get(Constants.PRODUCT_NAME).getAsString();
+			if (isDeleted(productObj)) {
+				productObjs.remove(productName);
+			} else {
+				productObjs.put(productName, productObj);
+			}
+		});
+		List<JsonObject> sortedProductObjs = new ArrayList<JsonObject>(productObjs.values());
+		sortedProductObjs
+				.sort(Comparator.comparing(productObj -> productObj.get(Constants.PRODUCT_NAME).getAsString()));
+		Map<String, Product> products = new HashMap<String, Product>(sortedProductObjs.size() * 4 / 3 + 1);
+		Map<String, JsonArray> typeRelatedProducts = new HashMap<String, JsonArray>();
+		for (JsonObject productObj : sortedProductObjs) {
+			Product product = new Product();
+			product.setProductName(productObj.get(Constants.PRODUCT_NAME).getAsString());
+			product.setType(productObj.get(Constants.TYPE).getAsString());
+			product.setPrice(productObj.get(Constants.PRICE).getAsLong());
+			products.put(product.getProductName(), product);
+			JsonObject productDetailsObj = new JsonObject();
+			productDetailsObj.add(Constants.PRODUCT_NAME, productObj.get(Constants.PRODUCT_NAME));
+			productDetailsObj.add(Constants.TYPE, productObj.get(Constants.TYPE));
+			productDetailsObj.add(Constants.PRICE, productObj.get(Constants.PRICE));
+			typeRelatedProducts.computeIfAbsent(product.getType(), type -> new JsonArray()).add(productDetailsObj);
+		}
+		synchronized (InMemoryProductStore.class) {
+			Map<String, ProductIndex> newIndices = new HashMap<String, ProductIndex>(indices);
+			newIndices.put(index, new ProductIndex(products, typeRelatedProducts));
+			indices = newIndices;
+		}
+		logger.info(String.format("in-memory products are loaded! index: %s, productCount: %d, took: %d ms", index,
+				products.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+		return products.size();
+	}
+
+	/**
+	 * This method is used to remove the products of all indices.
+	 */
+	public void clear() {
+		synchronized (InMemoryProductStore.class) {
+			indices = Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * This method is used to read the documents of the given stream, which has either a json array of documents or one
+	 * document per line (NDJSON).
+	 */
+	static void readDocuments(InputStream inputStream, DocumentConsumer documentConsumer) throws Exception {
+		try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			reader.setLenient(true);
+			boolean isArray = reader.peek() == JsonToken.BEGIN_ARRAY;
+			if (isArray) {
+				reader.beginArray();
+			}
+			while (isArray ? reader.hasNext() : reader.peek() != JsonToken.END_DOCUMENT) {
+				documentConsumer.accept(JsonParser.parseReader(reader).getAsJsonObject());
+			}
+		}
+	}
+
+	private static boolean isDeleted(JsonObject productObj) {
+		JsonElement deleted = productObj.get(Constants.DELETED);
+		return deleted != null && !deleted.isJsonNull() && deleted.getAsBoolean();
+	}
+
+	@Override
+	public long findProducts(String index, Set<String> productNames, Consumer<Product> productConsumer) {
+		ProductIndex productIndex = indices.get(index);
+		if (productIndex == null) {
+			return 0;
+		}
+		long productCount = 0;
+		for (String productName : productNames) {
+			Product product = productIndex.products.get(productName);
+			if (product != null) {
+				productConsumer.accept(product);
+				productCount++;
+			}
+		}
+		return productCount;
+	}
+
+	@Override
+	public CompletableFuture<Long> findProductsAsync(String index, Set<String> productNames,
+			Consumer<Product> productConsumer) {
+		return CompletableFuture.completedFuture(findProducts(index, productNames, productConsumer));
+	}
+
+	/**
+	 * This method is used to get the product list of the given type that is built when the products are loaded, so it
+	 * must not be changed.
+	 */
+	@Override
+	public JsonArray findTypeRelatedProducts(String type, String index) {
+		ProductIndex productIndex = indices.get(index);
+		JsonArray productDetails = productIndex != null ? productIndex.typeRelatedProducts.get(type) : null;
+		return productDetails != null ? productDetails : NO_PRODUCTS;
+	}
+
+	/**
+	 * This method is used to write the product list of the given type and to flush the writer after every
+	 * {@value SearchAfterPager#DEFAULT_PAGE_SIZE} products like the {@link ElasticProductStore} does.
+	 */
+	@Override
+	public long writeTypeRelatedProducts(String type, String index, JsonWriter writer) throws IOException {
+		long productCount = 0;
+		for (JsonElement productObj : findTypeRelatedProducts(type, index)) {
+			gson.toJson(productObj, writer);
+			if (++productCount % SearchAfterPager.DEFAULT_PAGE_SIZE == 0) {
+				writer.flush();
+			}
+		}
+		writer.flush();
+		return productCount;
+	}
+
+}
@@ -0,0 +1,162 @@
+package retailerdiscountsapi;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * This is the {@link UserStore} that keeps the users in memory, so the service can run, be benchmarked and be load
+ * tested without an elastic search. It is the user store of the application when the
+ * {@value Constants#IN_MEMORY_PROFILE} profile is active. Only the tiers of the users are kept, by their usernames;
+ * the tier has the account creation time, so the account age rules apply to the current age of the users. The
+ * users can be loaded from a file of user documents like the documents of the userinfo index, either a json array or
+ * one document per line (NDJSON), and they are lost when the service stops.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+@Profile(Constants.IN_MEMORY_PROFILE)
+public class InMemoryUserStore implements UserStore {
+
+	private static final Logger logger = LogManager.getLogger(InMemoryUserStore.class);
+
+	/**
+	 * This is the tiers of the users by their index names and usernames.
+	 */
+	private static final Map<String, Map<String, Long>> indices = new ConcurrentHashMap<String, Map<String, Long>>();
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final InMemoryUserStore instance = new InMemoryUserStore();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private InMemoryUserStore() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static InMemoryUserStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to load the users of the given location, if it is given.
+	 *
+	 * @param location it is the location of the user documents, e.g. file:/data/users.ndjson, an empty location leaves
+	 *                 the store empty.
+	 * @param index    it is the name of the userinfo index that the users are loaded into.
+	 * @throws Exception if the users can not be read
+	 */
+	@Autowired
+	public void configure(@Value("${store.in-memory.users-location:}") String location,
+			@Value("${store.in-memory.user-index:" + Constants.USERINFO + "}") String index) throws Exception {
+		if (location == null || location.isEmpty()) {
+			logger.info(String.format("in-memory user store is empty! index: %s", index));
+			return;
+		}
+		try (InputStream inputStream = new DefaultResourceLoader().getResource(location).getInputStream()) {
+			load(index, inputStream);
+		}
+	}
+
+	/**
+	 * This method is used to add the user documents of the given stream to the given index. The documents are stored
+	 * as they are, so they should have their account creation dates, see {@link UserTierCache#readTier(JsonObject)}.
+	 *
+	 * @param index       it is the name of the userinfo index.
+	 * @param inputStream it is the stream of a json array or of one user document per line.
+	 * @return the number of loaded users
+	 * @throws Exception if the stream can not be read or a document is not a valid user
+	 */
+	public long load(String index, InputStream inputStream) throws Exception {
+		long startTime = System.nanoTime();
+		long[] userCount = { 0 };
+		InMemoryProductStore.readDocuments(inputStream, userObj -> {
+			indexUser(index, userObj);
+			userCount[0]++;
+		});
+		logger.info(String.format("in-memory users are loaded! index: %s, userCount: %d, took: %d ms", index,
+				userCount[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+		return userCount[0];
+	}
+
+	/**
+	 * This method is used to remove the users of all indices.
+	 */
+	public void clear() {
+		indices.clear();
+	}
+
+	@Override
+	public Map<String, Long> findUserTiers(String index, Set<String> usernames) {
+		Map<String, Long> userTiers = new HashMap<String, Long>();
+		Map<String, Long> indexTiers = indices.get(index);
+		if (indexTiers == null) {
+			return userTiers;
+		}
+		for (String username : usernames) {
+			Long userTier = indexTiers.get(username);
+			if (userTier != null) {
+				userTiers.put(username, userTier);
+			}
+		}
+		return userTiers;
+	}
+
+	@Override
+	public CompletableFuture<Map<String, Long>> findUserTiersAsync(String index, Set<String> usernames) {
+		return CompletableFuture.completedFuture(findUserTiers(index, usernames));
+	}
+
+	/**
+	 * This method is used to keep the tier of the given user. A user without a username is not kept, since it can not
+	 * be found. If the username is already known, its tier is replaced.
+	 */
+	@Override
+	public String indexUser(String index, JsonObject userDetailsObj) throws Exception {
+		long userTier = UserTierCache.readTier(userDetailsObj);
+		JsonElement username = userDetailsObj.get(Constants.USERNAME);
+		if (username != null && !username.isJsonNull()) {
+			indices.computeIfAbsent(index, indexName -> new ConcurrentHashMap<String, Long>())
+					.put(username.getAsString(), userTier);
+		}
+		return UUID.randomUUID().toString();
+	}
+
+	/**
+	 * The users are kept one by one, so this store has no bulk requests.
+	 */
+	@Override
+	public BiConsumer<BulkRequest, ActionListener<BulkResponse>> getBulkConsumer(String index) {
+		return null;
+	}
+
+}
@@ -0,0 +1,78 @@
+package retailerdiscountsapi;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This component is used to run the cpu work of the asynchronous elastic searches, the decoding of the search pages
+ * and the pricing of the baskets, on a pool of pricing threads. The responses of the asynchronous searches are received
+ * on the i/o threads of the elastic client, and every other response waits while an i/o thread is busy, so the work is
+ * handed off to the pricing threads as soon as a response is received.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class PricingExecution {
+
+	private static final Logger logger = LogManager.getLogger(PricingExecution.class);
+
+	private static volatile ExecutorService executor = createExecutor(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final PricingExecution instance = new PricingExecution();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private PricingExecution() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static PricingExecution getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the number of pricing threads.
+	 *
+	 * @param threads it is the number of pricing threads, 0 means one thread per processor.
+	 */
+	@Autowired
+	public void configure(@Value("${pricing.threads:0}") int threads) {
+		int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		ExecutorService oldExecutor = executor;
+		executor = createExecutor(threadCount);
+		oldExecutor.shutdown();
+		logger.info(String.format("pricing execution is configured! threads: %d", threadCount));
+	}
+
+	private static ExecutorService createExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("pricing-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * @return the executor of the pricing threads.
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+}
@@ -0,0 +1,254 @@
+package retailerdiscountsapi;
+
+import java.util.Arrays;
+
+/**
+ * This is the pricing kernel that calculates the grocery and the other subtotals of baskets before the discounts. The
+ * lines of the baskets are kept in columns of primitive arrays, the amounts, the prices and a bitmask of the groceries
+ * products with one bit per line, and the baskets are kept as the end positions of their lines, so many baskets are
+ * priced at once with one pass over the columns.
+ *
+ * <p>
+ * The lines of a basket are summed without branches, so the loop can be unrolled and vectorized by the JIT. Before a
+ * basket is summed, the highest amount and price bits of its lines are checked; if the sum could overflow, or an
+ * amount is negative, the basket is summed with exact arithmetic instead and a basket that overflows gets an
+ * {@link ArithmeticException} when its subtotals are read. The subtotals are the same as the subtotals of the line by
+ * line loop for every basket that does not overflow.
+ * </p>
+ *
+ * <p>
+ * The kernel is not thread safe.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+public final class PricingKernel {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] amounts;
+
+	private long[] prices;
+
+	/**
+	 * This is the bitmask of the groceries products. The bit of a line is the bit <code>line % 64</code> of the word
+	 * <code>line / 64</code>.
+	 */
+	private long[] groceryMask;
+
+	private int lineCount;
+
+	/**
+	 * This is the end position of the lines of every basket, the lines of a basket start at the end of the previous
+	 * basket.
+	 */
+	private int[] basketEnds;
+
+	private long[] groceriesSubtotals;
+
+	private long[] otherSubtotals;
+
+	private boolean[] overflows;
+
+	private int basketCount;
+
+	/**
+	 * This constructor creates a kernel that can keep the given number of lines and baskets without resizing.
+	 *
+	 * @param expectedLines   it is the expected number of lines of all baskets.
+	 * @param expectedBaskets it is the expected number of baskets.
+	 */
+	public PricingKernel(int expectedLines, int expectedBaskets) {
+		int lineCapacity = Math.max(expectedLines, MIN_CAPACITY);
+		amounts = new int[lineCapacity];
+		prices = new long[lineCapacity];
+		groceryMask = new long[maskLength(lineCapacity)];
+		int basketCapacity = Math.max(expectedBaskets, 1);
+		basketEnds = new int[basketCapacity];
+		groceriesSubtotals = new long[basketCapacity];
+		otherSubtotals = new long[basketCapacity];
+		overflows = new boolean[basketCapacity];
+	}
+
+	private static int maskLength(int lineCapacity) {
+		return (lineCapacity + 63) >>> 6;
+	}
+
+	/**
+	 * This method is used to add a line to the current basket with a slot of the {@link ProductTable}.
+	 *
+	 * @param amount it is the amount of the product.
+	 * @param slot   it is the packed price and grocery flag of the product.
+	 */
+	public void addLine(int amount, long slot) {
+		addLine(amount, ProductTable.price(slot), ProductTable.isGrocery(slot));
+	}
+
+	/**
+	 * This method is used to add a line to the current basket.
+	 *
+	 * @param amount  it is the amount of the product.
+	 * @param price   it is the price of the product, which must not be negative.
+	 * @param grocery it is true if the product is a groceries product.
+	 */
+	public void addLine(int amount, long price, boolean grocery) {
+		if (lineCount == amounts.length) {
+			int lineCapacity = lineCount << 1;
+			amounts = Arrays.copyOf(amounts, lineCapacity);
+			prices = Arrays.copyOf(prices, lineCapacity);
+			groceryMask = Arrays.copyOf(groceryMask, maskLength(lineCapacity));
+		}
+		amounts[lineCount] = amount;
+		prices[lineCount] = price;
+		if (grocery) {
+			groceryMask[lineCount >>> 6] |= 1L << lineCount;
+		}
+		lineCount++;
+	}
+
+	/**
+	 * This method is used to end the current basket. The lines that are added after it belong to the next basket.
+	 *
+	 * @return the index of the ended basket.
+	 */
+	public int endBasket() {
+		if (basketCount == basketEnds.length) {
+			int basketCapacity = basketCount << 1;
+			basketEnds = Arrays.copyOf(basketEnds, basketCapacity);
+			groceriesSubtotals = Arrays.copyOf(groceriesSubtotals, basketCapacity);
+			otherSubtotals = Arrays.copyOf(otherSubtotals, basketCapacity);
+			overflows = Arrays.copyOf(overflows, basketCapacity);
+		}
+		basketEnds[basketCount] = lineCount;
+		return basketCount++;
+	}
+
+	/**
+	 * This method is used to calculate the subtotals of all ended baskets.
+	 */
+	public void price() {
+		int start = 0;
+		for (int basket = 0; basket < basketCount; basket++) {
+			int end = basketEnds[basket];
+			overflows[basket] = false;
+			if (fitsInLong(amounts, prices, start, end)) {
+				sum(basket, start, end);
+			} else {
+				sumExact(basket, start, end);
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * This method is used to check that no line and no sum of the given lines can overflow. A line is lower than
+	 * <code>2^(amountBits + priceBits)</code> and the sum of n lines is lower than n times that.
+	 *
+	 * @return true if the lines can be summed without overflow checks.
+	 */
+	private static boolean fitsInLong(int[] amounts, long[] prices, int start, int end) {
+		int amountBits = 0;
+		long priceBits = 0;
+		for (int i = start; i < end; i++) {
+			amountBits |= amounts[i];
+			priceBits |= prices[i];
+		}
+		if (amountBits < 0 || priceBits < 0) {
+			return false;
+		}
+		int bitCount = (Integer.SIZE - Integer.numberOfLeadingZeros(amountBits))
+				+ (Long.SIZE - Long.numberOfLeadingZeros(priceBits))
+				+ (Integer.SIZE - Integer.numberOfLeadingZeros(end - start));
+		return bitCount < Long.SIZE;
+	}
+
+	private void sum(int basket, int start, int end) {
+		int[] amounts = this.amounts;
+		long[] prices = this.prices;
+		long[] groceryMask = this.groceryMask;
+		long groceriesSubtotal = 0;
+		long otherSubtotal = 0;
+		for (int i = start; i < end; i++) {
+			long line = amounts[i] * prices[i];
+			// all bits are set for a groceries line and none for the others, the shift uses the low 6 bits of i
+			long grocery = -((groceryMask[i >>> 6] >>> i) & 1);
+			groceriesSubtotal += line & grocery;
+			otherSubtotal += line & ~grocery;
+		}
+		groceriesSubtotals[basket] = groceriesSubtotal;
+		otherSubtotals[basket] = otherSubtotal;
+	}
+
+	private void sumExact(int basket, int start, int end) {
+		long groceriesSubtotal = 0;
+		long otherSubtotal = 0;
+		try {
+			for (int i = start; i < end; i++) {
+				long line = Math.multiplyExact((long) amounts[i], prices[i]);
+				if (isGrocery(i)) {
+					groceriesSubtotal = Math.addExact(groceriesSubtotal, line);
+				} else {
+					otherSubtotal = Math.addExact(otherSubtotal, line);
+				}
+			}
+		} catch (ArithmeticException e) {
+			overflows[basket] = true;
+		}
+		groceriesSubtotals[basket] = groceriesSubtotal;
+		otherSubtotals[basket] = otherSubtotal;
+	}
+
+	private boolean isGrocery(int line) {
+		return (groceryMask[line >>> 6] & 1L << line) != 0;
+	}
+
+	/**
+	 * @return the total price of the groceries products of the given basket, which is calculated by {@link #price()}.
+	 * @throws ArithmeticException if the total price of the basket overflows
+	 */
+	public long getGroceriesSubtotal(int basket) {
+		checkOverflow(basket);
+		return groceriesSubtotals[basket];
+	}
+
+	/**
+	 * @return the total price of the products except from groceries of the given basket, which is calculated by
+	 *         {@link #price()}.
+	 * @throws ArithmeticException if the total price of the basket overflows
+	 */
+	public long getOtherSubtotal(int basket) {
+		checkOverflow(basket);
+		return otherSubtotals[basket];
+	}
+
+	private void checkOverflow(int basket) {
+		if (overflows[basket]) {
+			throw new ArithmeticException(Constants.BASKET_PRICE_OVERFLOW);
+		}
+	}
+
+	/**
+	 * This method is used to remove all lines and baskets. The capacity is kept.
+	 */
+	public void clear() {
+		Arrays.fill(groceryMask, 0, maskLength(lineCount), 0);
+		lineCount = 0;
+		basketCount = 0;
+	}
+
+	/**
+	 * @return the number of lines of all baskets.
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the number of ended baskets.
+	 */
+	public int getBasketCount() {
+		return basketCount;
+	}
+
+}
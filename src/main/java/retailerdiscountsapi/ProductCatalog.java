@@ -0,0 +1,415 @@
+package retailerdiscountsapi;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * This is a component class which keeps a full copy of the product index in memory. When a snapshot path is
+ * configured, the catalog is loaded from the {@link CatalogSnapshot} file on startup, so baskets are priced without
+ * waiting for the elastic search, and then it is kept up to date from the elastic search in the background:
+ *
+ * <ul>
+ * <li>A full refresh reads the whole index, replaces the catalog and writes the snapshot file.</li>
+ * <li>An incremental sync reads only the products whose updatedAt is not older than the watermark, i.e. the highest
+ * updatedAt that is seen so far. Deleted products are tombstones with deleted: true. Changes are kept in a small delta
+ * table over the snapshot, so the cost of a sync depends on the number of changes and not on the size of the catalog.
+ * The delta is merged into a new snapshot when it grows.</li>
+ * </ul>
+ *
+ * The catalog state is replaced as a whole, so a basket is always priced with one version of it.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class ProductCatalog {
+
+	private static final Logger logger = LogManager.getLogger(ProductCatalog.class);
+
+	/**
+	 * This is the delta slot of the deleted products.
+	 */
+	private static final long DELETED = -2;
+
+	/**
+	 * This is the minimum delta size that makes a sync merge the delta into a new snapshot.
+	 */
+	private static final int MIN_COMPACTION_SIZE = 1024;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("product-catalog-%d").setDaemon(true).build());
+
+	private static volatile Path snapshotPath;
+
+	private static volatile String catalogIndex = "product";
+
+	private static volatile long overlapMillis = TimeUnit.SECONDS.toMillis(5);
+
+	/**
+	 * This is the current catalog or null if the catalog is not loaded.
+	 */
+	private static volatile CatalogState state;
+
+	private static ScheduledFuture<?> refreshTask;
+
+	private static ScheduledFuture<?> syncTask;
+
+	/**
+	 * This class is the immutable state of the catalog: a snapshot and the changes after it.
+	 */
+	private static final class CatalogState {
+
+		private final CatalogSnapshot snapshot;
+
+		/**
+		 * This is the changed products by their names, the deleted products have the {@link ProductCatalog#DELETED}
+		 * slot.
+		 */
+		private final ProductTable delta;
+
+		private final long version;
+
+		private final long watermark;
+
+		private CatalogState(CatalogSnapshot snapshot, ProductTable delta, long version, long watermark) {
+			this.snapshot = snapshot;
+			this.delta = delta;
+			this.version = version;
+			this.watermark = watermark;
+		}
+
+		private long get(String productName) {
+			long slot = delta.get(productName);
+			if (slot == DELETED) {
+				return ProductTable.MISSING;
+			}
+			return slot != ProductTable.MISSING ? slot : snapshot.getProducts().get(productName);
+		}
+	}
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ProductCatalog instance = new ProductCatalog();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ProductCatalog() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ProductCatalog getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the catalog. If the snapshot file exists, it is loaded immediately; a snapshot
+	 * that can not be read is ignored. Then the catalog is kept up to date from the elastic search in the background.
+	 * If there is no snapshot with a watermark, the first sync is a full refresh.
+	 *
+	 * @param path                   it is the path of the snapshot file, an empty path disables the catalog.
+	 * @param index                  it is the name of the product index.
+	 * @param refreshIntervalSeconds it is the number of seconds between the full refreshes, 0 disables them.
+	 * @param syncIntervalSeconds    it is the number of seconds between the incremental syncs, 0 disables them.
+	 * @param overlapSeconds         it is the number of seconds before the watermark that are read again by every
+	 *                               sync, so the products that become searchable after a newer product are not
+	 *                               missed.
+	 */
+	@Autowired
+	public void configure(@Value("${catalog.snapshot.path:}") String path,
+			@Value("${catalog.snapshot.index:product}") String index,
+			@Value("${catalog.snapshot.refresh-interval-seconds:3600}") long refreshIntervalSeconds,
+			@Value("${catalog.sync.interval-seconds:10}") long syncIntervalSeconds,
+			@Value("${catalog.sync.overlap-seconds:5}") long overlapSeconds) {
+		synchronized (ProductCatalog.class) {
+			cancelTasks();
+			state = null;
+			catalogIndex = index;
+			overlapMillis = TimeUnit.SECONDS.toMillis(overlapSeconds);
+			if (path == null || path.isEmpty()) {
+				snapshotPath = null;
+				return;
+			}
+			snapshotPath = Paths.get(path);
+			if (Files.exists(snapshotPath)) {
+				try {
+					loadSnapshot(snapshotPath);
+				} catch (Exception e) {
+					logger.error(Constants.COULD_NOT_LOAD_CATALOG_SNAPSHOT, e);
+				}
+			}
+			boolean hasWatermark = state != null && state.watermark != CatalogSnapshot.NO_WATERMARK;
+			if (refreshIntervalSeconds > 0) {
+				refreshTask = scheduler.scheduleWithFixedDelay(this::refreshQuietly,
+						hasWatermark && syncIntervalSeconds > 0 ? refreshIntervalSeconds : 0, refreshIntervalSeconds,
+						TimeUnit.SECONDS);
+			}
+			if (syncIntervalSeconds > 0) {
+				syncTask = scheduler.scheduleWithFixedDelay(this::synchronizeQuietly, syncIntervalSeconds,
+						syncIntervalSeconds, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	private static void cancelTasks() {
+		if (refreshTask != null) {
+			refreshTask.cancel(false);
+			refreshTask = null;
+		}
+		if (syncTask != null) {
+			syncTask.cancel(false);
+			syncTask = null;
+		}
+	}
+
+	/**
+	 * This method is used to replace the catalog with the snapshot of the given file.
+	 *
+	 * @param path it is the path of the snapshot file.
+	 * @return the loaded snapshot
+	 * @throws Exception if the snapshot can not be read
+	 */
+	public CatalogSnapshot loadSnapshot(Path path) throws Exception {
+		long startTime = System.nanoTime();
+		CatalogSnapshot loadedSnapshot = CatalogSnapshot.read(path);
+		state = new CatalogState(loadedSnapshot, new ProductTable(0), loadedSnapshot.getVersion(),
+				loadedSnapshot.getWatermark());
+		logger.info(String.format("catalog snapshot is loaded! path: %s, version: %d, productCount: %d, took: %d ms",
+				path, loadedSnapshot.getVersion(), loadedSnapshot.getProducts().size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+		return loadedSnapshot;
+	}
+
+	/**
+	 * This method is used to read the whole product index from the elastic search, to replace the catalog with it and
+	 * to write it to the snapshot file. Deleted products are skipped. The catalog is updated under the class lock, so
+	 * it is never updated by two threads at once, whichever instance of the class is called.
+	 *
+	 * @return the new snapshot
+	 * @throws Exception
+	 */
+	public CatalogSnapshot refresh() throws Exception {
+		synchronized (ProductCatalog.class) {
+			String index = catalogIndex;
+			CatalogState currentState = state;
+			ProductTable products = new ProductTable(
+					currentState != null ? currentState.snapshot.getProducts().size() : 1024);
+			long[] watermark = { 0 };
+			SearchAfterPager pager = new SearchAfterPager(ElasticClientOperations.client, index,
+					QueryBuilders.boolQuery().mustNot(QueryBuilders.termQuery(Constants.DELETED, true)),
+					Constants.UPDATED_AT, SearchAfterPager.MAX_PAGE_SIZE)
+							.includeFields(Constants.PRODUCT_NAME, Constants.TYPE, Constants.PRICE);
+			pager.forEachPage(hits -> {
+				for (SearchHit hit : hits) {
+					JsonObject hitObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
+					products.putSlot(hitObj.get(Constants.PRODUCT_NAME).getAsString(), slot(hitObj));
+					watermark[0] = Math.max(watermark[0], updatedAt(hit));
+				}
+			});
+			CatalogSnapshot newSnapshot = publishSnapshot(products, watermark[0]);
+			logger.info(String.format("product catalog is refreshed! index: %s, version: %d, productCount: %d", index,
+					newSnapshot.getVersion(), products.size()));
+			return newSnapshot;
+		}
+	}
+
+	/**
+	 * This method is used to apply the products that are changed since the watermark to the catalog. If the catalog
+	 * has no watermark, it is refreshed instead. Like {@link #refresh()}, it runs under the class lock.
+	 *
+	 * @return the number of changed products
+	 * @throws Exception
+	 */
+	public int synchronize() throws Exception {
+		synchronized (ProductCatalog.class) {
+			CatalogState currentState = state;
+			if (currentState == null || currentState.watermark == CatalogSnapshot.NO_WATERMARK) {
+				return refresh().getProducts().size();
+			}
+			String index = catalogIndex;
+			ProductTable delta = currentState.delta.copy();
+			long[] watermark = { currentState.watermark };
+			int[] changeCount = { 0 };
+			SearchAfterPager pager = new SearchAfterPager(ElasticClientOperations.client, index,
+					QueryBuilders.rangeQuery(Constants.UPDATED_AT).gte(currentState.watermark - overlapMillis),
+					Constants.UPDATED_AT, SearchAfterPager.MAX_PAGE_SIZE).includeFields(Constants.PRODUCT_NAME,
+							Constants.TYPE, Constants.PRICE, Constants.DELETED);
+			pager.forEachPage(hits -> {
+				for (SearchHit hit : hits) {
+					JsonObject hitObj = JsonParser.parseString(hit.getSourceAsString()).getAsJsonObject();
+					String productName = hitObj.get(Constants.PRODUCT_NAME).getAsString();
+					long currentSlot = currentState.get(productName);
+					long newSlot = isDeleted(hitObj) ? ProductTable.MISSING : slot(hitObj);
+					if (newSlot != currentSlot) {
+						delta.putSlot(productName, newSlot == ProductTable.MISSING ? DELETED : newSlot);
+						ProductCatalogCache.getInstance().invalidate(index, productName);
+						changeCount[0]++;
+					}
+					watermark[0] = Math.max(watermark[0], updatedAt(hit));
+				}
+			});
+			if (changeCount[0] == 0) {
+				state = new CatalogState(currentState.snapshot, currentState.delta, currentState.version, watermark[0]);
+				return 0;
+			}
+			if (delta.size() >= Math.max(MIN_COMPACTION_SIZE, currentState.snapshot.getProducts().size() / 8)) {
+				compact(currentState.snapshot, delta, watermark[0]);
+			} else {
+				state = new CatalogState(currentState.snapshot, delta, System.currentTimeMillis(), watermark[0]);
+			}
+			logger.info(String.format("product catalog is synchronized! index: %s, changeCount: %d, watermark: %d",
+					index, changeCount[0], watermark[0]));
+			return changeCount[0];
+		}
+	}
+
+	/**
+	 * This method is used to merge the given delta into a new snapshot.
+	 */
+	private void compact(CatalogSnapshot snapshot, ProductTable delta, long watermark) throws Exception {
+		ProductTable products = snapshot.getProducts().copy();
+		delta.forEach((productName, slot) -> {
+			if (slot == DELETED) {
+				products.remove(productName);
+			} else {
+				products.putSlot(productName, slot);
+			}
+		});
+		publishSnapshot(products, watermark);
+	}
+
+	private CatalogSnapshot publishSnapshot(ProductTable products, long watermark) throws Exception {
+		long version = System.currentTimeMillis();
+		Path path = snapshotPath;
+		CatalogSnapshot newSnapshot = path != null ? CatalogSnapshot.write(path, products, version, watermark)
+				: new CatalogSnapshot(products, version, watermark, 0);
+		state = new CatalogState(newSnapshot, new ProductTable(0), version, watermark);
+		return newSnapshot;
+	}
+
+	private static long slot(JsonObject hitObj) {
+		return ProductTable.slot(hitObj.get(Constants.PRICE).getAsLong(),
+				Constants.GROCERIES.equals(hitObj.get(Constants.TYPE).getAsString()));
+	}
+
+	private static boolean isDeleted(JsonObject hitObj) {
+		JsonElement deleted = hitObj.get(Constants.DELETED);
+		return deleted != null && !deleted.isJsonNull() && deleted.getAsBoolean();
+	}
+
+	/**
+	 * @return the updatedAt of the hit from its sort values or 0 if the product has no updatedAt.
+	 */
+	private static long updatedAt(SearchHit hit) {
+		Object[] sortValues = hit.getSortValues();
+		if (sortValues.length == 0 || !(sortValues[0] instanceof Number)) {
+			return 0;
+		}
+		long updatedAt = ((Number) sortValues[0]).longValue();
+		// products without updatedAt are sorted with the highest or the lowest long value
+		return updatedAt == Long.MAX_VALUE || updatedAt == Long.MIN_VALUE ? 0 : updatedAt;
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_REFRESH_CATALOG, e);
+		}
+	}
+
+	private void synchronizeQuietly() {
+		try {
+			synchronize();
+		} catch (Exception e) {
+			logger.error(Constants.COULD_NOT_SYNCHRONIZE_CATALOG, e);
+		}
+	}
+
+	/**
+	 * @return true if the catalog of the given index is loaded.
+	 */
+	public boolean isLoaded(String index) {
+		return state != null && catalogIndex.equals(index);
+	}
+
+	/**
+	 * This method is used to look up the given product names in the catalog. Found products are put into the found
+	 * table and the others are added to the missing list. If the catalog of the given index is not loaded, all products
+	 * are missing.
+	 *
+	 * @param index        it is the name of the product index.
+	 * @param productNames it is the product names that will be looked up.
+	 * @param found        it is the table that will be filled with the products of the catalog.
+	 * @param missing      it is the list that will be filled with the names of the products that are not in the
+	 *                     catalog.
+	 */
+	public void lookup(String index, Collection<String> productNames, ProductTable found, List<String> missing) {
+		CatalogState currentState = state;
+		if (currentState == null || !catalogIndex.equals(index)) {
+			missing.addAll(productNames);
+			return;
+		}
+		for (String productName : productNames) {
+			long slot = currentState.get(productName);
+			if (slot != ProductTable.MISSING) {
+				found.putSlot(productName, slot);
+			} else {
+				missing.add(productName);
+			}
+		}
+	}
+
+	/**
+	 * @return the last snapshot of the catalog or null if the catalog is not loaded. Changes after the snapshot are not
+	 *         in it.
+	 */
+	public CatalogSnapshot getSnapshot() {
+		CatalogState currentState = state;
+		return currentState != null ? currentState.snapshot : null;
+	}
+
+	/**
+	 * @return the version of the catalog, it changes whenever a product of the catalog changes, or -1 if the catalog is
+	 *         not loaded.
+	 */
+	public long getVersion() {
+		CatalogState currentState = state;
+		return currentState != null ? currentState.version : -1;
+	}
+
+	/**
+	 * @return the watermark of the catalog or {@link CatalogSnapshot#NO_WATERMARK}.
+	 */
+	public long getWatermark() {
+		CatalogState currentState = state;
+		return currentState != null ? currentState.watermark : CatalogSnapshot.NO_WATERMARK;
+	}
+
+}
@@ -0,0 +1,238 @@
+package retailerdiscountsapi;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.ForwardingCache;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This is an in-process cache of product index documents. It is used in front of the elastic search so that basket
+ * calculations only go to the product index for the products which are not cached yet. Entries are evicted after the
+ * configured ttl or when the cache is full. Hit, miss and eviction counters are published to the actuator metrics
+ * under the name {@value #CACHE_NAME}.
+ *
+ * <p>
+ * Every cached product is also kept as the last known good product without a ttl, so the baskets can still be priced
+ * with {@link #lookupStale(String, Collection, ProductTable, List)} while the elastic search is not available.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class ProductCatalogCache {
+
+	private static final Logger logger = LogManager.getLogger(ProductCatalogCache.class);
+
+	public static final String CACHE_NAME = "productCatalog";
+
+	/**
+	 * This is the cache that stores products by "index/productName" keys. It is replaced once when the spring context
+	 * configures the cache.
+	 */
+	private static volatile Cache<String, Product> cache = buildCache(10000, 300);
+
+	/**
+	 * This is the cache whose statistics are published to the actuator metrics. It forwards to the current cache, so
+	 * the metrics are registered once and follow the cache when it is configured again.
+	 */
+	private static final Cache<String, Product> monitoredCache = GuavaCacheMetrics.monitor(Metrics.globalRegistry,
+			new ForwardingCache<String, Product>() {
+
+				@Override
+				protected Cache<String, Product> delegate() {
+					return cache;
+				}
+			}, CACHE_NAME);
+
+	/**
+	 * This is the last known good products by "index/productName" keys. They are only evicted when the cache is full.
+	 */
+	private static volatile Cache<String, Product> staleCache = buildStaleCache(100000);
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ProductCatalogCache instance = new ProductCatalogCache();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ProductCatalogCache() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ProductCatalogCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the size and the ttl of the cache. Existing entries are dropped and the
+	 * statistics of the actuator metrics start again.
+	 *
+	 * @param maximumSize it is the maximum number of products that will be kept in the cache.
+	 * @param ttlSeconds  it is the number of seconds that a product will be kept in the cache after it is written.
+	 */
+	@Autowired
+	public void configure(@Value("${catalog.cache.maximum-size:10000}") long maximumSize,
+			@Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+		cache = buildCache(maximumSize, ttlSeconds);
+		logger.info(String.format("product catalog cache is configured! maximumSize: %d, ttlSeconds: %d", maximumSize,
+				ttlSeconds));
+	}
+
+	/**
+	 * This method is used to configure the size of the last known good products. Existing entries are dropped.
+	 *
+	 * @param maximumSize it is the maximum number of last known good products, 0 disables them.
+	 */
+	@Autowired
+	public void configureStale(@Value("${catalog.cache.stale-maximum-size:100000}") long maximumSize) {
+		staleCache = buildStaleCache(maximumSize);
+		logger.info(String.format("last known good products are configured! maximumSize: %d", maximumSize));
+	}
+
+	private static Cache<String, Product> buildCache(long maximumSize, long ttlSeconds) {
+		return CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats().build();
+	}
+
+	private static Cache<String, Product> buildStaleCache(long maximumSize) {
+		return CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+	}
+
+	/**
+	 * This method is used to get the cached product of the given index.
+	 *
+	 * @param index       it is the name of the product index.
+	 * @param productName it is the name of the product.
+	 * @return the cached product or null if it is not cached.
+	 */
+	public Product get(String index, String productName) {
+		return cache.getIfPresent(key(index, productName));
+	}
+
+	/**
+	 * This method is used to look up the given product names in the cache. Cached products are put into the found map
+	 * and the others are added to the missing list.
+	 *
+	 * @param index        it is the name of the product index.
+	 * @param productNames it is the product names that will be looked up.
+	 * @param found        it is the map that will be filled with cached products by their names.
+	 * @param missing      it is the list that will be filled with the names of the products that are not cached.
+	 */
+	public void lookup(String index, Collection<String> productNames, Map<String, Product> found, List<String> missing) {
+		for (String productName : productNames) {
+			Product product = cache.getIfPresent(key(index, productName));
+			if (product != null) {
+				found.put(productName, product);
+			} else {
+				missing.add(productName);
+			}
+		}
+	}
+
+	/**
+	 * This method is used to look up the given product names in the cache. Cached products are put into the found table
+	 * and the others are added to the missing list.
+	 *
+	 * @param index        it is the name of the product index.
+	 * @param productNames it is the product names that will be looked up.
+	 * @param found        it is the table that will be filled with cached products.
+	 * @param missing      it is the list that will be filled with the names of the products that are not cached.
+	 */
+	public void lookup(String index, Collection<String> productNames, ProductTable found, List<String> missing) {
+		for (String productName : productNames) {
+			Product product = cache.getIfPresent(key(index, productName));
+			if (product != null) {
+				found.put(product);
+			} else {
+				missing.add(productName);
+			}
+		}
+	}
+
+	/**
+	 * This method is used to look up the given product names in the last known good products, which may be older than
+	 * the ttl of the cache. Found products are put into the found table and the others are added to the missing list.
+	 *
+	 * @param index        it is the name of the product index.
+	 * @param productNames it is the product names that will be looked up.
+	 * @param found        it is the table that will be filled with the last known good products.
+	 * @param missing      it is the list that will be filled with the names of the products that are not known.
+	 */
+	public void lookupStale(String index, Collection<String> productNames, ProductTable found, List<String> missing) {
+		for (String productName : productNames) {
+			Product product = staleCache.getIfPresent(key(index, productName));
+			if (product != null) {
+				found.put(product);
+			} else {
+				missing.add(productName);
+			}
+		}
+	}
+
+	/**
+	 * This method is used to cache the given product of the given index.
+	 *
+	 * @param index   it is the name of the product index.
+	 * @param product it is the product that will be cached.
+	 */
+	public void put(String index, Product product) {
+		String key = key(index, product.getProductName());
+		cache.put(key, product);
+		staleCache.put(key, product);
+	}
+
+	/**
+	 * This method is used to remove the given product of the given index from the cache and from the last known good
+	 * products.
+	 *
+	 * @param index       it is the name of the product index.
+	 * @param productName it is the name of the product.
+	 */
+	public void invalidate(String index, String productName) {
+		String key = key(index, productName);
+		cache.invalidate(key);
+		staleCache.invalidate(key);
+	}
+
+	/**
+	 * This method is used to remove all products from the cache and from the last known good products.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+		staleCache.invalidateAll();
+	}
+
+	/**
+	 * @return the number of cached products.
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	private static String key(String index, String productName) {
+		return index + '/' + productName;
+	}
+
+}
@@ -0,0 +1,140 @@
+package retailerdiscountsapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * This component is used to create the entity tags of the product lists, so the clients that poll the product lists
+ * can ask for them with If-None-Match and get 304 Not Modified when nothing has changed. The product lists are read
+ * from the product store, so the tag is a hash of the product list that is read. It is kept for a short time after the
+ * list is read, so the requests in that time are answered without a search; after that the list is read again and
+ * only the body is saved when the hash has not changed. The version of the {@link ProductCatalog} is not used as a
+ * tag, because the catalog is synced later than the product store changes and a tag of it could answer 304 for a list
+ * that has changed.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class ProductEtags {
+
+	private static final Logger logger = LogManager.getLogger(ProductEtags.class);
+
+	/**
+	 * This is the hash tags of the product lists by "index/type" keys.
+	 */
+	private static volatile Cache<String, String> contentEtags = buildCache(5);
+
+	private static volatile String cacheControl = "no-cache";
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final ProductEtags instance = new ProductEtags();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private ProductEtags() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static ProductEtags getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the tags.
+	 *
+	 * @param cacheControlValue it is the Cache-Control header of the product lists, an empty value omits the header.
+	 * @param ttlSeconds        it is the number of seconds that the hash tag of a product list is trusted without
+	 *                          reading the list again, 0 disables it.
+	 */
+	@Autowired
+	public void configure(@Value("${products.cache-control:no-cache}") String cacheControlValue,
+			@Value("${products.etag.ttl-seconds:5}") long ttlSeconds) {
+		cacheControl = cacheControlValue;
+		contentEtags = buildCache(ttlSeconds);
+		logger.info(String.format("product etags are configured! cacheControl: %s, ttlSeconds: %d", cacheControlValue,
+				ttlSeconds));
+	}
+
+	private static Cache<String, String> buildCache(long ttlSeconds) {
+		return CacheBuilder.newBuilder().maximumSize(ttlSeconds > 0 ? 1000 : 0)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+	}
+
+	/**
+	 * This method is used to get the tag of the product list of the given type without reading the list.
+	 *
+	 * @param index it is the name of the product index.
+	 * @param type  it is the type of the products.
+	 * @return the tag or null if it is not known
+	 */
+	public String getEtag(String index, String type) {
+		return contentEtags.getIfPresent(index + '/' + type);
+	}
+
+	/**
+	 * This method is used to create the hash tag of the given product list and to keep it for the configured time.
+	 *
+	 * @param index it is the name of the product index.
+	 * @param type  it is the type of the products.
+	 * @param body  it is the json of the product list.
+	 * @return the tag
+	 */
+	public String putContentEtag(String index, String type, String body) {
+		String etag = '"' + Hashing.murmur3_128().hashString(body, StandardCharsets.UTF_8).toString() + '"';
+		contentEtags.put(index + '/' + type, etag);
+		return etag;
+	}
+
+	/**
+	 * This method is used to check the If-None-Match header of a request against the given tag. Weak tags are compared
+	 * by their values.
+	 *
+	 * @param ifNoneMatch it is the If-None-Match header or null.
+	 * @param etag        it is the current tag or null.
+	 * @return true if the client has the current version.
+	 */
+	public boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+		String value = stripWeak(etag);
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.equals("*") || stripWeak(candidate).equals(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	/**
+	 * @return the Cache-Control header of the product lists or an empty string.
+	 */
+	public String getCacheControl() {
+		return cacheControl;
+	}
+
+}
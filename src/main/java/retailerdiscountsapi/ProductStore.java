@@ -0,0 +1,66 @@
+package retailerdiscountsapi;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This interface is the storage of the products that the baskets are priced with and that the product lists are read
+ * from. The {@link ElasticProductStore} searches the products in the elastic search and the
+ * {@link InMemoryProductStore} keeps them in memory; the store of the application is selected by the spring profile.
+ * Deleted products, i.e. the products whose deleted tombstone is set, are never found.
+ *
+ * @author gizemabali
+ *
+ */
+public interface ProductStore {
+
+	/**
+	 * This method is used to find the given products of the given index.
+	 *
+	 * @param index           it is the name of the product index.
+	 * @param productNames    it is the unique names of the products that will be found.
+	 * @param productConsumer it is the consumer that gets every found product.
+	 * @return the number of found products
+	 * @throws Exception if the products can not be read
+	 */
+	long findProducts(String index, Set<String> productNames, Consumer<Product> productConsumer) throws Exception;
+
+	/**
+	 * This method is the non-blocking version of {@link #findProducts(String, Set, Consumer)}. The consumer may be
+	 * called on another thread before the returned future is completed.
+	 *
+	 * @return a future that is completed with the number of found products.
+	 */
+	CompletableFuture<Long> findProductsAsync(String index, Set<String> productNames,
+			Consumer<Product> productConsumer);
+
+	/**
+	 * This method is used to find the product documents of the given type ordered by their product names.
+	 *
+	 * @param type  it is the type of the products.
+	 * @param index it is the name of the product index.
+	 * @return the product documents
+	 * @throws Exception if the products can not be read
+	 */
+	JsonArray findTypeRelatedProducts(String type, String index) throws Exception;
+
+	/**
+	 * This method is used to write the product documents of the given type to the given writer as the elements of a
+	 * json array that the caller has begun. The writer is flushed while the products are written, so the whole product
+	 * list does not have to be kept in memory.
+	 *
+	 * @param type   it is the type of the products.
+	 * @param index  it is the name of the product index.
+	 * @param writer it is the writer of the json array.
+	 * @return the number of written products
+	 * @throws Exception if the products can not be read or written
+	 */
+	long writeTypeRelatedProducts(String type, String index, JsonWriter writer) throws Exception;
+
+}
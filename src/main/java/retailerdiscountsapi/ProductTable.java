@@ -0,0 +1,281 @@
+package retailerdiscountsapi;
+
+import java.util.Arrays;
+
+import retailerdiscountsapi.pojos.Product;
+
+/**
+ * This is an open addressing hash table of products by their names. The price and the grocery flag of a product are
+ * packed into one long slot as <code>price &lt;&lt; 1 | grocery</code>, so a lookup returns both without boxing and
+ * without a second lookup. Collisions are resolved with linear probing and removals shift the following entries back,
+ * so there are no deleted markers.
+ *
+ * <p>
+ * The table is not thread safe. A table that is read by many threads must not be changed after it is published; a
+ * changed copy can be created with {@link #copy()} and published instead.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+public final class ProductTable {
+
+	/**
+	 * This is the slot that is returned for the products that are not in the table.
+	 */
+	public static final long MISSING = -1;
+
+	/**
+	 * This is the highest price that can be packed into a slot.
+	 */
+	public static final long MAX_PRICE = Long.MAX_VALUE >>> 1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private String[] keys;
+
+	private long[] slots;
+
+	private int mask;
+
+	private int size;
+
+	/**
+	 * This constructor creates a table that can keep the given number of products without resizing.
+	 *
+	 * @param expectedSize it is the expected number of products.
+	 */
+	public ProductTable(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	private ProductTable(ProductTable other) {
+		this.keys = other.keys.clone();
+		this.slots = other.slots.clone();
+		this.mask = other.mask;
+		this.size = other.size;
+	}
+
+	/**
+	 * @return the capacity that keeps the load factor of the given number of products at most 0.5.
+	 */
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2L) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new String[capacity];
+		slots = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * This method is used to pack the given price and grocery flag into a slot.
+	 *
+	 * @throws IllegalArgumentException if the price is negative or higher than {@link #MAX_PRICE}
+	 */
+	public static long slot(long price, boolean grocery) {
+		if (price < 0 || price > MAX_PRICE) {
+			throw new IllegalArgumentException(String.format("price must be between 0 and %d: %d", MAX_PRICE, price));
+		}
+		return price << 1 | (grocery ? 1 : 0);
+	}
+
+	/**
+	 * @return the price of the given slot.
+	 */
+	public static long price(long slot) {
+		return slot >>> 1;
+	}
+
+	/**
+	 * @return true if the product of the given slot is a groceries product.
+	 */
+	public static boolean isGrocery(long slot) {
+		return (slot & 1) != 0;
+	}
+
+	private static int hash(String productName) {
+		int h = productName.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * This method is used to put the given product into the table.
+	 *
+	 * @param product it is the product that will be put.
+	 */
+	public void put(Product product) {
+		put(product.getProductName(), product.getPrice(), Constants.GROCERIES.equals(product.getType()));
+	}
+
+	/**
+	 * This method is used to put the given product into the table. If the product is already in the table, its price
+	 * and grocery flag are replaced.
+	 *
+	 * @param productName it is the name of the product.
+	 * @param price       it is the price of the product.
+	 * @param grocery     it is true if the product is a groceries product.
+	 */
+	public void put(String productName, long price, boolean grocery) {
+		putSlot(productName, slot(price, grocery));
+	}
+
+	/**
+	 * This method is used to put the given product into the table with a slot that is packed by
+	 * {@link #slot(long, boolean)}, e.g. a slot that is read from another table.
+	 *
+	 * @param productName it is the name of the product.
+	 * @param slot        it is the packed price and grocery flag of the product.
+	 */
+	public void putSlot(String productName, long slot) {
+		int i = hash(productName) & mask;
+		while (keys[i] != null) {
+			if (keys[i].equals(productName)) {
+				slots[i] = slot;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = productName;
+		slots[i] = slot;
+		if (++size * 2 > keys.length) {
+			resize(keys.length << 1);
+		}
+	}
+
+	/**
+	 * This method is used to get the packed price and grocery flag of the given product.
+	 *
+	 * @param productName it is the name of the product.
+	 * @return the slot of the product or {@link #MISSING} if the product is not in the table.
+	 */
+	public long get(String productName) {
+		int i = hash(productName) & mask;
+		String key;
+		while ((key = keys[i]) != null) {
+			if (key.equals(productName)) {
+				return slots[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return MISSING;
+	}
+
+	/**
+	 * @return true if the given product is in the table.
+	 */
+	public boolean contains(String productName) {
+		return get(productName) != MISSING;
+	}
+
+	/**
+	 * This method is used to remove the given product from the table.
+	 *
+	 * @param productName it is the name of the product.
+	 * @return true if the product was in the table.
+	 */
+	public boolean remove(String productName) {
+		int i = hash(productName) & mask;
+		while (keys[i] != null) {
+			if (keys[i].equals(productName)) {
+				shiftBack(i);
+				size--;
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * This method is used to fill the emptied position with the following entries of the same probe sequence, so that
+	 * lookups do not stop at the emptied position.
+	 */
+	private void shiftBack(int emptied) {
+		int i = emptied;
+		while (true) {
+			i = (i + 1) & mask;
+			String key = keys[i];
+			if (key == null) {
+				break;
+			}
+			int home = hash(key) & mask;
+			// the entry can move to the emptied position only if its home is not between the two positions
+			if (((i - home) & mask) >= ((i - emptied) & mask)) {
+				keys[emptied] = key;
+				slots[emptied] = slots[i];
+				emptied = i;
+			}
+		}
+		keys[emptied] = null;
+		slots[emptied] = 0;
+	}
+
+	private void resize(int capacity) {
+		String[] oldKeys = keys;
+		long[] oldSlots = slots;
+		allocate(capacity);
+		for (int j = 0; j < oldKeys.length; j++) {
+			String key = oldKeys[j];
+			if (key != null) {
+				int i = hash(key) & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				slots[i] = oldSlots[j];
+			}
+		}
+	}
+
+	/**
+	 * This method is used to remove all products from the table. The capacity is kept.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	/**
+	 * @return a copy of the table that can be changed without affecting this table.
+	 */
+	public ProductTable copy() {
+		return new ProductTable(this);
+	}
+
+	/**
+	 * This method is used to visit every product of the table.
+	 *
+	 * @param visitor it is the visitor that is called with the name and the slot of every product.
+	 */
+	public void forEach(SlotVisitor visitor) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				visitor.visit(keys[i], slots[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of products in the table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This is the visitor of {@link ProductTable#forEach(SlotVisitor)}.
+	 */
+	@FunctionalInterface
+	public interface SlotVisitor {
+
+		void visit(String productName, long slot);
+	}
+
+}
@@ -0,0 +1,235 @@
+package retailerdiscountsapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * This class is used to read all documents that match a query page by page. Pages are requested with search_after
+ * over a stable sort instead of from/size, so every page costs the same no matter how deep it is and the reading is
+ * not limited by the index.max_result_window setting.
+ *
+ * @author gizemabali
+ *
+ */
+public class SearchAfterPager {
+
+	/**
+	 * This is the tie breaker sort field which makes the sort order total within a shard.
+	 */
+	private static final String DOC_SORT_FIELD = "_doc";
+
+	private static final ApiMetrics metrics = ApiMetrics.getInstance();
+
+	private static final ElasticRequestLimiter limiter = ElasticRequestLimiter.getInstance();
+
+	private static final ElasticRequestOptions requestOptions = ElasticRequestOptions.getInstance();
+
+	private static final ElasticCircuitBreaker circuitBreaker = ElasticCircuitBreaker.getInstance();
+
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	/**
+	 * This is the largest page size that elastic search accepts with the default index.max_result_window setting.
+	 */
+	public static final int MAX_PAGE_SIZE = 10000;
+
+	/**
+	 * This interface is used to consume the hits of every page.
+	 */
+	@FunctionalInterface
+	public interface PageConsumer {
+
+		void accept(SearchHit[] hits) throws Exception;
+	}
+
+	private final RestHighLevelClient client;
+
+	private final String index;
+
+	private final QueryBuilder query;
+
+	private final String sortField;
+
+	private final int pageSize;
+
+	private String[] includedFields;
+
+	/**
+	 * @param client    it is the elastic client that will be used to search.
+	 * @param index     it is the name of the index that will be searched.
+	 * @param query     it is the query that matches the documents.
+	 * @param sortField it is the field that the documents are read in the order of, e.g. a keyword field whose values
+	 *                  are unique per document. Equal values are ordered by the index order of the documents.
+	 * @param pageSize  it is the number of documents that will be requested per page.
+	 */
+	public SearchAfterPager(RestHighLevelClient client, String index, QueryBuilder query, String sortField,
+			int pageSize) {
+		this.client = client;
+		this.index = index;
+		this.query = query;
+		this.sortField = sortField;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * This method is used to fetch only the given source fields of the documents.
+	 *
+	 * @param fields it is the source fields that will be fetched.
+	 * @return this pager
+	 */
+	public SearchAfterPager includeFields(String... fields) {
+		this.includedFields = fields;
+		return this;
+	}
+
+	/**
+	 * This method is used to search all pages one after another and to give the hits of every page to the given
+	 * consumer.
+	 *
+	 * @param consumer it is the consumer of the page hits.
+	 * @return the total number of hits
+	 * @throws Exception
+	 */
+	public long forEachPage(PageConsumer consumer) throws Exception {
+		long startTime = System.nanoTime();
+		boolean success = false;
+		long totalHits = 0;
+		Object[] searchAfter = null;
+		boolean getNextChunk = true;
+		try {
+			while (getNextChunk) {
+				SearchHit[] hits = searchPage(searchAfter);
+				if (hits.length > 0) {
+					consumer.accept(hits);
+					totalHits += hits.length;
+					searchAfter = hits[hits.length - 1].getSortValues();
+				}
+				if (!hasNextPage(hits.length)) {
+					getNextChunk = false;
+				}
+			}
+			success = true;
+		} finally {
+			metrics.recordElasticScan(index, startTime, success);
+		}
+		return totalHits;
+	}
+
+	private SearchHit[] searchPage(Object[] searchAfter) throws Exception {
+		long startTime = System.nanoTime();
+		boolean success = false;
+		try {
+			SearchRequest request = buildRequest(searchAfter);
+			SearchResponse response = limiter.execute(
+					() -> circuitBreaker.execute(() -> client.search(request, requestOptions.getSearchOptions())));
+			SearchHit[] hits = response.getHits().getHits();
+			success = true;
+			metrics.recordPageHits(index, hits.length);
+			return hits;
+		} finally {
+			metrics.recordElasticRequest(ApiMetrics.SEARCH, index, startTime, success);
+		}
+	}
+
+	/**
+	 * This method is used to search all pages one after another without blocking the calling thread. The hits of every
+	 * page are given to the given consumer on a thread of the {@link PricingExecution}, and the next page is requested
+	 * from there. A page that is rejected by the {@link ElasticCircuitBreaker} completes the future exceptionally.
+	 *
+	 * @param consumer it is the consumer of the page hits.
+	 * @return a future that is completed with the total number of hits when the last page is consumed.
+	 */
+	public CompletableFuture<Long> forEachPageAsync(PageConsumer consumer) {
+		long startTime = System.nanoTime();
+		CompletableFuture<Long> future = new CompletableFuture<Long>();
+		searchPageAsync(null, 0, consumer, future);
+		return future.whenComplete((totalHits, e) -> metrics.recordElasticScan(index, startTime, e == null));
+	}
+
+	private void searchPageAsync(Object[] searchAfter, long totalHits, PageConsumer consumer,
+			CompletableFuture<Long> future) {
+		ActionListener<SearchResponse> listener = new ActionListener<SearchResponse>() {
+
+			@Override
+			public void onResponse(SearchResponse response) {
+				try {
+					// the page is consumed on a pricing thread, so the elastic client i/o thread is not held
+					PricingExecution.getInstance().getExecutor().execute(() -> consumePage(response));
+				} catch (RejectedExecutionException e) {
+					future.completeExceptionally(e);
+				}
+			}
+
+			private void consumePage(SearchResponse response) {
+				try {
+					SearchHit[] hits = response.getHits().getHits();
+					metrics.recordPageHits(index, hits.length);
+					if (hits.length > 0) {
+						consumer.accept(hits);
+					}
+					if (!hasNextPage(hits.length)) {
+						future.complete(totalHits + hits.length);
+					} else {
+						searchPageAsync(hits[hits.length - 1].getSortValues(), totalHits + hits.length, consumer,
+								future);
+					}
+				} catch (Exception e) {
+					future.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				future.completeExceptionally(e);
+			}
+		};
+		ActionListener<SearchResponse> trackedListener;
+		try {
+			trackedListener = circuitBreaker.track(listener);
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+			return;
+		}
+		client.searchAsync(buildRequest(searchAfter), requestOptions.getSearchOptions(),
+				metrics.timeElasticRequest(ApiMetrics.SEARCH, index, trackedListener));
+	}
+
+	/**
+	 * This method is used to check if there may be a page after a page of the given number of hits. A page that is not
+	 * full is the last page, so a pager whose page has room for all of its documents searches only once.
+	 *
+	 * @param pageHits it is the number of hits of the page.
+	 * @return true if the next page should be searched
+	 */
+	boolean hasNextPage(int pageHits) {
+		return pageHits >= pageSize;
+	}
+
+	/**
+	 * This method is used to create the search request of the page that comes after the given sort values.
+	 *
+	 * @param searchAfter it is the sort values of the last hit of the previous page, null for the first page.
+	 * @return a search request
+	 */
+	SearchRequest buildRequest(Object[] searchAfter) {
+		SearchSourceBuilder builder = new SearchSourceBuilder().query(query).size(pageSize).trackTotalHits(false)
+				.sort(sortField, SortOrder.ASC).sort(DOC_SORT_FIELD, SortOrder.ASC);
+		if (includedFields != null) {
+			builder.fetchSource(includedFields, null);
+		}
+		if (searchAfter != null) {
+			builder.searchAfter(searchAfter);
+		}
+		return new SearchRequest(index).source(builder);
+	}
+
+}
@@ -0,0 +1,131 @@
+package retailerdiscountsapi;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * This class is used to coalesce concurrent calls with the same key: while a call is in flight, the other calls with
+ * its key do not start their own call but wait for its result. When the call completes, its key is released, so the
+ * next call starts a new one; results are never cached after the call.
+ *
+ * <p>
+ * A result is shared by all callers of the call, so it must not be changed by them. Calls are counted with the
+ * {@value #CALLS} counter by the role tag: leader calls start a call and shared calls wait for one. The coalescing
+ * ratio is shared / (leader + shared).
+ * </p>
+ *
+ * @author gizemabali
+ *
+ * @param <K> it is the type of the keys.
+ * @param <V> it is the type of the results.
+ */
+public class SingleFlight<K, V> {
+
+	public static final String CALLS = "singleflight.calls";
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+	private final Counter leaderCalls;
+
+	private final Counter sharedCalls;
+
+	/**
+	 * @param name it is the name of the calls, it is the name tag of the metrics.
+	 */
+	public SingleFlight(String name) {
+		leaderCalls = Counter.builder(CALLS).description("calls that are coalesced by key").tags("name", name, "role",
+				"leader").register(Metrics.globalRegistry);
+		sharedCalls = Counter.builder(CALLS).description("calls that are coalesced by key").tags("name", name, "role",
+				"shared").register(Metrics.globalRegistry);
+	}
+
+	/**
+	 * This method is used to run the given blocking call on the current thread or to wait for the call with the same
+	 * key that is already in flight.
+	 *
+	 * @param key  it is the key of the call.
+	 * @param call it is the call that is run if no call with the same key is in flight.
+	 * @return the result of the call
+	 * @throws Exception the exception of the call, an error of the call is thrown as it is
+	 */
+	public V execute(K key, Callable<V> call) throws Exception {
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> inFlight = calls.putIfAbsent(key, future);
+		if (inFlight != null) {
+			sharedCalls.increment();
+			try {
+				return inFlight.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception) {
+					throw (Exception) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+		leaderCalls.increment();
+		try {
+			V result = call.call();
+			future.complete(result);
+			return result;
+		} catch (Throwable e) {
+			// the waiting calls must be completed even if the call fails with an error, otherwise they wait forever
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, future);
+		}
+	}
+
+	/**
+	 * This method is used to start the given asynchronous call or to return the call with the same key that is already
+	 * in flight.
+	 *
+	 * @param key  it is the key of the call.
+	 * @param call it is the supplier of the call that is started if no call with the same key is in flight.
+	 * @return a future of the result of the call
+	 */
+	public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> inFlight = calls.putIfAbsent(key, future);
+		if (inFlight != null) {
+			sharedCalls.increment();
+			return inFlight;
+		}
+		leaderCalls.increment();
+		try {
+			call.get().whenComplete((result, e) -> {
+				calls.remove(key, future);
+				if (e != null) {
+					future.completeExceptionally(e);
+				} else {
+					future.complete(result);
+				}
+			});
+		} catch (RuntimeException e) {
+			calls.remove(key, future);
+			future.completeExceptionally(e);
+		} catch (Error e) {
+			calls.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+		return future;
+	}
+
+	/**
+	 * @return the number of calls in flight.
+	 */
+	public int size() {
+		return calls.size();
+	}
+
+}
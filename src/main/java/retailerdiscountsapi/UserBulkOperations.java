@@ -0,0 +1,334 @@
+package retailerdiscountsapi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * This is a component class which is used to index many users at once. Users are read one by one from the request
+ * body, their passwords are hashed in parallel and the documents are sent through a {@link BulkProcessor} with the
+ * bulk consumer of the {@link UserStore} of the application. If the store has no bulk consumer, like the
+ * {@link InMemoryUserStore}, the documents are given to the store one by one instead.
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class UserBulkOperations {
+
+	private static final Logger logger = LogManager.getLogger(UserBulkOperations.class);
+
+	private static final ExternalHashOperations hashOperations = ExternalHashOperations.getInstance();
+
+	private static final UserTierCache userTierCache = UserTierCache.getInstance();
+
+	/**
+	 * This is the maximum number of failures that are listed in the response. All failures are counted.
+	 */
+	private static final int MAX_REPORTED_FAILURES = 1000;
+
+	private static int bulkActions = 1000;
+
+	private static long bulkSizeMb = 5;
+
+	private static long flushIntervalSeconds = 5;
+
+	private static int concurrentRequests = 2;
+
+	/**
+	 * This is the maximum number of users that are read from the request body but not added to the bulk processor yet.
+	 */
+	private static int maxPendingUsers = 10000;
+
+	private static ExecutorService hashExecutor = createHashExecutor(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * This is the store that the users are written to.
+	 */
+	private static volatile UserStore userStore = ElasticUserStore.getInstance();
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final UserBulkOperations instance = new UserBulkOperations();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private UserBulkOperations() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static UserBulkOperations getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the bulk processor and the password hashing threads.
+	 *
+	 * @param actions      it is the number of documents that triggers a bulk request.
+	 * @param sizeMb       it is the size of the documents in megabytes that triggers a bulk request.
+	 * @param flushSeconds it is the number of seconds after which the waiting documents are sent.
+	 * @param concurrent   it is the number of bulk requests that can be in flight at the same time.
+	 * @param pendingUsers it is the maximum number of users that wait for hashing.
+	 * @param hashThreads  it is the number of password hashing threads.
+	 */
+	@Autowired
+	public void configure(@Value("${users.bulk.actions:1000}") int actions,
+			@Value("${users.bulk.size-mb:5}") long sizeMb,
+			@Value("${users.bulk.flush-interval-seconds:5}") long flushSeconds,
+			@Value("${users.bulk.concurrent-requests:2}") int concurrent,
+			@Value("${users.bulk.max-pending-users:10000}") int pendingUsers,
+			@Value("${users.bulk.hash-threads:0}") int hashThreads) {
+		bulkActions = actions;
+		bulkSizeMb = sizeMb;
+		flushIntervalSeconds = flushSeconds;
+		concurrentRequests = concurrent;
+		maxPendingUsers = pendingUsers;
+		ExecutorService oldExecutor = hashExecutor;
+		hashExecutor = createHashExecutor(hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors());
+		oldExecutor.shutdown();
+	}
+
+	/**
+	 * This method is used to set the store that the users are written to.
+	 *
+	 * @param store it is the user store of the active profile.
+	 */
+	@Autowired
+	public void setUserStore(UserStore store) {
+		userStore = store;
+	}
+
+	private static ExecutorService createHashExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("user-hash-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * This method is used to index the users of the given stream to the given index. The stream may have either a
+	 * json array of users or one user object per line (NDJSON). Every user gets the current date as the account
+	 * creation date and its password is hashed before it is indexed, like {@link ElasticClientOperations#createUser}.
+	 * An NDJSON line that is not a user object is counted as a failed user and the next lines are still read. If the
+	 * bulk requests are not completed in a minute, their users are counted as failed.
+	 *
+	 * @param inputStream it is the stream that has the user information objects.
+	 * @param index       it is the name of the index.
+	 * @return an object that has the number of indexed and failed users, the failures and the throughput.
+	 * @throws Exception
+	 */
+	public JsonObject indexUsers(InputStream inputStream, String index) throws Exception {
+		long startTime = System.nanoTime();
+		AtomicLong indexedCount = new AtomicLong();
+		AtomicLong failedCount = new AtomicLong();
+		JsonArray failures = new JsonArray();
+		Map<DocWriteRequest<?>, Long> requestPositions = new ConcurrentHashMap<DocWriteRequest<?>, Long>();
+		UserStore store = userStore;
+		BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer = store.getBulkConsumer(index);
+		BulkProcessor bulkProcessor = bulkConsumer == null ? null
+				: createBulkProcessor(bulkConsumer, requestPositions, indexedCount, failedCount, failures);
+		int maxPending = maxPendingUsers;
+		Semaphore pendingUsers = new Semaphore(maxPending);
+		String accountCreationDate = DateOperations.getInstance().getCurrentDate();
+		long position = 0;
+		boolean closed = false;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			JsonReader arrayReader = null;
+			if (startsWithArray(reader)) {
+				arrayReader = new JsonReader(reader);
+				arrayReader.setLenient(true);
+				arrayReader.beginArray();
+			}
+			while (true) {
+				long userPosition = position;
+				JsonElement userElement;
+				if (arrayReader != null) {
+					if (!arrayReader.hasNext()) {
+						break;
+					}
+					// a malformed array element can not be skipped, so it fails the request
+					userElement = JsonParser.parseReader(arrayReader);
+				} else {
+					String line = reader.readLine();
+					if (line == null) {
+						break;
+					}
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					try {
+						userElement = JsonParser.parseString(line);
+					} catch (JsonParseException e) {
+						userElement = null;
+					}
+				}
+				position++;
+				if (userElement == null || !userElement.isJsonObject()) {
+					addFailure(failures, failedCount, userPosition, Constants.INVALID_USER);
+					continue;
+				}
+				JsonObject userDetailsObj = userElement.getAsJsonObject();
+				pendingUsers.acquire();
+				hashExecutor.execute(() -> {
+					try {
+						userDetailsObj.addProperty(Constants.ACCOUNT_CREATION_DATE, accountCreationDate);
+						String password = userDetailsObj.get(Constants.PASSWORD).getAsString();
+						userDetailsObj.addProperty(Constants.PASSWORD, hashOperations.hashText(password));
+						if (userDetailsObj.has(Constants.USERNAME)) {
+							userTierCache.invalidate(userDetailsObj.get(Constants.USERNAME).getAsString());
+						}
+						if (bulkProcessor == null) {
+							store.indexUser(index, userDetailsObj);
+							indexedCount.incrementAndGet();
+							return;
+						}
+						IndexRequest indexRequest = new IndexRequest(index).source(userDetailsObj.toString(),
+								XContentType.JSON);
+						requestPositions.put(indexRequest, userPosition);
+						bulkProcessor.add(indexRequest);
+					} catch (Exception e) {
+						addFailure(failures, failedCount, userPosition, Constants.INVALID_USER);
+					} finally {
+						pendingUsers.release();
+					}
+				});
+			}
+		} finally {
+			pendingUsers.acquire(maxPending);
+			closed = bulkProcessor == null || bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
+		}
+		if (!closed) {
+			// the users of the bulk requests that are not completed in time are reported as failed
+			logger.error(String.format("%s index: %s, pendingUsers: %d", Constants.COULD_NOT_INDEX_USERS_IN_TIME,
+					index, requestPositions.size()));
+			for (DocWriteRequest<?> docRequest : requestPositions.keySet()) {
+				Long userPosition = requestPositions.remove(docRequest);
+				if (userPosition != null) {
+					addFailure(failures, failedCount, userPosition, Constants.COULD_NOT_INDEX_USERS_IN_TIME);
+				}
+			}
+		}
+		long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		JsonObject responseObj = new JsonObject();
+		responseObj.addProperty(Constants.STATUS,
+				closed && failedCount.get() == 0 ? Constants.SUCCESS : Constants.FAILURE);
+		responseObj.addProperty(Constants.INDEXED, indexedCount.get());
+		responseObj.addProperty(Constants.FAILED, failedCount.get());
+		responseObj.addProperty(Constants.TOOK, tookMillis);
+		long indexed = indexedCount.get();
+		responseObj.addProperty(Constants.USERS_PER_SECOND, tookMillis > 0 ? indexed * 1000 / tookMillis : indexed);
+		synchronized (failures) {
+			// the bulk requests that are not completed in time may still add failures
+			responseObj.add(Constants.FAILURES, failures.deepCopy());
+		}
+		logger.info(String.format("indexed users! index: %s, indexed: %d, failed: %d, took: %d ms", index,
+				indexedCount.get(), failedCount.get(), tookMillis));
+		return responseObj;
+	}
+
+	/**
+	 * This method is used to check if the first character of the given reader that is not a whitespace starts a json
+	 * array. The reader is reset to that character.
+	 */
+	private static boolean startsWithArray(BufferedReader reader) throws IOException {
+		int c;
+		do {
+			reader.mark(1);
+			c = reader.read();
+		} while (c != -1 && Character.isWhitespace(c));
+		if (c != -1) {
+			reader.reset();
+		}
+		return c == '[';
+	}
+
+	private BulkProcessor createBulkProcessor(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer,
+			Map<DocWriteRequest<?>, Long> requestPositions, AtomicLong indexedCount, AtomicLong failedCount,
+			JsonArray failures) {
+		BulkProcessor.Listener listener = new BulkProcessor.Listener() {
+
+			@Override
+			public void beforeBulk(long executionId, BulkRequest request) {
+				logger.debug(String.format("sending users bulk! executionId: %d, numberOfActions: %d", executionId,
+						request.numberOfActions()));
+			}
+
+			@Override
+			public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+				for (BulkItemResponse item : response.getItems()) {
+					Long position = requestPositions.remove(request.requests().get(item.getItemId()));
+					if (item.isFailed()) {
+						addFailure(failures, failedCount, position, item.getFailureMessage());
+					} else {
+						indexedCount.incrementAndGet();
+					}
+				}
+			}
+
+			@Override
+			public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+				logger.error(Constants.COULD_NOT_INDEX_USERS, failure);
+				for (DocWriteRequest<?> docRequest : request.requests()) {
+					addFailure(failures, failedCount, requestPositions.remove(docRequest), failure.getMessage());
+				}
+			}
+		};
+		return BulkProcessor.builder(bulkConsumer, listener).setBulkActions(bulkActions)
+				.setBulkSize(new ByteSizeValue(bulkSizeMb, ByteSizeUnit.MB))
+				.setFlushInterval(TimeValue.timeValueSeconds(flushIntervalSeconds))
+				.setConcurrentRequests(concurrentRequests).build();
+	}
+
+	private void addFailure(JsonArray failures, AtomicLong failedCount, Long position, String reason) {
+		if (failedCount.incrementAndGet() > MAX_REPORTED_FAILURES) {
+			return;
+		}
+		JsonObject failureObj = new JsonObject();
+		failureObj.addProperty(Constants.POSITION, position);
+		failureObj.addProperty(Constants.REASON, reason);
+		synchronized (failures) {
+			failures.add(failureObj);
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package retailerdiscountsapi;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.UserInfo;
+
+/**
+ * This class is used to read the userDetails object of a request directly from a {@link JsonReader} into a
+ * {@link UserInfo}. Flags are read with the same rules as the Gson tree: a missing or null flag is false and a string
+ * flag is true only if it is "true". Unknown fields and the password are skipped.
+ *
+ * @author gizemabali
+ *
+ */
+public class UserInfoAdapter extends TypeAdapter<UserInfo> {
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final UserInfoAdapter instance = new UserInfoAdapter();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private UserInfoAdapter() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static UserInfoAdapter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to read a user information object. The whole object is consumed even if it is not valid, so
+	 * the reader can go on with the next value.
+	 *
+	 * @throws IllegalArgumentException if the value is not a valid user information object
+	 * @throws IOException              if the json is malformed
+	 */
+	@Override
+	public UserInfo read(JsonReader reader) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+			reader.skipValue();
+			throw new IllegalArgumentException(Constants.INVALID_USER);
+		}
+		UserInfo userInfo = new UserInfo();
+		boolean valid = true;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case Constants.EMPLOYEE:
+				Boolean employee = readFlag(reader);
+				valid &= employee != null;
+				userInfo.setEmployee(Boolean.TRUE.equals(employee));
+				break;
+			case Constants.AFFILIATE:
+				Boolean affiliate = readFlag(reader);
+				valid &= affiliate != null;
+				userInfo.setAffiliate(Boolean.TRUE.equals(affiliate));
+				break;
+			case Constants.CUSTOMER:
+				Boolean customer = readFlag(reader);
+				valid &= customer != null;
+				userInfo.setCustomer(Boolean.TRUE.equals(customer));
+				break;
+			case Constants.ACCOUNT_CREATION_DATE:
+				userInfo.setAccountCreationDate(readString(reader));
+				break;
+			case Constants.USERNAME:
+				userInfo.setUsername(readString(reader));
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (!valid) {
+			throw new IllegalArgumentException(Constants.INVALID_USER);
+		}
+		return userInfo;
+	}
+
+	@Override
+	public void write(JsonWriter writer, UserInfo userInfo) throws IOException {
+		writer.beginObject();
+		writer.name(Constants.USERNAME).value(userInfo.getUsername());
+		writer.name(Constants.EMPLOYEE).value(userInfo.isEmployee());
+		writer.name(Constants.AFFILIATE).value(userInfo.isAffiliate());
+		writer.name(Constants.CUSTOMER).value(userInfo.isCustomer());
+		writer.name(Constants.ACCOUNT_CREATION_DATE).value(userInfo.getAccountCreationDate());
+		writer.endObject();
+	}
+
+	/**
+	 * This method is used to read a boolean flag.
+	 *
+	 * @return the flag or null if the value can not be a flag.
+	 */
+	private static Boolean readFlag(JsonReader reader) throws IOException {
+		switch (reader.peek()) {
+		case BOOLEAN:
+			return reader.nextBoolean();
+		case NULL:
+			reader.nextNull();
+			return false;
+		case STRING:
+		case NUMBER:
+			return Boolean.parseBoolean(reader.nextString());
+		default:
+			reader.skipValue();
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to read a string or a number as a string.
+	 *
+	 * @return the string or null if the value is null or can not be a string.
+	 */
+	static String readString(JsonReader reader) throws IOException {
+		switch (reader.peek()) {
+		case STRING:
+		case NUMBER:
+			return reader.nextString();
+		default:
+			reader.skipValue();
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package retailerdiscountsapi;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+import com.google.gson.JsonObject;
+
+/**
+ * This interface is the storage of the users that the baskets with a username are priced for. Users are read as their
+ * tiers, see {@link UserTierCache}. The {@link ElasticUserStore} keeps the users in the elastic search and the
+ * {@link InMemoryUserStore} keeps them in memory; the store of the application is selected by the spring profile.
+ *
+ * @author gizemabali
+ *
+ */
+public interface UserStore {
+
+	/**
+	 * This method is used to find the tiers of the given users of the given index.
+	 *
+	 * @param index     it is the name of the userinfo index.
+	 * @param usernames it is the unique usernames of the users that will be found.
+	 * @return the tiers of the found users by their usernames
+	 * @throws Exception if the users can not be read
+	 */
+	Map<String, Long> findUserTiers(String index, Set<String> usernames) throws Exception;
+
+	/**
+	 * This method is the non-blocking version of {@link #findUserTiers(String, Set)}.
+	 *
+	 * @return a future of the tiers of the found users by their usernames.
+	 */
+	CompletableFuture<Map<String, Long>> findUserTiersAsync(String index, Set<String> usernames);
+
+	/**
+	 * This method is used to store the given user document in the given index. The document already has its hashed
+	 * password and its account creation date.
+	 *
+	 * @param index          it is the name of the userinfo index.
+	 * @param userDetailsObj it is the user document.
+	 * @return the id of the stored document
+	 * @throws Exception if the user can not be stored
+	 */
+	String indexUser(String index, JsonObject userDetailsObj) throws Exception;
+
+	/**
+	 * This method is used to get the consumer that sends the bulk requests of the user documents of the given index.
+	 * The {@link UserBulkOperations} gives it to its bulk processor.
+	 *
+	 * @param index it is the name of the userinfo index.
+	 * @return the consumer of the bulk requests or null if the store has no bulk requests, then the users are given to
+	 *         {@link #indexUser(String, JsonObject)} one by one
+	 */
+	BiConsumer<BulkRequest, ActionListener<BulkResponse>> getBulkConsumer(String index);
+
+}
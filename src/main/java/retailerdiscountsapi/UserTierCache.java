@@ -0,0 +1,247 @@
+package retailerdiscountsapi;
+
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.ForwardingCache;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * This is an in-process near cache of the discount tiers of the users in the userinfo index. It is used in front of
+ * the elastic search so that the baskets that carry only a username are priced with the authoritative user
+ * information without a search per basket. Entries are evicted after the configured ttl or, least recently used
+ * first, when the cache is full. Usernames that are not in the index are cached for a shorter ttl, so a new user is
+ * found soon after it is created. Hit, miss and eviction counters are published to the actuator metrics under the
+ * name {@value #CACHE_NAME}.
+ *
+ * <p>
+ * A tier is not the user document but one long: the low byte has the user flags of the user and a bit that tells if
+ * the account creation time is known, and the other bits have the account creation time in milliseconds. The account
+ * age is calculated from the creation time when a basket is priced, so a cached user gets the account age rule of its
+ * current age, even when the rules have more than one account age rule for its user flags.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class UserTierCache {
+
+	private static final Logger logger = LogManager.getLogger(UserTierCache.class);
+
+	public static final String CACHE_NAME = "userTiers";
+
+	private static final long USER_FLAGS_MASK =
+			DiscountPlan.EMPLOYEE_FLAG | DiscountPlan.AFFILIATE_FLAG | DiscountPlan.CUSTOMER_FLAG;
+
+	private static final long ACCOUNT_CREATION_FLAG = 1 << 4;
+
+	private static final int ACCOUNT_CREATION_SHIFT = 8;
+
+	/**
+	 * This is the tiers by usernames. It is replaced once when the spring context configures the cache.
+	 */
+	private static volatile Cache<String, Long> cache = buildCache(100000, 60);
+
+	/**
+	 * This is the cache whose statistics are published to the actuator metrics. It forwards to the current cache, so
+	 * the metrics are registered once and follow the cache when it is configured again.
+	 */
+	private static final Cache<String, Long> monitoredCache = GuavaCacheMetrics.monitor(Metrics.globalRegistry,
+			new ForwardingCache<String, Long>() {
+
+				@Override
+				protected Cache<String, Long> delegate() {
+					return cache;
+				}
+			}, CACHE_NAME);
+
+	/**
+	 * This is the usernames that are not found in the userinfo index.
+	 */
+	private static volatile Cache<String, Boolean> unknownUsers = buildCache(10000, 5);
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final UserTierCache instance = new UserTierCache();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private UserTierCache() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static UserTierCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to configure the size and the ttls of the cache. Existing entries are dropped and the
+	 * statistics of the actuator metrics start again.
+	 *
+	 * @param maximumSize       it is the maximum number of users that will be kept in the cache.
+	 * @param ttlSeconds        it is the number of seconds that a tier will be kept in the cache after it is written.
+	 * @param unknownTtlSeconds it is the number of seconds that an unknown username will be kept in the cache.
+	 */
+	@Autowired
+	public void configure(@Value("${users.tier-cache.maximum-size:100000}") long maximumSize,
+			@Value("${users.tier-cache.ttl-seconds:60}") long ttlSeconds,
+			@Value("${users.tier-cache.unknown-ttl-seconds:5}") long unknownTtlSeconds) {
+		cache = buildCache(maximumSize, ttlSeconds);
+		unknownUsers = buildCache(maximumSize, unknownTtlSeconds);
+		logger.info(String.format("user tier cache is configured! maximumSize: %d, ttlSeconds: %d, "
+				+ "unknownTtlSeconds: %d", maximumSize, ttlSeconds, unknownTtlSeconds));
+	}
+
+	private static <V> Cache<String, V> buildCache(long maximumSize, long ttlSeconds) {
+		return CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats().build();
+	}
+
+	/**
+	 * This method is used to create the tier of a user.
+	 *
+	 * @param userFlags             it is the user flags, see {@link DiscountPlan#userFlags(boolean, boolean, boolean)}.
+	 * @param accountCreationMillis it is the account creation time of the user in milliseconds or null if it is not
+	 *                              known.
+	 * @return the tier
+	 */
+	public static long tier(int userFlags, Long accountCreationMillis) {
+		long tier = userFlags & USER_FLAGS_MASK;
+		if (accountCreationMillis != null) {
+			tier |= ACCOUNT_CREATION_FLAG | (accountCreationMillis << ACCOUNT_CREATION_SHIFT);
+		}
+		return tier;
+	}
+
+	/**
+	 * This method is used to read the tier of the given user document, i.e. its user flags and its account creation
+	 * time.
+	 *
+	 * @param userObj it is the user document.
+	 * @return the tier
+	 * @throws ParseException if the account creation date is not valid
+	 */
+	public static long readTier(JsonObject userObj) throws ParseException {
+		int userFlags = DiscountPlan.userFlags(isTrue(userObj, Constants.EMPLOYEE),
+				isTrue(userObj, Constants.AFFILIATE), isTrue(userObj, Constants.CUSTOMER));
+		JsonElement accountCreationDate = userObj.get(Constants.ACCOUNT_CREATION_DATE);
+		if (accountCreationDate == null || accountCreationDate.isJsonNull()) {
+			return tier(userFlags, null);
+		}
+		return tier(userFlags, DateOperations.getInstance().parseDateMillis(accountCreationDate.getAsString()));
+	}
+
+	private static boolean isTrue(JsonObject userObj, String name) {
+		JsonElement value = userObj.get(name);
+		return value != null && value.isJsonPrimitive() && value.getAsBoolean();
+	}
+
+	/**
+	 * @return the user flags of the given tier.
+	 */
+	public static int userFlags(long tier) {
+		return (int) (tier & USER_FLAGS_MASK);
+	}
+
+	/**
+	 * @return true if the account creation time of the given tier is known.
+	 */
+	public static boolean hasAccountCreation(long tier) {
+		return (tier & ACCOUNT_CREATION_FLAG) != 0;
+	}
+
+	/**
+	 * @return the account creation time of the given tier in milliseconds.
+	 */
+	public static long accountCreationMillis(long tier) {
+		return tier >> ACCOUNT_CREATION_SHIFT;
+	}
+
+	/**
+	 * This method is used to look up the given usernames in the cache. Cached tiers are put into the found map, the
+	 * usernames that are cached as unknown are skipped and the others are added to the missing list.
+	 *
+	 * @param usernames it is the usernames that will be looked up.
+	 * @param found     it is the map that will be filled with the cached tiers by the usernames.
+	 * @param missing   it is the list that will be filled with the usernames that are not cached.
+	 */
+	public void lookup(Collection<String> usernames, Map<String, Long> found, List<String> missing) {
+		for (String username : usernames) {
+			Long tier = cache.getIfPresent(username);
+			if (tier != null) {
+				found.put(username, tier);
+			} else if (unknownUsers.getIfPresent(username) == null) {
+				missing.add(username);
+			}
+		}
+	}
+
+	/**
+	 * This method is used to cache the tier of the given user.
+	 *
+	 * @param username it is the username.
+	 * @param tier     it is the tier of the user.
+	 */
+	public void put(String username, long tier) {
+		cache.put(username, tier);
+		unknownUsers.invalidate(username);
+	}
+
+	/**
+	 * This method is used to cache the given username as unknown.
+	 *
+	 * @param username it is the username that is not found in the userinfo index.
+	 */
+	public void putUnknown(String username) {
+		unknownUsers.put(username, Boolean.TRUE);
+	}
+
+	/**
+	 * This method is used to remove the given user from the cache, e.g. when it is created again.
+	 *
+	 * @param username it is the username.
+	 */
+	public void invalidate(String username) {
+		cache.invalidate(username);
+		unknownUsers.invalidate(username);
+	}
+
+	/**
+	 * This method is used to remove all users from the cache.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+		unknownUsers.invalidateAll();
+	}
+
+	/**
+	 * @return the number of cached tiers.
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+}
@@ -0,0 +1,130 @@
+package retailerdiscountsapi;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.ProtocolHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component is used to run the http requests on virtual threads instead of the tomcat thread pool. A request that
+ * waits for the elastic search then only parks its virtual thread, so the number of requests in flight is not limited
+ * by the number of platform threads; the {@link ElasticRequestLimiter} limits the requests that reach the elastic
+ * search instead.
+ *
+ * <p>
+ * Virtual threads are a feature of Java 21, while the application is built for Java 11, so they are created by
+ * reflection. If they are not supported by the running JVM, the mode is not enabled and the tomcat thread pool is
+ * kept.
+ * </p>
+ *
+ * @author gizemabali
+ *
+ */
+@Component
+public class VirtualThreadExecution implements TomcatProtocolHandlerCustomizer<ProtocolHandler> {
+
+	private static final Logger logger = LogManager.getLogger(VirtualThreadExecution.class);
+
+	private static final String THREAD_NAME_PREFIX = "http-virtual-";
+
+	/**
+	 * This is the executor of the http requests or null if the mode is not enabled.
+	 */
+	private static volatile ExecutorService executor;
+
+	/**
+	 * Singleton utility class instance.
+	 */
+	private static final VirtualThreadExecution instance = new VirtualThreadExecution();
+
+	/**
+	 * Default constructor made private to prevent outside access. Use singleton method getter {@link #getInstance()}
+	 * instead.
+	 *
+	 * @see #getInstance()
+	 */
+	private VirtualThreadExecution() {
+	}
+
+	/**
+	 * Getter for the singleton instance.
+	 */
+	public static VirtualThreadExecution getInstance() {
+		return instance;
+	}
+
+	/**
+	 * This method is used to enable or disable the virtual thread mode.
+	 *
+	 * @param enabled it is true if the http requests should run on virtual threads.
+	 */
+	@Autowired
+	public void configure(@Value("${execution.virtual-threads.enabled:false}") boolean enabled) {
+		ExecutorService newExecutor = null;
+		if (enabled) {
+			newExecutor = newVirtualThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+			if (newExecutor == null) {
+				logger.warn(String.format("virtual threads are not supported by java %s! platform threads are used.",
+						System.getProperty("java.version")));
+			}
+		}
+		ExecutorService oldExecutor = executor;
+		executor = newExecutor;
+		if (oldExecutor != null) {
+			oldExecutor.shutdown();
+		}
+		logger.info(String.format("virtual thread execution is configured! enabled: %b", newExecutor != null));
+	}
+
+	/**
+	 * This method is used to run the requests of the given tomcat connector on virtual threads if the mode is enabled.
+	 */
+	@Override
+	public void customize(ProtocolHandler protocolHandler) {
+		ExecutorService currentExecutor = executor;
+		if (currentExecutor != null) {
+			protocolHandler.setExecutor(currentExecutor);
+		}
+	}
+
+	/**
+	 * @return true if the http requests run on virtual threads.
+	 */
+	public boolean isEnabled() {
+		return executor != null;
+	}
+
+	/**
+	 * This method is used to create an executor that starts a new virtual thread for every task.
+	 *
+	 * @param threadNamePrefix it is the prefix of the thread names, the threads are numbered after it.
+	 * @return the executor or null if virtual threads are not supported by the running JVM
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory);
+		} catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException e) {
+			return null;
+		} catch (InvocationTargetException e) {
+			// virtual threads are a preview feature before java 21
+			if (e.getCause() instanceof UnsupportedOperationException) {
+				return null;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+}
@@ -1,22 +1,52 @@
 package retailerdiscountsapi.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.google.common.io.CountingOutputStream;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
+import retailerdiscountsapi.AdminAccess;
+import retailerdiscountsapi.ApiMetrics;
+import retailerdiscountsapi.BasketRequestAdapter;
+import retailerdiscountsapi.CatalogSnapshot;
+import retailerdiscountsapi.Constants;
+import retailerdiscountsapi.DiscountRuleEngine;
+import retailerdiscountsapi.ElasticCircuitBreaker;
 import retailerdiscountsapi.ElasticClientOperations;
+import retailerdiscountsapi.ProductCatalog;
+import retailerdiscountsapi.ProductCatalogCache;
+import retailerdiscountsapi.ProductEtags;
+import retailerdiscountsapi.UserBulkOperations;
+import retailerdiscountsapi.VirtualThreadExecution;
+import retailerdiscountsapi.pojos.BasketRequest;
 
 /**
  * This controller is used to perform api operations.
@@ -29,6 +59,22 @@ public class RetailerDiscountsController {
 
 	private static final Logger logger = LogManager.getLogger(RetailerDiscountsController.class);
 
+	private static final ApiMetrics metrics = ApiMetrics.getInstance();
+
+	private static final String PRODUCTS = "products";
+
+	private static final String CALCULATE_BASKET = "calculatebasket";
+
+	private static final String CALCULATE_BASKETS = "calculatebaskets";
+
+	private static final String USER = "user";
+
+	private static final String USERS = "users";
+
+	private static final String DISCOUNT_RULES = "discountrules";
+
+	private static final String CATALOG_SNAPSHOT = "catalogsnapshot";
+
 	/**
 	 * This is a rest client of elastic to perform elastic requests.
 	 */
@@ -36,40 +82,156 @@ public class RetailerDiscountsController {
 	RestHighLevelClient client;
 
 	/**
-	 * This api is used to get products of certain types.
+	 * This api is used to get products of certain types. The response has an ETag from the {@link ProductEtags}; a
+	 * request whose If-None-Match has the current tag gets 304 Not Modified without a body. If the product list can not
+	 * be read, e.g. while the {@link ElasticCircuitBreaker} is open, the last known product list is answered without a
+	 * tag and with the {@value Constants#STALE_WARNING} Warning header.
 	 * 
-	 * @param type it is the parameter that indicates product type.
+	 * @param type        it is the parameter that indicates product type.
+	 * @param ifNoneMatch it is the tags of the product lists that the client has.
 	 * @return a ResponseEntity object to the client.
 	 */
 	@CrossOrigin
 	@RequestMapping(value = "products/{type}", produces = MediaType.APPLICATION_JSON_VALUE)
-	public ResponseEntity<String> getTypeRelatedProducts(@PathVariable String type) {
+	public ResponseEntity<String> getTypeRelatedProducts(@PathVariable String type,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ProductEtags productEtags = ProductEtags.getInstance();
+		String etag = productEtags.getEtag("product", type);
+		if (productEtags.matches(ifNoneMatch, etag)) {
+			metrics.recordNotModified(PRODUCTS);
+			return productsResponse(HttpStatus.NOT_MODIFIED, etag).build();
+		}
 		try {
-			return ResponseEntity
-					.ok(ElasticClientOperations.getInstance().getTypeRelatedProducts(type, "product").toString());
+			String body;
+			try {
+				body = ElasticClientOperations.getInstance().getTypeRelatedProducts(type, "product").toString();
+			} catch (Exception e) {
+				JsonArray staleProducts = ElasticClientOperations.getInstance().getStaleTypeRelatedProducts(type,
+						"product");
+				if (staleProducts == null) {
+					throw e;
+				}
+				logger.warn(String.format("%s type: %s, error: %s", Constants.COULD_NOT_SEARCH_PRODUCTS_ANSWERED_STALE,
+						type, e.getMessage()));
+				return recordResponse(PRODUCTS, productsResponse(HttpStatus.OK, null)
+						.header(HttpHeaders.WARNING, Constants.STALE_WARNING).body(staleProducts.toString()));
+			}
+			etag = productEtags.putContentEtag("product", type, body);
+			if (productEtags.matches(ifNoneMatch, etag)) {
+				metrics.recordNotModified(PRODUCTS);
+				return productsResponse(HttpStatus.NOT_MODIFIED, etag).build();
+			}
+			return recordResponse(PRODUCTS, productsResponse(HttpStatus.OK, etag).body(body));
 		} catch (Exception e) {
 			logger.error("getProducts", e);
-			return sendErrorResponse();
+			return sendErrorResponse(PRODUCTS, e);
 		}
 	}
 
 	/**
-	 * This api is used to calculate total prices of the products in the basket according to the given user detail
-	 * information inside of the request body.
+	 * This api is used to get products of certain types when the stream parameter is true. Products are written to the
+	 * response while they are read from the elastic search instead of being collected first. The hash of a streamed
+	 * list is not known before it is written, so streamed responses have no tag; a request whose If-None-Match has the
+	 * tag that a {@link #getTypeRelatedProducts(String, String)} response of the type has just got is still answered
+	 * with 304 Not Modified. If the products can not be read after the response is started, the
+	 * response is aborted. While the {@link ElasticCircuitBreaker} is open, the request is answered like
+	 * {@link #getTypeRelatedProducts(String, String)}. The body must be declared as a {@link StreamingResponseBody},
+	 * otherwise spring writes it as a json object instead of streaming it.
 	 * 
-	 * @param basketAndUserDetails it is the request body that has the information of the products in the basket and the
-	 *                             user information of the current user that has the basket.
+	 * @param type        it is the parameter that indicates product type.
+	 * @param ifNoneMatch it is the tags of the product lists that the client has.
 	 * @return a ResponseEntity object to the client.
 	 */
 	@CrossOrigin
+	@RequestMapping(value = "products/{type}", params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamTypeRelatedProducts(@PathVariable String type,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ProductEtags productEtags = ProductEtags.getInstance();
+		String etag = productEtags.getEtag("product", type);
+		if (productEtags.matches(ifNoneMatch, etag)) {
+			metrics.recordNotModified(PRODUCTS);
+			return productsResponse(HttpStatus.NOT_MODIFIED, etag).build();
+		}
+		if (ElasticCircuitBreaker.getInstance().isOpen()) {
+			ResponseEntity<String> response = getTypeRelatedProducts(type, ifNoneMatch);
+			byte[] body = response.getBody() != null ? response.getBody().getBytes(StandardCharsets.UTF_8) : null;
+			return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders())
+					.body(body != null ? outputStream -> outputStream.write(body) : null);
+		}
+		StreamingResponseBody body = outputStream -> {
+			CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+			try {
+				ElasticClientOperations.getInstance().streamTypeRelatedProducts(type, "product", countingStream);
+			} catch (Exception e) {
+				logger.error("streamProducts", e);
+				metrics.recordError(PRODUCTS, e);
+				// the status and a part of the products are already written, so the response is aborted instead of
+				// being finished as a truncated json array
+				throw e instanceof IOException ? (IOException) e : new IOException(e);
+			} finally {
+				metrics.recordResponseSize(PRODUCTS, countingStream.getCount());
+			}
+		};
+		return productsResponse(HttpStatus.OK, null).contentType(MediaType.APPLICATION_JSON).body(body);
+	}
+
+	/**
+	 * This api is used to calculate total prices of the products in the basket according to the given user detail
+	 * information inside of the request body. The request body is read as a stream into a {@link BasketRequest}. The
+	 * request thread is released while the products are searched in the elastic search and the response is written
+	 * when the returned future is completed. When the requests run on virtual threads, the products are searched on the
+	 * request thread instead, since waiting does not hold a platform thread.
+	 * 
+	 * @param basketAndUserDetails it is the stream of the request body that has the information of the products in the
+	 *                             basket and the user information of the current user that has the basket.
+	 * @return a future of the ResponseEntity object to the client.
+	 */
+	@CrossOrigin
 	@PostMapping("calculatebasket")
-	public ResponseEntity<String> calculateBasket(@RequestBody String basketAndUserDetails) {
+	public CompletableFuture<ResponseEntity<String>> calculateBasket(InputStream basketAndUserDetails) {
 		try {
-			JsonObject basketAndUserDetailsObj = JsonParser.parseString(basketAndUserDetails).getAsJsonObject();
-			return ElasticClientOperations.getInstance().calculateBasket(basketAndUserDetailsObj, "product");
+			long startTime = System.nanoTime();
+			BasketRequest basket = BasketRequestAdapter.getInstance().readBasket(basketAndUserDetails);
+			metrics.recordDecode(startTime);
+			if (VirtualThreadExecution.getInstance().isEnabled()) {
+				return CompletableFuture.completedFuture(recordResponse(CALCULATE_BASKET,
+						ElasticClientOperations.getInstance().calculateBasket(basket, "product")));
+			}
+			return ElasticClientOperations.getInstance().calculateBasketAsync(basket, "product")
+					.thenApply(response -> recordResponse(CALCULATE_BASKET, response)).exceptionally(e -> {
+						logger.error("calculateBasketError", e);
+						return sendErrorResponse(CALCULATE_BASKET, e);
+					});
 		} catch (Exception e) {
 			logger.error("calculateBasketError", e);
-			return sendErrorResponse();
+			return CompletableFuture.completedFuture(sendErrorResponse(CALCULATE_BASKET, e));
+		}
+	}
+
+	/**
+	 * This api is used to calculate total prices of many baskets in one call. The request body is an array of objects
+	 * that have the same fields as the {@link #calculateBasket(InputStream)} request body. The response is an array that
+	 * has either the total price or the error of every basket in the same order.
+	 * 
+	 * @param basketAndUserDetailsList it is the stream of the request body that has the list of baskets and user
+	 *                                 information.
+	 * @return a future of the ResponseEntity object to the client.
+	 */
+	@CrossOrigin
+	@PostMapping("calculatebaskets")
+	public CompletableFuture<ResponseEntity<String>> calculateBaskets(InputStream basketAndUserDetailsList) {
+		try {
+			long startTime = System.nanoTime();
+			List<BasketRequest> baskets = BasketRequestAdapter.getInstance().readBaskets(basketAndUserDetailsList);
+			metrics.recordDecode(startTime);
+			return ElasticClientOperations.getInstance().calculateBasketsAsync(baskets, "product")
+					.thenApply(response -> recordResponse(CALCULATE_BASKETS, response)).exceptionally(e -> {
+						logger.error("calculateBasketsError", e);
+						return sendErrorResponse(CALCULATE_BASKETS, e);
+					});
+		} catch (Exception e) {
+			logger.error("calculateBasketsError", e);
+			return CompletableFuture.completedFuture(sendErrorResponse(CALCULATE_BASKETS, e));
 		}
 	}
 
@@ -87,22 +249,183 @@ public class RetailerDiscountsController {
 			return ElasticClientOperations.getInstance().createUser(userDetailsObj, "userinfo");
 		} catch (Exception e) {
 			logger.error("calculateBasketError", e);
-			return sendErrorResponse();
+			return sendErrorResponse(USER, e);
 		}
 	}
 
 	/**
-	 * This method creates and unexpected error occur response to the user when an expected error occur!
+	 * This api is used to create many users in the elasticsearch at once. The request body is either a json array of
+	 * user detail objects or one user detail object per line (NDJSON).
+	 * 
+	 * @param userDetailsList it is the stream of the request body that has the user information objects.
+	 * @return a ResponseEntity object to the client that has the number of indexed and failed users.
+	 */
+	@CrossOrigin
+	@PostMapping("users")
+	public ResponseEntity<String> createUsers(InputStream userDetailsList) {
+		try {
+			JsonObject responseObj = UserBulkOperations.getInstance().indexUsers(userDetailsList, "userinfo");
+			return ResponseEntity.ok(responseObj.toString());
+		} catch (Exception e) {
+			logger.error("createUsersError", e);
+			return sendErrorResponse(USERS, e);
+		}
+	}
+
+	/**
+	 * This api is used to get the current discount rules.
+	 * 
+	 * @return a ResponseEntity object to the client that has the discount rules.
+	 */
+	@CrossOrigin
+	@GetMapping(value = "discountrules", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<String> getDiscountRules() {
+		return ResponseEntity.ok(DiscountRuleEngine.getInstance().getRulesJson());
+	}
+
+	/**
+	 * This api is used to replace the discount rules at runtime. The new rules are compiled before they are used, so
+	 * invalid rules are rejected and the current rules are kept. It is an admin api, see {@link AdminAccess}.
+	 * 
+	 * @param adminToken    it is the admin token of the request.
+	 * @param discountRules it is the request body that has the discount rules.
+	 * @return a ResponseEntity object to the client.
+	 */
+	@PutMapping("discountrules")
+	public ResponseEntity<String> updateDiscountRules(
+			@RequestHeader(value = Constants.ADMIN_TOKEN_HEADER, required = false) String adminToken,
+			@RequestBody String discountRules) {
+		if (!AdminAccess.getInstance().isAuthorized(adminToken)) {
+			return sendForbiddenResponse();
+		}
+		JsonObject responseObj = new JsonObject();
+		try {
+			DiscountRuleEngine.getInstance().load(discountRules);
+			responseObj.addProperty(Constants.STATUS, Constants.SUCCESS);
+			return ResponseEntity.ok(responseObj.toString());
+		} catch (JsonParseException | IllegalArgumentException e) {
+			logger.error("updateDiscountRulesError", e);
+			metrics.recordError(DISCOUNT_RULES, e);
+			responseObj.addProperty(Constants.STATUS, Constants.FAILURE);
+			responseObj.addProperty(Constants.ERROR, e.getMessage());
+			return ResponseEntity.badRequest().body(responseObj.toString());
+		}
+	}
+
+	/**
+	 * This api is used to remove products from the product catalog cache. If the productName parameter is not given,
+	 * all cached products are removed. It is an admin api, see {@link AdminAccess}.
+	 * 
+	 * @param adminToken  it is the admin token of the request.
+	 * @param productName it is the name of the product that will be removed from the cache.
+	 * @return a ResponseEntity object to the client.
+	 */
+	@DeleteMapping("catalogcache")
+	public ResponseEntity<String> invalidateCatalogCache(
+			@RequestHeader(value = Constants.ADMIN_TOKEN_HEADER, required = false) String adminToken,
+			@RequestParam(required = false) String productName) {
+		if (!AdminAccess.getInstance().isAuthorized(adminToken)) {
+			return sendForbiddenResponse();
+		}
+		if (productName != null) {
+			ProductCatalogCache.getInstance().invalidate("product", productName);
+		} else {
+			ProductCatalogCache.getInstance().invalidateAll();
+		}
+		JsonObject responseObj = new JsonObject();
+		responseObj.addProperty(Constants.STATUS, Constants.SUCCESS);
+		return ResponseEntity.ok(responseObj.toString());
+	}
+
+	/**
+	 * This api is used to read the product catalog from the elastic search and to write it to the catalog snapshot
+	 * file. It is an admin api, see {@link AdminAccess}.
+	 * 
+	 * @param adminToken it is the admin token of the request.
+	 * @return a ResponseEntity object to the client that has the version and the product count of the new catalog.
+	 */
+	@PostMapping("catalogsnapshot")
+	public ResponseEntity<String> refreshCatalogSnapshot(
+			@RequestHeader(value = Constants.ADMIN_TOKEN_HEADER, required = false) String adminToken) {
+		if (!AdminAccess.getInstance().isAuthorized(adminToken)) {
+			return sendForbiddenResponse();
+		}
+		try {
+			CatalogSnapshot snapshot = ProductCatalog.getInstance().refresh();
+			JsonObject responseObj = new JsonObject();
+			responseObj.addProperty(Constants.STATUS, Constants.SUCCESS);
+			responseObj.addProperty(Constants.VERSION, snapshot.getVersion());
+			responseObj.addProperty(Constants.PRODUCT_COUNT, snapshot.getProducts().size());
+			return ResponseEntity.ok(responseObj.toString());
+		} catch (Exception e) {
+			logger.error("refreshCatalogSnapshotError", e);
+			return sendErrorResponse(CATALOG_SNAPSHOT, e);
+		}
+	}
+
+	/**
+	 * This method is used to create a product list response with the given tag and the configured Cache-Control.
+	 * 
+	 * @param status it is the status of the response.
+	 * @param etag   it is the tag of the product list or null.
+	 * @return a builder of the response
+	 */
+	private ResponseEntity.BodyBuilder productsResponse(HttpStatus status, String etag) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+		if (etag != null) {
+			builder.eTag(etag);
+		}
+		String cacheControl = ProductEtags.getInstance().getCacheControl();
+		if (!cacheControl.isEmpty()) {
+			builder.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+		}
+		return builder;
+	}
+
+	/**
+	 * This method is used to record the size of the response body of the given api and to count the response if it is
+	 * answered from the last known good products.
+	 * 
+	 * @return the given response
+	 */
+	private ResponseEntity<String> recordResponse(String endpoint, ResponseEntity<String> response) {
+		if (response.getBody() != null) {
+			metrics.recordResponseSize(endpoint, response.getBody().length());
+		}
+		if (response.getHeaders().containsKey(HttpHeaders.WARNING)) {
+			metrics.recordStale(endpoint);
+		}
+		return response;
+	}
+
+	/**
+	 * This method creates and unexpected error occur response to the user when an expected error occur! The error is
+	 * counted by the given api.
 	 * <ul>
 	 * <li><code>{"response":{@value Constants.ErrorMessages.UNEXPECTED_ERROR_OCCUR}}</code></li>
 	 * </ul>
 	 * 
+	 * @param endpoint it is the name of the api.
+	 * @param e        it is the error.
 	 * @return a ResponseEntity object
 	 */
-	private ResponseEntity<String> sendErrorResponse() {
+	private ResponseEntity<String> sendErrorResponse(String endpoint, Throwable e) {
+		metrics.recordError(endpoint, e);
 		JsonObject responseObj = new JsonObject();
 		responseObj.addProperty("response", "unexpected error occur!");
 		return ResponseEntity.status(500).body(responseObj.toString());
 	}
 
+	/**
+	 * This method is used to reject an admin api request that does not have a valid admin token.
+	 * 
+	 * @return a ResponseEntity object to the client.
+	 */
+	private ResponseEntity<String> sendForbiddenResponse() {
+		JsonObject responseObj = new JsonObject();
+		responseObj.addProperty(Constants.STATUS, Constants.FAILURE);
+		responseObj.addProperty(Constants.ERROR, Constants.ADMIN_TOKEN_REQUIRED);
+		return ResponseEntity.status(HttpStatus.FORBIDDEN).body(responseObj.toString());
+	}
+
 }
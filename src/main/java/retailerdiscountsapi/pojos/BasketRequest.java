@@ -0,0 +1,60 @@
+package retailerdiscountsapi.pojos;
+
+/**
+ * This is the class for the calculatebasket request body. Basket lines are kept in parallel arrays where the product
+ * at index i has the amount at index i. Every product name appears once; if the request has the same product more than
+ * once, the last amount is used. The user is either given with its details or only with its username, whose details
+ * are then read from the userinfo index.
+ *
+ * @author gizemabali
+ *
+ */
+public class BasketRequest {
+
+	private UserInfo userInfo;
+
+	private String username;
+
+	private String[] productNames;
+
+	private int[] amounts;
+
+	public UserInfo getUserInfo() {
+		return userInfo;
+	}
+
+	public void setUserInfo(UserInfo userInfo) {
+		this.userInfo = userInfo;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public String[] getProductNames() {
+		return productNames;
+	}
+
+	public void setProductNames(String[] productNames) {
+		this.productNames = productNames;
+	}
+
+	public int[] getAmounts() {
+		return amounts;
+	}
+
+	public void setAmounts(int[] amounts) {
+		this.amounts = amounts;
+	}
+
+	/**
+	 * @return the number of the basket lines.
+	 */
+	public int getLineCount() {
+		return productNames.length;
+	}
+}
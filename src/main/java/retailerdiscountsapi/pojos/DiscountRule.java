@@ -0,0 +1,53 @@
+package retailerdiscountsapi.pojos;
+
+import java.util.List;
+
+/**
+ * This is the class for a percentage based discount rule of the discount rules configuration
+ * 
+ * @author gizemabali
+ *
+ */
+public class DiscountRule {
+
+	private String name;
+
+	private List<String> userTypes;
+
+	private long minimumAccountAgeMillis;
+
+	private long percent;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<String> getUserTypes() {
+		return userTypes;
+	}
+
+	public void setUserTypes(List<String> userTypes) {
+		this.userTypes = userTypes;
+	}
+
+	public long getMinimumAccountAgeMillis() {
+		return minimumAccountAgeMillis;
+	}
+
+	public void setMinimumAccountAgeMillis(long minimumAccountAgeMillis) {
+		this.minimumAccountAgeMillis = minimumAccountAgeMillis;
+	}
+
+	public long getPercent() {
+		return percent;
+	}
+
+	public void setPercent(long percent) {
+		this.percent = percent;
+	}
+
+}
@@ -0,0 +1,43 @@
+package retailerdiscountsapi.pojos;
+
+import java.util.List;
+
+/**
+ * This is the class for the discount rules configuration
+ * 
+ * @author gizemabali
+ *
+ */
+public class DiscountRules {
+
+	private List<DiscountRule> percentageRules;
+
+	private long billThreshold;
+
+	private long billDiscount;
+
+	public List<DiscountRule> getPercentageRules() {
+		return percentageRules;
+	}
+
+	public void setPercentageRules(List<DiscountRule> percentageRules) {
+		this.percentageRules = percentageRules;
+	}
+
+	public long getBillThreshold() {
+		return billThreshold;
+	}
+
+	public void setBillThreshold(long billThreshold) {
+		this.billThreshold = billThreshold;
+	}
+
+	public long getBillDiscount() {
+		return billDiscount;
+	}
+
+	public void setBillDiscount(long billDiscount) {
+		this.billDiscount = billDiscount;
+	}
+
+}
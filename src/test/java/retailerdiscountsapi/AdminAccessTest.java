@@ -0,0 +1,45 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AdminAccessTest {
+
+	private AdminAccess adminAccess = AdminAccess.getInstance();
+
+	@After
+	public void tearDown() {
+		adminAccess.configure("");
+	}
+
+	@Test
+	public void isAuthorized() {
+		// set up
+		adminAccess.configure("secret");
+
+		// execute
+		boolean authorized = adminAccess.isAuthorized("secret");
+
+		// assert
+		assertTrue(authorized);
+		assertFalse(adminAccess.isAuthorized("Secret"));
+		assertFalse(adminAccess.isAuthorized(null));
+	}
+
+	@Test
+	public void isAuthorized_noToken() {
+		// set up
+		adminAccess.configure("");
+
+		// execute
+		boolean authorized = adminAccess.isAuthorized("");
+
+		// assert
+		assertFalse(authorized);
+		assertFalse(adminAccess.isAuthorized(null));
+	}
+
+}
@@ -0,0 +1,65 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ApiMetricsTest {
+
+	private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private ApiMetrics metrics = ApiMetrics.getInstance();
+
+	@Before
+	public void setUp() {
+		Metrics.addRegistry(registry);
+	}
+
+	@After
+	public void tearDown() {
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void recordElasticRequest() {
+		// execute
+		metrics.recordElasticRequest(ApiMetrics.SEARCH, "product", System.nanoTime(), true);
+		metrics.recordElasticRequest(ApiMetrics.SEARCH, "product", System.nanoTime(), true);
+		metrics.recordElasticRequest(ApiMetrics.SEARCH, "product", System.nanoTime(), false);
+
+		// assert
+		assertEquals(2, registry.get(ApiMetrics.ELASTIC_REQUESTS).tags("operation", "search", "outcome", "success")
+				.timer().count());
+		assertEquals(1, registry.get(ApiMetrics.ELASTIC_REQUESTS).tags("operation", "search", "outcome", "failure")
+				.timer().count());
+	}
+
+	@Test
+	public void recordError_unwrapsCompletionException() {
+		// execute
+		metrics.recordError("calculatebasket", new CompletionException(new IOException()));
+
+		// assert
+		assertEquals(1, registry.get(ApiMetrics.ERRORS).tags("endpoint", "calculatebasket", "exception", "IOException")
+				.counter().count(), 0);
+	}
+
+	@Test
+	public void recordBasketLines() {
+		// execute
+		metrics.recordBasketLines(3);
+		metrics.recordBasketLines(5);
+
+		// assert
+		assertEquals(8, registry.get(ApiMetrics.BASKET_LINES).summary().totalAmount(), 0);
+	}
+
+}
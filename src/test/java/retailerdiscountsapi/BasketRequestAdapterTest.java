@@ -0,0 +1,154 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.JsonParser;
+
+import retailerdiscountsapi.pojos.BasketRequest;
+
+public class BasketRequestAdapterTest {
+
+	private static final String BASKET = "{\"userDetails\":{\"username\":\"example@mail.com\",\"password\":\"secret\","
+			+ "\"accountCreationDate\":\"2016-12-16 00:12:47\",\"customer\":true,\"affiliate\":\"true\","
+			+ "\"employee\":null},\"basketDetails\":[{\"productName\":\"Apple Cherry Fruit\",\"amount\":3},"
+			+ "{\"productName\":\"Abeeco Raw Honey\",\"amount\":\"2\"},{\"productName\":\"Apple Cherry Fruit\","
+			+ "\"amount\":5}],\"comment\":{\"ignored\":[1,2]}}";
+
+	private BasketRequestAdapter adapter = BasketRequestAdapter.getInstance();
+
+	@After
+	public void tearDown() {
+		adapter.configure(true);
+	}
+
+	@Test
+	public void readBasket() throws Exception {
+		// execute
+		BasketRequest basket = adapter.readBasket(toStream(BASKET));
+
+		// assert
+		assertArrayEquals(new String[] { "Apple Cherry Fruit", "Abeeco Raw Honey" }, basket.getProductNames());
+		assertArrayEquals(new int[] { 5, 2 }, basket.getAmounts());
+		assertEquals("example@mail.com", basket.getUserInfo().getUsername());
+		assertEquals("2016-12-16 00:12:47", basket.getUserInfo().getAccountCreationDate());
+		assertNull(basket.getUserInfo().getPassword());
+		assertTrue(basket.getUserInfo().isCustomer());
+		assertTrue(basket.getUserInfo().isAffiliate());
+		assertFalse(basket.getUserInfo().isEmployee());
+	}
+
+	@Test
+	public void fromJsonTree() {
+		// execute
+		BasketRequest basket = adapter.fromJsonTree(JsonParser.parseString(BASKET));
+
+		// assert
+		assertArrayEquals(new String[] { "Apple Cherry Fruit", "Abeeco Raw Honey" }, basket.getProductNames());
+		assertArrayEquals(new int[] { 5, 2 }, basket.getAmounts());
+		assertTrue(basket.getUserInfo().isAffiliate());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readBasket_missingAmount() throws Exception {
+		// execute
+		adapter.readBasket(toStream("{\"userDetails\":{},\"basketDetails\":[{\"productName\":\"Apple Cherry Fruit\"}]}"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readBasket_fractionalAmount() throws Exception {
+		// execute
+		adapter.readBasket(toStream("{\"userDetails\":{},\"basketDetails\":[{\"productName\":\"Apple Cherry Fruit\","
+				+ "\"amount\":3.5}]}"));
+	}
+
+	@Test
+	public void readBasket_manyDuplicateLines() throws Exception {
+		// set up
+		StringBuilder body = new StringBuilder("{\"username\":\"example@mail.com\",\"basketDetails\":[");
+		for (int i = 0; i < 100; i++) {
+			body.append(i == 0 ? "" : ",").append("{\"productName\":\"product").append(i % 40)
+					.append("\",\"amount\":").append(i).append("}");
+		}
+		body.append("]}");
+
+		// execute
+		BasketRequest basket = adapter.readBasket(toStream(body.toString()));
+
+		// assert
+		assertEquals(40, basket.getLineCount());
+		for (int i = 0; i < 40; i++) {
+			assertEquals("product" + i, basket.getProductNames()[i]);
+			assertEquals(i < 20 ? i + 80 : i + 40, basket.getAmounts()[i]);
+		}
+	}
+
+	@Test
+	public void readBaskets_invalidBasket() throws Exception {
+		// set up
+		String baskets = "[" + BASKET + ",{\"userDetails\":{\"customer\":[true]},\"basketDetails\":[{\"amount\":1}]},"
+				+ "{\"basketDetails\":[]}," + BASKET + "]";
+
+		// execute
+		List<BasketRequest> result = adapter.readBaskets(toStream(baskets));
+
+		// assert
+		assertEquals(4, result.size());
+		assertNotNull(result.get(0));
+		assertNull(result.get(1));
+		assertNull(result.get(2));
+		assertArrayEquals(new int[] { 5, 2 }, result.get(3).getAmounts());
+	}
+
+	@Test
+	public void readBasket_username() throws Exception {
+		// execute
+		BasketRequest basket = adapter.readBasket(toStream("{\"username\":\"example@mail.com\","
+				+ "\"basketDetails\":[{\"productName\":\"Apple Cherry Fruit\",\"amount\":3}]}"));
+
+		// assert
+		assertEquals("example@mail.com", basket.getUsername());
+		assertNull(basket.getUserInfo());
+		assertArrayEquals(new int[] { 3 }, basket.getAmounts());
+	}
+
+	@Test
+	public void readBasket_clientUserDetailsDisabled() throws Exception {
+		// set up
+		adapter.configure(false);
+
+		// execute
+		BasketRequest basket = adapter.readBasket(toStream(BASKET.replace("{\"userDetails\"",
+				"{\"username\":\"other@mail.com\",\"userDetails\"")));
+
+		// assert
+		assertEquals("other@mail.com", basket.getUsername());
+		assertNull(basket.getUserInfo());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readBasket_clientUserDetailsDisabledWithoutUsername() throws Exception {
+		// set up
+		adapter.configure(false);
+
+		// execute
+		adapter.readBasket(toStream(BASKET));
+	}
+
+	private InputStream toStream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,85 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CatalogSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		ProductCatalog.getInstance().configure("", "product", 0, 0, 5);
+	}
+
+	@Test
+	public void writeAndRead() throws Exception {
+		// set up
+		Path path = folder.getRoot().toPath().resolve("catalog.snapshot");
+		ProductTable products = new ProductTable(2);
+		products.put("Red Carpet", 100, false);
+		products.put("Bananas \u011f\u00fc\u015f", 3, true);
+
+		// execute
+		CatalogSnapshot written = CatalogSnapshot.write(path, products, 42, 7);
+		CatalogSnapshot read = CatalogSnapshot.read(path);
+
+		// assert
+		assertEquals(42, read.getVersion());
+		assertEquals(7, read.getWatermark());
+		assertEquals(written.getChecksum(), read.getChecksum());
+		assertEquals(2, read.getProducts().size());
+		assertEquals(100, ProductTable.price(read.getProducts().get("Red Carpet")));
+		assertTrue(ProductTable.isGrocery(read.getProducts().get("Bananas \u011f\u00fc\u015f")));
+	}
+
+	@Test(expected = IOException.class)
+	public void read_corrupted() throws Exception {
+		// set up
+		Path path = folder.getRoot().toPath().resolve("catalog.snapshot");
+		ProductTable products = new ProductTable(1);
+		products.put("Red Carpet", 100, false);
+		CatalogSnapshot.write(path, products, 42, 7);
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.seek(30);
+			file.write(file.read() ^ 1);
+		}
+
+		// execute
+		CatalogSnapshot.read(path);
+	}
+
+	@Test
+	public void configure_loadsSnapshot() throws Exception {
+		// set up
+		Path path = folder.getRoot().toPath().resolve("catalog.snapshot");
+		ProductTable products = new ProductTable(1);
+		products.put("Red Carpet", 100, false);
+		CatalogSnapshot.write(path, products, 42, 7);
+		ProductTable found = new ProductTable(2);
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		ProductCatalog.getInstance().configure(path.toString(), "product", 0, 0, 5);
+		ProductCatalog.getInstance().lookup("product", Arrays.asList("Red Carpet", "Bananas"), found, missing);
+
+		// assert
+		assertEquals(42, ProductCatalog.getInstance().getVersion());
+		assertEquals(7, ProductCatalog.getInstance().getWatermark());
+		assertEquals(100, ProductTable.price(found.get("Red Carpet")));
+		assertEquals(Arrays.asList("Bananas"), missing);
+	}
+
+}
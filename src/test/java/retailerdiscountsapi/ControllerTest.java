@@ -1,13 +1,20 @@
 package retailerdiscountsapi;
 
 import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.HashMap;
 
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -60,6 +67,8 @@ public class ControllerTest {
 				Mockito.anyLong());
 		Mockito.doCallRealMethod().when(operations).getProductDetails(Mockito.anyString(),
 				Mockito.any(BoolQueryBuilder.class), Mockito.any(HashMap.class), Mockito.any(HashMap.class));
+		Mockito.doCallRealMethod().when(operations).getProductDetails(Mockito.anyString(),
+				Mockito.any(Collection.class), Mockito.any(HashMap.class), Mockito.any(HashMap.class));
 
 		Mockito.doCallRealMethod().when(operations).indexDocument(Mockito.anyString(), Mockito.any(),
 				Mockito.anyString());
@@ -68,6 +77,7 @@ public class ControllerTest {
 		Mockito.doCallRealMethod().when(operations).createUser(Mockito.any(JsonObject.class), Mockito.anyString());
 
 		operations.setClient(testClient);
+		DateOperations.getInstance().setClock(Clock.fixed(Instant.parse("2021-06-01T09:00:00Z"), ZoneOffset.UTC));
 		clientUtils = new ClientUtils(testClient);
 
 		if (clientUtils.indexAvailable(PRODUCT_INDEX)) {
@@ -87,6 +97,11 @@ public class ControllerTest {
 		clientUtils.createIndex(USERINFO_INDEX, null, 1);
 	}
 
+	@After
+	public void tearDown() {
+		DateOperations.getInstance().setClock(Clock.systemUTC());
+	}
+
 	@Autowired
 	private MockMvc mockMvc;
 	
@@ -111,6 +126,27 @@ public class ControllerTest {
 		assertEquals("must be ok reponse!", 200, response.getResponse().getStatus());
 	}
 	
+	@Test
+	public void getCategory_stream() throws Exception {
+		// set up
+		String initialQuestionsStr = "[{\"productName\":\"Blue Shoes\",\"type\":\"shoes\",\"price\":200},{\"productName\":\"Blue Dress\",\"type\":\"garment\",\"price\":400},{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100},{\"productName\":\"Red Sofa\",\"type\":\"home\",\"price\":150},{\"productName\":\"Bananas\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Mango\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Apple\",\"type\":\"groceries\",\"price\":15}]";
+		JsonArray initialQuestions = JsonParser.parseString(initialQuestionsStr).getAsJsonArray();
+		indexDocuments(initialQuestions);
+		clientUtils.refresh(PRODUCT_INDEX);
+
+		// execute
+		MvcResult asyncResult = mockMvc.perform(get("/products/home?stream=true").contentType("application/json"))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andExpect(status().isOk()).andReturn();
+		String responseStr = response.getResponse().getContentAsString();
+
+		// assert
+		String expectedProducts = "[{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100},{\"productName\":\"Red Sofa\",\"type\":\"home\",\"price\":150}]";
+		assertEquals("expectedProducts has two products!", JsonParser.parseString(expectedProducts).getAsJsonArray(),
+				JsonParser.parseString(responseStr).getAsJsonArray());
+		assertEquals("must be ok reponse!", 200, response.getResponse().getStatus());
+	}
+
 	@Test
 	public void getCategory_failure() throws Exception {
 		// set up
@@ -193,8 +229,10 @@ public class ControllerTest {
 
 		// execute
 		String userInfo = "{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":true,\"affiliate\":true,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]}";
-		MvcResult response = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
-				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andReturn();
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
 		MockHttpServletResponse resp = response.getResponse();
 		String responseStr = resp.getContentAsString();
 
@@ -215,8 +253,10 @@ public class ControllerTest {
 
 		// execute
 		String userInfo = "{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":false,\"affiliate\":true,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]}";
-		MvcResult response = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
-				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andReturn();
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
 		MockHttpServletResponse resp = response.getResponse();
 		String responseStr = resp.getContentAsString();
 
@@ -240,8 +280,10 @@ public class ControllerTest {
 
 		// execute
 		String userInfo = "{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":false,\"affiliate\":true,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]}";
-		MvcResult response = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
-				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andReturn();
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
 		MockHttpServletResponse resp = response.getResponse();
 		String responseStr = resp.getContentAsString();
 
@@ -263,8 +305,10 @@ public class ControllerTest {
 
 		// execute
 		String userInfo = "{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":false,\"affiliate\":false,\"customer\":true,\"accountCreationDate\":\"2016-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]}";
-		MvcResult response = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
-				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andReturn();
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
 		MockHttpServletResponse resp = response.getResponse();
 		String responseStr = resp.getContentAsString();
 
@@ -286,8 +330,10 @@ public class ControllerTest {
 
 		// execute
 		String userInfo = "{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":false,\"affiliate\":false,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]}";
-		MvcResult response = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
-				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andReturn();
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebasket").content(userInfo)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
 		MockHttpServletResponse resp = response.getResponse();
 		String responseStr = resp.getContentAsString();
 
@@ -298,6 +344,30 @@ public class ControllerTest {
 		assertEquals("must be ok reponse!", 200, response.getResponse().getStatus());
 	}
 
+	@Test
+	public void calculateBaskets() throws Exception {
+		// set up
+		String initialQuestionsStr = "[{\"productName\":\"Blue Shoes\",\"type\":\"shoes\",\"price\":200},{\"productName\":\"Blue Dress\",\"type\":\"garment\",\"price\":400},{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100},{\"productName\":\"Red Sofa\",\"type\":\"home\",\"price\":150},{\"productName\":\"Bananas\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Mango\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Apple\",\"type\":\"groceries\",\"price\":15}]";
+		JsonArray initialQuestions = JsonParser.parseString(initialQuestionsStr).getAsJsonArray();
+		indexDocuments(initialQuestions);
+		clientUtils.refresh(PRODUCT_INDEX);
+
+		// execute
+		String baskets = "[{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":true,\"affiliate\":true,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Red Carpet\",\"amount\":1},{\"productName\":\"Blue Dress\",\"amount\":2},{\"productName\":\"Bananas\",\"amount\":1}]},{\"userDetails\":{\"username\":\"example@mail.com\",\"employee\":false,\"affiliate\":true,\"customer\":true,\"accountCreationDate\":\"2020-12-16 00:12:47\"},\"basketDetails\":[{\"productName\":\"Unknown Product\",\"amount\":1}]},{\"basketDetails\":[]}]";
+		MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/calculatebaskets").content(baskets)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
+		MockHttpServletResponse resp = response.getResponse();
+		String responseStr = resp.getContentAsString();
+
+		// assert
+		String expectedResponse = "[{\"totalPrice\":615},{\"error\":\"product not found: Unknown Product\"},{\"error\":\"invalid basket\"}]";
+		assertEquals("every basket must have its own result!", JsonParser.parseString(expectedResponse).getAsJsonArray(),
+				JsonParser.parseString(responseStr).getAsJsonArray());
+		assertEquals("must be ok reponse!", 200, response.getResponse().getStatus());
+	}
+
 	private void indexDocuments(JsonArray initialQuestions) {
 		for (int i = 0; i < initialQuestions.size(); i++) {
 			try {
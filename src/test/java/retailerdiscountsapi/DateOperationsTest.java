@@ -0,0 +1,64 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DateOperationsTest {
+
+	private DateOperations dateOperations = DateOperations.getInstance();
+
+	@After
+	public void tearDown() {
+		dateOperations.setClock(Clock.systemUTC());
+	}
+
+	@Test
+	public void parseDateMillis() throws ParseException {
+		// set up
+		String[] dates = { "2020-12-16 00:12:47", "2016-02-29 23:59:59", "1999-12-31 21:00:00", "2000-03-01 00:00:00",
+				"1970-01-01 03:00:00", "2100-02-28 12:30:00" };
+		SimpleDateFormat sdf = new SimpleDateFormat(DateOperations.DATE_FORMAT);
+		sdf.setTimeZone(TimeZone.getTimeZone("GMT+3"));
+
+		for (String date : dates) {
+			// assert
+			assertEquals(date, sdf.parse(date).getTime(), dateOperations.parseDateMillis(date));
+		}
+	}
+
+	@Test
+	public void parseDateMillis_lenient() throws ParseException {
+		// set up
+		SimpleDateFormat sdf = new SimpleDateFormat(DateOperations.DATE_FORMAT);
+		sdf.setTimeZone(TimeZone.getTimeZone("GMT+3"));
+
+		// assert
+		assertEquals(sdf.parse("2020-13-01 00:00:00").getTime(), dateOperations.parseDateMillis("2020-13-01 00:00:00"));
+		assertEquals(sdf.parse("2020-1-1 0:0:0").getTime(), dateOperations.parseDateMillis("2020-1-1 0:0:0"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void parseDateMillis_invalid() throws ParseException {
+		dateOperations.parseDateMillis("not a date");
+	}
+
+	@Test
+	public void setClock() {
+		// execute
+		dateOperations.setClock(Clock.fixed(Instant.parse("2020-12-15T21:12:47Z"), ZoneOffset.UTC));
+
+		// assert
+		assertEquals("2020-12-16 00:12:47", dateOperations.getCurrentDate());
+		assertEquals(Instant.parse("2020-12-15T21:12:47Z").toEpochMilli(), dateOperations.currentTimeMillis());
+	}
+
+}
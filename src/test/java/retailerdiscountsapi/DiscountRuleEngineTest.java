@@ -0,0 +1,137 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DiscountRuleEngineTest {
+
+	private static final long TWO_YEARS_MILLIS = 63113904000L;
+
+	private DiscountRuleEngine engine = DiscountRuleEngine.getInstance();
+
+	@After
+	public void tearDown() throws Exception {
+		engine.configure(DiscountRuleEngine.DEFAULT_RULES_LOCATION);
+	}
+
+	@Test
+	public void defaultRules_employee() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+		int userFlags = DiscountPlan.userFlags(true, true, true);
+
+		// execute
+		int rule = plan.findRule(userFlags, 0);
+
+		// assert
+		assertFalse(plan.requiresAccountAge(userFlags));
+		assertEquals("employee", plan.getRuleName(rule));
+		assertEquals(308, plan.applyPercentageDiscount(rule, 440));
+	}
+
+	@Test
+	public void defaultRules_affiliate() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+		int userFlags = DiscountPlan.userFlags(false, true, true);
+
+		// execute
+		int rule = plan.findRule(userFlags, 0);
+
+		// assert
+		assertEquals(810, plan.applyPercentageDiscount(rule, 900));
+	}
+
+	@Test
+	public void defaultRules_customerOver2Years() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+		int userFlags = DiscountPlan.userFlags(false, false, true);
+
+		// execute
+		int rule = plan.findRule(userFlags, TWO_YEARS_MILLIS + 1);
+
+		// assert
+		assertTrue(plan.requiresAccountAge(userFlags));
+		assertEquals(855, plan.applyPercentageDiscount(rule, 900));
+	}
+
+	@Test
+	public void defaultRules_customerNotOver2Years() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+		int userFlags = DiscountPlan.userFlags(false, false, true);
+
+		// execute
+		int rule = plan.findRule(userFlags, TWO_YEARS_MILLIS);
+
+		// assert
+		assertEquals(DiscountPlan.NO_RULE, rule);
+		assertEquals(900, plan.applyPercentageDiscount(rule, 900));
+	}
+
+	@Test
+	public void defaultRules_billDiscount() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+
+		// assert
+		assertEquals(945, plan.applyBillDiscount(990));
+		assertEquals(99, plan.applyBillDiscount(99));
+	}
+
+	@Test
+	public void load() {
+		// execute
+		engine.load("{\"percentageRules\":[{\"name\":\"everyone\",\"percent\":20}],\"billThreshold\":0}");
+
+		// assert
+		DiscountPlan plan = engine.getPlan();
+		int rule = plan.findRule(DiscountPlan.userFlags(false, false, false), 0);
+		assertEquals(80, plan.applyPercentageDiscount(rule, 100));
+		assertEquals(990, plan.applyBillDiscount(990));
+	}
+
+	@Test
+	public void load_accountAgeTiers() {
+		// set up
+		long fiveYearsMillis = 157784760000L;
+		long threeYearsMillis = 94670856000L;
+		int userFlags = DiscountPlan.userFlags(false, false, true);
+
+		// execute
+		engine.load("{\"percentageRules\":[{\"name\":\"customerOver5Years\",\"userTypes\":[\"customer\"],"
+				+ "\"minimumAccountAgeMillis\":" + fiveYearsMillis + ",\"percent\":10},"
+				+ "{\"name\":\"customerOver2Years\",\"userTypes\":[\"customer\"],"
+				+ "\"minimumAccountAgeMillis\":" + TWO_YEARS_MILLIS + ",\"percent\":5}]}");
+
+		// assert
+		DiscountPlan plan = engine.getPlan();
+		assertTrue(plan.requiresAccountAge(userFlags));
+		assertEquals(950, plan.applyPercentageDiscount(plan.findRule(userFlags, threeYearsMillis), 1000));
+		assertEquals(900, plan.applyPercentageDiscount(plan.findRule(userFlags, fiveYearsMillis + 1), 1000));
+		assertEquals(DiscountPlan.NO_RULE, plan.findRule(userFlags, TWO_YEARS_MILLIS));
+	}
+
+	@Test
+	public void load_invalidRulesKeepsCurrentRules() {
+		// set up
+		DiscountPlan plan = engine.getPlan();
+
+		// execute
+		try {
+			engine.load("{\"percentageRules\":[{\"name\":\"tooMuch\",\"percent\":120}]}");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// assert
+		assertSame(plan, engine.getPlan());
+	}
+
+}
@@ -0,0 +1,120 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ElasticCircuitBreakerTest {
+
+	private ElasticCircuitBreaker circuitBreaker = ElasticCircuitBreaker.getInstance();
+
+	@After
+	public void tearDown() {
+		circuitBreaker.configure(true, 50, 50, 2000, 20, 10, 10000, 3);
+	}
+
+	@Test
+	public void execute_opensOnFailureRate() throws Exception {
+		// set up
+		circuitBreaker.configure(true, 50, 100, 60000, 4, 4, 60000, 1);
+		circuitBreaker.execute(() -> "response");
+		circuitBreaker.execute(() -> "response");
+
+		// execute
+		failCalls(2);
+
+		// assert
+		assertEquals(ElasticCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		try {
+			circuitBreaker.execute(() -> "response");
+			fail("the open breaker must reject the call");
+		} catch (RejectedExecutionException e) {
+			assertEquals(Constants.ELASTIC_CIRCUIT_OPEN, e.getMessage());
+		}
+	}
+
+	@Test
+	public void execute_staysClosedBelowMinimumCalls() throws Exception {
+		// set up
+		circuitBreaker.configure(true, 50, 100, 60000, 10, 5, 60000, 1);
+
+		// execute
+		failCalls(4);
+
+		// assert
+		assertEquals(ElasticCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals("response", circuitBreaker.execute(() -> "response"));
+	}
+
+	@Test
+	public void execute_opensOnSlowCallRate() throws Exception {
+		// set up
+		circuitBreaker.configure(true, 100, 50, 0, 2, 2, 60000, 1);
+
+		// execute
+		circuitBreaker.execute(() -> "response");
+		circuitBreaker.execute(() -> "response");
+
+		// assert
+		assertEquals(ElasticCircuitBreaker.State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void execute_halfOpenProbesClose() throws Exception {
+		// set up
+		circuitBreaker.configure(true, 50, 100, 60000, 2, 2, 0, 2);
+		failCalls(2);
+
+		// execute
+		circuitBreaker.execute(() -> "probe");
+		ElasticCircuitBreaker.State stateAfterFirstProbe = circuitBreaker.getState();
+		circuitBreaker.execute(() -> "probe");
+
+		// assert
+		assertEquals(ElasticCircuitBreaker.State.HALF_OPEN, stateAfterFirstProbe);
+		assertEquals(ElasticCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void execute_failedProbeOpens() throws Exception {
+		// set up
+		circuitBreaker.configure(true, 50, 100, 60000, 2, 2, 0, 2);
+		failCalls(2);
+
+		// execute
+		failCalls(1);
+
+		// assert
+		assertEquals(ElasticCircuitBreaker.State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void execute_disabled() throws Exception {
+		// set up
+		circuitBreaker.configure(false, 50, 100, 60000, 2, 2, 60000, 1);
+
+		// execute
+		failCalls(4);
+
+		// assert
+		assertEquals("response", circuitBreaker.execute(() -> "response"));
+	}
+
+	private void failCalls(int callCount) throws Exception {
+		for (int i = 0; i < callCount; i++) {
+			try {
+				circuitBreaker.execute(() -> {
+					throw new IOException("timeout");
+				});
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class ElasticClientFactoryTest {
+
+	private static final String SEARCH_RESPONSE = "{\"took\":1,\"timed_out\":false,"
+			+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+			+ "\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":[{\"_index\":\"product\","
+			+ "\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"productName\":\"apple\"}}]}}";
+
+	private HttpServer server;
+
+	private volatile String acceptEncoding;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			byte[] body = SEARCH_RESPONSE.getBytes(StandardCharsets.UTF_8);
+			if ("gzip".equals(acceptEncoding)) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+					gzip.write(body);
+				}
+				body = compressed.toByteArray();
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			}
+			exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		ElasticRequestOptions.getInstance().configure(new ElasticClientSettings());
+	}
+
+	@Test
+	public void createClient_compressedSearch() throws IOException {
+		// set up
+		ElasticClientSettings settings = createSettings();
+		settings.setCompressionEnabled(true);
+
+		// execute
+		SearchResponse response;
+		try (RestHighLevelClient client = ElasticClientFactory.createClient(settings, null)) {
+			response = client.search(new SearchRequest("product"),
+					ElasticRequestOptions.getInstance().getSearchOptions());
+		}
+
+		// assert
+		assertEquals("gzip", acceptEncoding);
+		assertEquals(1, response.getHits().getHits().length);
+		assertEquals("apple", response.getHits().getAt(0).getSourceAsMap().get("productName"));
+	}
+
+	@Test
+	public void createClient_uncompressedSearch() throws IOException {
+		// set up
+		ElasticClientSettings settings = createSettings();
+
+		// execute
+		SearchResponse response;
+		try (RestHighLevelClient client = ElasticClientFactory.createClient(settings, null)) {
+			response = client.search(new SearchRequest("product"),
+					ElasticRequestOptions.getInstance().getSearchOptions());
+		}
+
+		// assert
+		assertNull(acceptEncoding);
+		assertEquals("apple", response.getHits().getAt(0).getSourceAsMap().get("productName"));
+	}
+
+	@Test
+	public void configure_bulkOptions() {
+		// set up
+		ElasticClientSettings settings = createSettings();
+		settings.setCompressionEnabled(true);
+
+		// execute
+		ElasticRequestOptions.getInstance().configure(settings);
+
+		// assert
+		assertEquals(1, ElasticRequestOptions.getInstance().getSearchOptions().getHeaders().size());
+		assertTrue(ElasticRequestOptions.getInstance().getBulkOptions().getHeaders().isEmpty());
+	}
+
+	private ElasticClientSettings createSettings() {
+		ElasticClientSettings settings = new ElasticClientSettings();
+		settings.setNodes(Arrays.asList("http://localhost:" + server.getAddress().getPort()));
+		settings.setMaxConnectionsPerRoute(2);
+		settings.setKeepAliveMillis(1000);
+		settings.setIoThreadCount(1);
+		return settings;
+	}
+
+}
@@ -4,7 +4,9 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
 
 import org.elasticsearch.client.RestHighLevelClient;
@@ -46,6 +48,8 @@ public class ElasticClientOperationsTest {
 				Mockito.anyLong());
 		Mockito.doCallRealMethod().when(operations).getProductDetails(Mockito.anyString(),
 				Mockito.any(BoolQueryBuilder.class), Mockito.any(HashMap.class), Mockito.any(HashMap.class));
+		Mockito.doCallRealMethod().when(operations).getProductDetails(Mockito.anyString(),
+				Mockito.any(Collection.class), Mockito.any(HashMap.class), Mockito.any(HashMap.class));
 
 		Mockito.doCallRealMethod().when(operations).indexDocument(Mockito.anyString(), Mockito.any(),
 				Mockito.anyString());
@@ -118,6 +122,27 @@ public class ElasticClientOperationsTest {
 		assertEquals(100, otherProducts.get("Red Carpet"));
 	}
 	
+	@Test
+	public void getProductDetails_productNames() throws Exception {
+		// set up
+		String initialQuestionsStr = "[{\"productName\":\"Blue Shoes\",\"type\":\"shoes\",\"price\":200},{\"productName\":\"Blue Dress\",\"type\":\"garment\",\"price\":400},{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100},{\"productName\":\"Red Sofa\",\"type\":\"home\",\"price\":150},{\"productName\":\"Bananas\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Mango\",\"type\":\"groceries\",\"price\":15},{\"productName\":\"Apple\",\"type\":\"groceries\",\"price\":15}]";
+		JsonArray initialQuestions = JsonParser.parseString(initialQuestionsStr).getAsJsonArray();
+		indexDocuments(initialQuestions);
+		clientUtils.refresh(PRODUCT_INDEX);
+		HashMap<String, Long> groceriesProducts = new HashMap<String, Long>();
+		HashMap<String, Long> otherProducts = new HashMap<String, Long>();
+
+		// execute
+		operations.getProductDetails(PRODUCT_INDEX, Arrays.asList("Red Carpet", "Bananas", "Red Carpet"),
+				groceriesProducts, otherProducts);
+
+		// assert
+		assertEquals(1, groceriesProducts.size());
+		assertEquals(15, groceriesProducts.get("Bananas"));
+		assertEquals(1, otherProducts.size());
+		assertEquals(100, otherProducts.get("Red Carpet"));
+	}
+
 	@Test
 	public void calculateBasket() throws Exception {
 		// set up
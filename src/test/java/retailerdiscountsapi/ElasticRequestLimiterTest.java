@@ -0,0 +1,73 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ElasticRequestLimiterTest {
+
+	private ElasticRequestLimiter limiter = ElasticRequestLimiter.getInstance();
+
+	@After
+	public void tearDown() {
+		limiter.configure(-1, 1000, false);
+	}
+
+	@Test
+	public void configure_defaultLimit() {
+		// execute
+		limiter.configure(-1, 1000, false);
+		int platformThreadLimit = limiter.getMaxConcurrentRequests();
+		limiter.configure(-1, 1000, true);
+
+		// assert
+		assertEquals(0, platformThreadLimit);
+		assertEquals(ElasticRequestLimiter.DEFAULT_VIRTUAL_THREAD_LIMIT, limiter.getMaxConcurrentRequests());
+	}
+
+	@Test
+	public void execute() throws Exception {
+		// set up
+		limiter.configure(1, 10);
+
+		// execute
+		String result = limiter.execute(() -> "response");
+
+		// assert
+		assertEquals("response", result);
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void execute_noPermit() throws Exception {
+		// set up
+		limiter.configure(1, 10);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try {
+				limiter.execute(() -> {
+					started.countDown();
+					finished.await();
+					return null;
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		thread.start();
+		started.await();
+
+		// execute
+		try {
+			limiter.execute(() -> "response");
+		} finally {
+			finished.countDown();
+			thread.join();
+		}
+	}
+
+}
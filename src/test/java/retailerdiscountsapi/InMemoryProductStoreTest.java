@@ -0,0 +1,114 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import retailerdiscountsapi.pojos.Product;
+
+public class InMemoryProductStoreTest {
+
+	private static final String PRODUCT_INDEX = "product";
+
+	private static final String PRODUCTS = "[{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":100,"
+			+ "\"updatedAt\":1609459200000},"
+			+ "{\"productName\":\"Blue Carpet\",\"type\":\"home\",\"price\":120},"
+			+ "{\"productName\":\"Bananas\",\"type\":\"groceries\",\"price\":3},"
+			+ "{\"productName\":\"Old Lamp\",\"type\":\"home\",\"price\":50,\"deleted\":true}]";
+
+	private InMemoryProductStore store = InMemoryProductStore.getInstance();
+
+	@Before
+	public void setUp() throws Exception {
+		store.load(PRODUCT_INDEX, new ByteArrayInputStream(PRODUCTS.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@After
+	public void tearDown() {
+		store.clear();
+	}
+
+	@Test
+	public void findProducts() throws Exception {
+		// set up
+		Map<String, Product> found = new HashMap<String, Product>();
+
+		// execute
+		long productCount = store.findProducts(PRODUCT_INDEX,
+				new HashSet<String>(Arrays.asList("Red Carpet", "Bananas", "Old Lamp", "Apples")),
+				product -> found.put(product.getProductName(), product));
+
+		// assert
+		assertEquals(2, productCount);
+		assertEquals(100, found.get("Red Carpet").getPrice());
+		assertEquals(Constants.GROCERIES, found.get("Bananas").getType());
+		assertEquals(0, store.findProducts("otherIndex", new HashSet<String>(Arrays.asList("Bananas")),
+				product -> found.put(product.getProductName(), product)));
+	}
+
+	@Test
+	public void load_ndjsonReplacesProducts() throws Exception {
+		// set up
+		String products = "{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":90}\n"
+				+ "{\"productName\":\"Red Carpet\",\"type\":\"home\",\"price\":80}\n";
+
+		// execute
+		int productCount = store.load(PRODUCT_INDEX,
+				new ByteArrayInputStream(products.getBytes(StandardCharsets.UTF_8)));
+
+		// assert
+		assertEquals(1, productCount);
+		long[] price = { 0 };
+		store.findProducts(PRODUCT_INDEX, new HashSet<String>(Arrays.asList("Red Carpet", "Bananas")),
+				product -> price[0] += product.getPrice());
+		assertEquals(80, price[0]);
+	}
+
+	@Test
+	public void findTypeRelatedProducts() {
+		// execute
+		JsonArray products = store.findTypeRelatedProducts("home", PRODUCT_INDEX);
+
+		// assert
+		assertEquals(2, products.size());
+		assertEquals("Blue Carpet", products.get(0).getAsJsonObject().get(Constants.PRODUCT_NAME).getAsString());
+		assertEquals("Red Carpet", products.get(1).getAsJsonObject().get(Constants.PRODUCT_NAME).getAsString());
+		assertFalse(products.get(1).getAsJsonObject().has(Constants.UPDATED_AT));
+		assertEquals(0, store.findTypeRelatedProducts("garden", PRODUCT_INDEX).size());
+	}
+
+	@Test
+	public void writeTypeRelatedProducts() throws Exception {
+		// set up
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		writer.beginArray();
+
+		// execute
+		long productCount = store.writeTypeRelatedProducts("home", PRODUCT_INDEX, writer);
+
+		// assert
+		writer.endArray();
+		writer.flush();
+		assertEquals(2, productCount);
+		assertEquals(store.findTypeRelatedProducts("home", PRODUCT_INDEX),
+				JsonParser.parseString(new String(outputStream.toByteArray(), StandardCharsets.UTF_8)));
+	}
+
+}
@@ -0,0 +1,128 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class InMemoryUserStoreTest {
+
+	private static final String EMPLOYEE = "memory.employee@mail.com";
+
+	private static final String CUSTOMER = "memory.customer@mail.com";
+
+	private static final String USERS = "{\"username\":\"" + EMPLOYEE + "\",\"employee\":true}\n"
+			+ "{\"username\":\"" + CUSTOMER + "\",\"customer\":true,"
+			+ "\"accountCreationDate\":\"2016-12-16 00:12:47\"}\n";
+
+	private DateOperations dateOperations = DateOperations.getInstance();
+
+	private InMemoryUserStore store = InMemoryUserStore.getInstance();
+
+	@Before
+	public void setUp() throws Exception {
+		dateOperations.setClock(Clock.fixed(Instant.parse("2020-12-15T21:12:47Z"), ZoneOffset.UTC));
+		store.load(Constants.USERINFO, new ByteArrayInputStream(USERS.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dateOperations.setClock(Clock.systemUTC());
+		DiscountRuleEngine.getInstance().configure(DiscountRuleEngine.DEFAULT_RULES_LOCATION);
+		store.clear();
+		InMemoryProductStore.getInstance().clear();
+		ElasticClientOperations.getInstance().setStores(ElasticProductStore.getInstance(),
+				ElasticUserStore.getInstance());
+	}
+
+	@Test
+	public void findUserTiers() throws Exception {
+		// execute
+		Map<String, Long> userTiers = store.findUserTiers(Constants.USERINFO,
+				new HashSet<String>(Arrays.asList(EMPLOYEE, CUSTOMER, "memory.unknown@mail.com")));
+
+		// assert
+		assertEquals(2, userTiers.size());
+		assertEquals(DiscountPlan.EMPLOYEE_FLAG, UserTierCache.userFlags(userTiers.get(EMPLOYEE)));
+		assertEquals(dateOperations.parseDateMillis("2016-12-16 00:12:47"),
+				UserTierCache.accountCreationMillis(userTiers.get(CUSTOMER)));
+	}
+
+	@Test
+	public void indexUser() throws Exception {
+		// set up
+		JsonObject userDetailsObj = JsonParser.parseString("{\"username\":\"memory.new@mail.com\",\"customer\":true,"
+				+ "\"accountCreationDate\":\"2020-12-16 00:12:47\"}").getAsJsonObject();
+
+		// execute
+		String docId = store.indexUser(Constants.USERINFO, userDetailsObj);
+
+		// assert
+		assertFalse(docId.isEmpty());
+		long userTier = store
+				.findUserTiers(Constants.USERINFO, new HashSet<String>(Arrays.asList("memory.new@mail.com")))
+				.get("memory.new@mail.com");
+		assertEquals(DiscountPlan.CUSTOMER_FLAG, UserTierCache.userFlags(userTier));
+		assertEquals(dateOperations.currentTimeMillis(), UserTierCache.accountCreationMillis(userTier));
+	}
+
+	@Test
+	public void calculateBasket_inMemoryStores() throws Exception {
+		// set up
+		InMemoryProductStore.getInstance().load("product", new ByteArrayInputStream(
+				("[{\"productName\":\"In Memory Dress\",\"type\":\"clothes\",\"price\":200},"
+						+ "{\"productName\":\"In Memory Apples\",\"type\":\"groceries\",\"price\":10}]")
+								.getBytes(StandardCharsets.UTF_8)));
+		ElasticClientOperations.getInstance().setStores(InMemoryProductStore.getInstance(), store);
+		JsonObject basketObj = JsonParser.parseString("{\"username\":\"" + EMPLOYEE + "\",\"basketDetails\":["
+				+ "{\"productName\":\"In Memory Dress\",\"amount\":1},"
+				+ "{\"productName\":\"In Memory Apples\",\"amount\":3}]}").getAsJsonObject();
+
+		// execute
+		ResponseEntity<String> response = ElasticClientOperations.getInstance().calculateBasket(basketObj, "product");
+
+		// assert
+		assertEquals(200, response.getStatusCodeValue());
+		assertEquals(165, JsonParser.parseString(response.getBody()).getAsJsonObject().get(Constants.TOTAL_PRICE)
+				.getAsLong());
+	}
+
+	@Test
+	public void calculateBasket_accountAgeTiers() throws Exception {
+		// set up
+		DiscountRuleEngine.getInstance().load("{\"percentageRules\":[{\"name\":\"customerOver5Years\","
+				+ "\"userTypes\":[\"customer\"],\"minimumAccountAgeMillis\":157784760000,\"percent\":10},"
+				+ "{\"name\":\"customerOver2Years\",\"userTypes\":[\"customer\"],"
+				+ "\"minimumAccountAgeMillis\":63113904000,\"percent\":5}],\"billThreshold\":0}");
+		InMemoryProductStore.getInstance().load("product", new ByteArrayInputStream(
+				"[{\"productName\":\"In Memory Dress\",\"type\":\"clothes\",\"price\":200}]"
+						.getBytes(StandardCharsets.UTF_8)));
+		ElasticClientOperations.getInstance().setStores(InMemoryProductStore.getInstance(), store);
+		JsonObject basketObj = JsonParser.parseString("{\"username\":\"" + CUSTOMER + "\",\"basketDetails\":["
+				+ "{\"productName\":\"In Memory Dress\",\"amount\":1}]}").getAsJsonObject();
+
+		// execute
+		ResponseEntity<String> response = ElasticClientOperations.getInstance().calculateBasket(basketObj, "product");
+
+		// assert
+		assertEquals(200, response.getStatusCodeValue());
+		assertEquals(190, JsonParser.parseString(response.getBody()).getAsJsonObject().get(Constants.TOTAL_PRICE)
+				.getAsLong());
+	}
+
+}
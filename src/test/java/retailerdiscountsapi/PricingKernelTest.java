@@ -0,0 +1,108 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PricingKernelTest {
+
+	@Test
+	public void price_batchOfBaskets() {
+		// set up
+		PricingKernel kernel = new PricingKernel(1, 1);
+		Random random = new Random(42);
+		int basketCount = 50;
+		long[] expectedGroceries = new long[basketCount];
+		long[] expectedOthers = new long[basketCount];
+		for (int basket = 0; basket < basketCount; basket++) {
+			// the baskets have from 0 to 147 lines, so the grocery bits of a basket cross the words of the mask
+			for (int line = 0; line < basket * 3; line++) {
+				int amount = 1 + random.nextInt(100);
+				long price = random.nextInt(100000);
+				boolean grocery = random.nextInt(3) == 0;
+				kernel.addLine(amount, ProductTable.slot(price, grocery));
+				if (grocery) {
+					expectedGroceries[basket] += amount * price;
+				} else {
+					expectedOthers[basket] += amount * price;
+				}
+			}
+			assertEquals(basket, kernel.endBasket());
+		}
+
+		// execute
+		kernel.price();
+
+		// assert
+		assertEquals(basketCount, kernel.getBasketCount());
+		for (int basket = 0; basket < basketCount; basket++) {
+			assertEquals(expectedGroceries[basket], kernel.getGroceriesSubtotal(basket));
+			assertEquals(expectedOthers[basket], kernel.getOtherSubtotal(basket));
+		}
+	}
+
+	@Test
+	public void price_negativeAmountAndLargePrices() {
+		// set up
+		PricingKernel kernel = new PricingKernel(4, 2);
+		kernel.addLine(-2, 100, false);
+		kernel.addLine(3, 10, true);
+		kernel.endBasket();
+		kernel.addLine(2, ProductTable.MAX_PRICE / 4, false);
+		kernel.addLine(1, ProductTable.MAX_PRICE / 4, false);
+		kernel.endBasket();
+
+		// execute
+		kernel.price();
+
+		// assert
+		assertEquals(30, kernel.getGroceriesSubtotal(0));
+		assertEquals(-200, kernel.getOtherSubtotal(0));
+		assertEquals(3 * (ProductTable.MAX_PRICE / 4), kernel.getOtherSubtotal(1));
+	}
+
+	@Test
+	public void price_overflow() {
+		// set up
+		PricingKernel kernel = new PricingKernel(3, 2);
+		kernel.addLine(4, ProductTable.MAX_PRICE, false);
+		kernel.endBasket();
+		kernel.addLine(1, 5, true);
+		kernel.endBasket();
+
+		// execute
+		kernel.price();
+
+		// assert
+		try {
+			kernel.getOtherSubtotal(0);
+			fail("the overflow of the first basket is not detected");
+		} catch (ArithmeticException e) {
+			assertEquals(Constants.BASKET_PRICE_OVERFLOW, e.getMessage());
+		}
+		assertEquals(5, kernel.getGroceriesSubtotal(1));
+	}
+
+	@Test
+	public void clear() {
+		// set up
+		PricingKernel kernel = new PricingKernel(2, 1);
+		kernel.addLine(1, 10, true);
+		kernel.endBasket();
+
+		// execute
+		kernel.clear();
+		kernel.addLine(1, 10, false);
+		kernel.endBasket();
+		kernel.price();
+
+		// assert
+		assertEquals(1, kernel.getLineCount());
+		assertEquals(0, kernel.getGroceriesSubtotal(0));
+		assertEquals(10, kernel.getOtherSubtotal(0));
+	}
+
+}
@@ -0,0 +1,171 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import retailerdiscountsapi.pojos.Product;
+
+public class ProductCatalogCacheTest {
+
+	private static final String PRODUCT_INDEX = "product";
+
+	private ProductCatalogCache cache;
+
+	private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Before
+	public void setUp() {
+		Metrics.addRegistry(registry);
+		cache = ProductCatalogCache.getInstance();
+		cache.configure(2, 60);
+	}
+
+	@After
+	public void tearDown() {
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void lookup() {
+		// set up
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		HashMap<String, Product> found = new HashMap<String, Product>();
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.lookup(PRODUCT_INDEX, Arrays.asList("Red Carpet", "Bananas"), found, missing);
+
+		// assert
+		assertEquals(1, found.size());
+		assertEquals(100, found.get("Red Carpet").getPrice());
+		assertEquals(Arrays.asList("Bananas"), missing);
+	}
+
+	@Test
+	public void lookup_productTable() {
+		// set up
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.put(PRODUCT_INDEX, product("Bananas", Constants.GROCERIES, 3));
+		ProductTable found = new ProductTable(2);
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.lookup(PRODUCT_INDEX, Arrays.asList("Red Carpet", "Bananas", "Apples"), found, missing);
+
+		// assert
+		assertEquals(2, found.size());
+		assertEquals(100, ProductTable.price(found.get("Red Carpet")));
+		assertTrue(ProductTable.isGrocery(found.get("Bananas")));
+		assertEquals(Arrays.asList("Apples"), missing);
+	}
+
+	@Test
+	public void get_otherIndex() {
+		// set up
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+
+		// assert
+		assertNull(cache.get("otherproduct", "Red Carpet"));
+	}
+
+	@Test
+	public void invalidate() {
+		// set up
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.put(PRODUCT_INDEX, product("Bananas", "groceries", 15));
+
+		// execute
+		cache.invalidate(PRODUCT_INDEX, "Red Carpet");
+
+		// assert
+		assertNull(cache.get(PRODUCT_INDEX, "Red Carpet"));
+		assertEquals(15, cache.get(PRODUCT_INDEX, "Bananas").getPrice());
+	}
+
+	@Test
+	public void put_evictsWhenFull() {
+		// execute
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.put(PRODUCT_INDEX, product("Bananas", "groceries", 15));
+		cache.put(PRODUCT_INDEX, product("Mango", "groceries", 15));
+
+		// assert
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void configure_metricsFollowNewCache() {
+		// set up
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.get(PRODUCT_INDEX, "Red Carpet");
+		cache.configure(10, 60);
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.put(PRODUCT_INDEX, product("Bananas", "groceries", 15));
+		cache.put(PRODUCT_INDEX, product("Mango", "groceries", 15));
+
+		// execute
+		cache.get(PRODUCT_INDEX, "Bananas");
+		cache.get(PRODUCT_INDEX, "Mango");
+		cache.get(PRODUCT_INDEX, "Apples");
+
+		// assert
+		assertEquals(2, registry.get("cache.gets").tags("cache", ProductCatalogCache.CACHE_NAME, "result", "hit")
+				.functionCounter().count(), 0);
+		assertEquals(3, registry.get("cache.size").tags("cache", ProductCatalogCache.CACHE_NAME).gauge().value(), 0);
+	}
+
+	@Test
+	public void lookupStale_afterTtl() {
+		// set up
+		cache.configure(2, 0);
+		cache.configureStale(10);
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		ProductTable found = new ProductTable(2);
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.lookupStale(PRODUCT_INDEX, Arrays.asList("Red Carpet", "Bananas"), found, missing);
+
+		// assert
+		assertNull(cache.get(PRODUCT_INDEX, "Red Carpet"));
+		assertEquals(100, ProductTable.price(found.get("Red Carpet")));
+		assertEquals(Arrays.asList("Bananas"), missing);
+	}
+
+	@Test
+	public void lookupStale_invalidated() {
+		// set up
+		cache.configureStale(10);
+		cache.put(PRODUCT_INDEX, product("Red Carpet", "home", 100));
+		cache.invalidate(PRODUCT_INDEX, "Red Carpet");
+		ProductTable found = new ProductTable(1);
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.lookupStale(PRODUCT_INDEX, Arrays.asList("Red Carpet"), found, missing);
+
+		// assert
+		assertEquals(0, found.size());
+		assertEquals(Arrays.asList("Red Carpet"), missing);
+	}
+
+	private Product product(String productName, String type, long price) {
+		Product product = new Product();
+		product.setProductName(productName);
+		product.setType(type);
+		product.setPrice(price);
+		return product;
+	}
+
+}
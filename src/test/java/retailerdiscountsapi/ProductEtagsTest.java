@@ -0,0 +1,59 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ProductEtagsTest {
+
+	private ProductEtags productEtags = ProductEtags.getInstance();
+
+	@After
+	public void tearDown() {
+		productEtags.configure("no-cache", 5);
+	}
+
+	@Test
+	public void putContentEtag() {
+		// set up
+		productEtags.configure("max-age=30", 60);
+
+		// execute
+		String etag = productEtags.putContentEtag("product", "home", "[{\"productName\":\"Red Carpet\"}]");
+
+		// assert
+		assertEquals(etag, productEtags.getEtag("product", "home"));
+		assertNull(productEtags.getEtag("product", "garment"));
+		assertNotEquals(etag, productEtags.putContentEtag("product", "home", "[]"));
+		assertEquals("max-age=30", productEtags.getCacheControl());
+	}
+
+	@Test
+	public void putContentEtag_ttlDisabled() {
+		// set up
+		productEtags.configure("no-cache", 0);
+
+		// execute
+		productEtags.putContentEtag("product", "home", "[]");
+
+		// assert
+		assertNull(productEtags.getEtag("product", "home"));
+	}
+
+	@Test
+	public void matches() {
+		// assert
+		assertTrue(productEtags.matches("\"a\"", "\"a\""));
+		assertTrue(productEtags.matches("\"b\", W/\"a\"", "\"a\""));
+		assertTrue(productEtags.matches("*", "\"a\""));
+		assertFalse(productEtags.matches("\"b\"", "\"a\""));
+		assertFalse(productEtags.matches(null, "\"a\""));
+		assertFalse(productEtags.matches("\"a\"", null));
+	}
+
+}
@@ -0,0 +1,95 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProductTableTest {
+
+	@Test
+	public void putAndGet() {
+		// set up
+		ProductTable table = new ProductTable(2);
+
+		// execute
+		table.put("Red Carpet", 100, false);
+		table.put("Bananas", 3, true);
+		table.put("Red Carpet", 120, false);
+
+		// assert
+		assertEquals(2, table.size());
+		assertEquals(120, ProductTable.price(table.get("Red Carpet")));
+		assertFalse(ProductTable.isGrocery(table.get("Red Carpet")));
+		assertEquals(3, ProductTable.price(table.get("Bananas")));
+		assertTrue(ProductTable.isGrocery(table.get("Bananas")));
+		assertEquals(ProductTable.MISSING, table.get("Apples"));
+	}
+
+	@Test
+	public void put_resize() {
+		// set up
+		ProductTable table = new ProductTable(1);
+
+		// execute
+		for (int i = 0; i < 1000; i++) {
+			table.put("Product " + i, i, i % 2 == 0);
+		}
+
+		// assert
+		assertEquals(1000, table.size());
+		for (int i = 0; i < 1000; i++) {
+			long slot = table.get("Product " + i);
+			assertEquals(i, ProductTable.price(slot));
+			assertEquals(i % 2 == 0, ProductTable.isGrocery(slot));
+		}
+	}
+
+	@Test
+	public void remove_collidingNames() {
+		// set up
+		// these names have the same hash code, so they are in one probe sequence
+		ProductTable table = new ProductTable(8);
+		table.put("AaAa", 1, false);
+		table.put("BBBB", 2, false);
+		table.put("AaBB", 3, true);
+		table.put("Other", 4, false);
+
+		// execute
+		boolean removed = table.remove("AaAa");
+
+		// assert
+		assertTrue(removed);
+		assertFalse(table.remove("AaAa"));
+		assertEquals(3, table.size());
+		assertEquals(ProductTable.MISSING, table.get("AaAa"));
+		assertEquals(2, ProductTable.price(table.get("BBBB")));
+		assertEquals(3, ProductTable.price(table.get("AaBB")));
+		assertEquals(4, ProductTable.price(table.get("Other")));
+	}
+
+	@Test
+	public void copy() {
+		// set up
+		ProductTable table = new ProductTable(4);
+		table.put("Red Carpet", 100, false);
+
+		// execute
+		ProductTable copy = table.copy();
+		copy.put("Bananas", 3, true);
+		copy.remove("Red Carpet");
+
+		// assert
+		assertTrue(table.contains("Red Carpet"));
+		assertFalse(table.contains("Bananas"));
+		assertEquals(1, copy.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void put_negativePrice() {
+		// execute
+		new ProductTable(1).put("Red Carpet", -1, false);
+	}
+
+}
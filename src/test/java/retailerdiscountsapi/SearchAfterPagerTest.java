@@ -0,0 +1,81 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+public class SearchAfterPagerTest {
+
+	private static final String PRODUCT_INDEX = "product";
+
+	@Test
+	public void buildRequest_firstPage() {
+		// set up
+		SearchAfterPager pager = new SearchAfterPager(null, PRODUCT_INDEX, QueryBuilders.termQuery("type", "home"),
+				"productName", 100);
+
+		// execute
+		SearchRequest request = pager.buildRequest(null);
+
+		// assert
+		assertEquals(PRODUCT_INDEX, request.indices()[0]);
+		assertEquals(100, request.source().size());
+		assertEquals(-1, request.source().from());
+		assertEquals(2, request.source().sorts().size());
+		assertNull(request.source().searchAfter());
+	}
+
+	@Test
+	public void buildRequest_nextPage() {
+		// set up
+		SearchAfterPager pager = new SearchAfterPager(null, PRODUCT_INDEX, QueryBuilders.termQuery("type", "home"),
+				"productName", 100);
+
+		// execute
+		SearchRequest request = pager.buildRequest(new Object[] { "Red Carpet", 3 });
+
+		// assert
+		assertEquals(-1, request.source().from());
+		assertEquals("Red Carpet", request.source().searchAfter()[0]);
+		assertEquals(3, request.source().searchAfter()[1]);
+	}
+
+	@Test
+	public void hasNextPage() {
+		// set up
+		SearchAfterPager pager = new SearchAfterPager(null, PRODUCT_INDEX, QueryBuilders.termQuery("type", "home"),
+				"productName", 100);
+
+		// execute
+		boolean fullPage = pager.hasNextPage(100);
+
+		// assert
+		assertTrue(fullPage);
+		assertFalse(pager.hasNextPage(99));
+		assertFalse(pager.hasNextPage(0));
+	}
+
+	@Test
+	public void buildRequest_productNames() {
+		// set up
+		SearchAfterPager pager = ElasticProductStore.getInstance().createProductNamesPager(PRODUCT_INDEX,
+				new HashSet<String>(Arrays.asList("Red Carpet", "Blue Carpet", "Apples")));
+
+		// execute
+		SearchRequest request = pager.buildRequest(null);
+
+		// assert
+		assertEquals(4, request.source().size());
+		// every product is found on the first page, so no second search is sent
+		assertFalse(pager.hasNextPage(3));
+	}
+
+}
@@ -0,0 +1,173 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SingleFlightTest {
+
+	private SingleFlight<String, String> singleFlight = new SingleFlight<String, String>("test");
+
+	@Test
+	public void execute_sharesInFlightCall() throws Exception {
+		// set up
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>("execute_sharesInFlightCall");
+		AtomicInteger callCount = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		// execute
+		Future<String> leader = executor.submit(() -> singleFlight.execute("home", () -> {
+			callCount.incrementAndGet();
+			started.countDown();
+			release.await();
+			return "products";
+		}));
+		started.await();
+		Future<String> follower = executor.submit(() -> singleFlight.execute("home", () -> {
+			callCount.incrementAndGet();
+			return "other products";
+		}));
+		Counter sharedCalls = registry.get(SingleFlight.CALLS)
+				.tags("name", "execute_sharesInFlightCall", "role", "shared").counter();
+		while (sharedCalls.count() == 0) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		// assert
+		assertEquals("products", leader.get());
+		assertEquals("products", follower.get());
+		assertEquals(1, callCount.get());
+		assertEquals(0, singleFlight.size());
+		executor.shutdown();
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void execute_releasesKeyAfterCall() throws Exception {
+		// execute
+		singleFlight.execute("home", () -> "products");
+		String result = singleFlight.execute("home", () -> "new products");
+
+		// assert
+		assertEquals("new products", result);
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void execute_failure() throws Exception {
+		// execute
+		singleFlight.execute("home", () -> {
+			throw new IOException();
+		});
+	}
+
+	@Test
+	public void execute_errorCompletesSharedCall() throws Exception {
+		// set up
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>(
+				"execute_errorCompletesSharedCall");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		// execute
+		Future<String> leader = executor.submit(() -> singleFlight.execute("home", () -> {
+			started.countDown();
+			release.await();
+			throw new NoClassDefFoundError("test");
+		}));
+		started.await();
+		Future<String> follower = executor.submit(() -> singleFlight.execute("home", () -> "other products"));
+		Counter sharedCalls = registry.get(SingleFlight.CALLS)
+				.tags("name", "execute_errorCompletesSharedCall", "role", "shared").counter();
+		while (sharedCalls.count() == 0) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		// assert
+		try {
+			follower.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof NoClassDefFoundError);
+		}
+		try {
+			leader.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof NoClassDefFoundError);
+		}
+		assertEquals(0, singleFlight.size());
+		executor.shutdown();
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void executeAsync_sharesInFlightCall() throws Exception {
+		// set up
+		CompletableFuture<String> search = new CompletableFuture<String>();
+		AtomicInteger callCount = new AtomicInteger();
+
+		// execute
+		CompletableFuture<String> leader = singleFlight.executeAsync("home", () -> {
+			callCount.incrementAndGet();
+			return search;
+		});
+		CompletableFuture<String> follower = singleFlight.executeAsync("home", () -> {
+			callCount.incrementAndGet();
+			return CompletableFuture.completedFuture("other products");
+		});
+		search.complete("products");
+
+		// assert
+		assertSame(leader, follower);
+		assertEquals("products", follower.get(1, TimeUnit.SECONDS));
+		assertEquals(1, callCount.get());
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test
+	public void executeAsync_failure() throws Exception {
+		// execute
+		CompletableFuture<String> result = singleFlight.executeAsync("home", () -> {
+			CompletableFuture<String> search = new CompletableFuture<String>();
+			search.completeExceptionally(new IOException());
+			return search;
+		});
+
+		// assert
+		try {
+			result.get();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertTrue(result.isCompletedExceptionally());
+		assertEquals(0, singleFlight.size());
+	}
+
+}
@@ -0,0 +1,68 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+public class UserBulkOperationsTest {
+
+	private UserBulkOperations operations = UserBulkOperations.getInstance();
+
+	private InMemoryUserStore store = InMemoryUserStore.getInstance();
+
+	@Before
+	public void setUp() {
+		operations.setUserStore(store);
+	}
+
+	@After
+	public void tearDown() {
+		operations.setUserStore(ElasticUserStore.getInstance());
+		store.clear();
+	}
+
+	@Test
+	public void indexUsers_malformedLine() throws Exception {
+		// set up
+		String users = "{\"username\":\"bulk.first@mail.com\",\"password\":\"1234\",\"customer\":true}\n"
+				+ "{\"username\":\"bulk.broken@mail.com\",\"password\":\n" + "\n" + "[1, 2]\n"
+				+ "{\"username\":\"bulk.last@mail.com\",\"password\":\"1234\",\"employee\":true}\n";
+
+		// execute
+		JsonObject responseObj = operations.indexUsers(new ByteArrayInputStream(users.getBytes(StandardCharsets.UTF_8)),
+				Constants.USERINFO);
+
+		// assert
+		assertEquals(Constants.FAILURE, responseObj.get(Constants.STATUS).getAsString());
+		assertEquals(2, responseObj.get(Constants.INDEXED).getAsLong());
+		assertEquals(2, responseObj.get(Constants.FAILED).getAsLong());
+		assertEquals(2, responseObj.get(Constants.FAILURES).getAsJsonArray().size());
+		assertEquals(2, store.findUserTiers(Constants.USERINFO,
+				new HashSet<String>(Arrays.asList("bulk.first@mail.com", "bulk.last@mail.com"))).size());
+	}
+
+	@Test
+	public void indexUsers_array() throws Exception {
+		// set up
+		String users = " [{\"username\":\"bulk.array@mail.com\",\"password\":\"1234\",\"affiliate\":true}]";
+
+		// execute
+		JsonObject responseObj = operations.indexUsers(new ByteArrayInputStream(users.getBytes(StandardCharsets.UTF_8)),
+				Constants.USERINFO);
+
+		// assert
+		assertEquals(Constants.SUCCESS, responseObj.get(Constants.STATUS).getAsString());
+		assertEquals(1, responseObj.get(Constants.INDEXED).getAsLong());
+		assertEquals(0, responseObj.get(Constants.FAILED).getAsLong());
+	}
+
+}
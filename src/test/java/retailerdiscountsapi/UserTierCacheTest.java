@@ -0,0 +1,149 @@
+package retailerdiscountsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class UserTierCacheTest {
+
+	private UserTierCache cache;
+
+	private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Before
+	public void setUp() {
+		Metrics.addRegistry(registry);
+		cache = UserTierCache.getInstance();
+		cache.configure(10, 60, 60);
+	}
+
+	@After
+	public void tearDown() {
+		Metrics.removeRegistry(registry);
+	}
+
+	@Test
+	public void tier() {
+		// set up
+		int userFlags = DiscountPlan.userFlags(true, false, true);
+		long accountCreationMillis = 1481847167000L;
+
+		// execute
+		long tier = UserTierCache.tier(userFlags, accountCreationMillis);
+
+		// assert
+		assertEquals(userFlags, UserTierCache.userFlags(tier));
+		assertTrue(UserTierCache.hasAccountCreation(tier));
+		assertEquals(accountCreationMillis, UserTierCache.accountCreationMillis(tier));
+	}
+
+	@Test
+	public void tier_withoutAccountCreation() {
+		// execute
+		long tier = UserTierCache.tier(DiscountPlan.CUSTOMER_FLAG, null);
+
+		// assert
+		assertEquals(DiscountPlan.CUSTOMER_FLAG, UserTierCache.userFlags(tier));
+		assertFalse(UserTierCache.hasAccountCreation(tier));
+	}
+
+	@Test
+	public void readTier() throws ParseException {
+		// set up
+		JsonObject userObj = JsonParser
+				.parseString("{\"customer\":true,\"employee\":false,\"accountCreationDate\":\"2016-12-16 00:12:47\"}")
+				.getAsJsonObject();
+
+		// execute
+		long tier = UserTierCache.readTier(userObj);
+
+		// assert
+		assertEquals(DiscountPlan.CUSTOMER_FLAG, UserTierCache.userFlags(tier));
+		assertEquals(DateOperations.getInstance().parseDateMillis("2016-12-16 00:12:47"),
+				UserTierCache.accountCreationMillis(tier));
+	}
+
+	@Test
+	public void readTier_noAccountCreationDate() throws ParseException {
+		// set up
+		JsonObject userObj = JsonParser.parseString("{\"employee\":true}").getAsJsonObject();
+
+		// execute
+		long tier = UserTierCache.readTier(userObj);
+
+		// assert
+		assertEquals(DiscountPlan.EMPLOYEE_FLAG, UserTierCache.userFlags(tier));
+		assertFalse(UserTierCache.hasAccountCreation(tier));
+	}
+
+	@Test
+	public void lookup() {
+		// set up
+		cache.put("employee@mail.com", UserTierCache.tier(DiscountPlan.EMPLOYEE_FLAG, null));
+		cache.putUnknown("unknown@mail.com");
+		HashMap<String, Long> found = new HashMap<String, Long>();
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.lookup(Arrays.asList("employee@mail.com", "unknown@mail.com", "new@mail.com"), found, missing);
+
+		// assert
+		assertEquals(1, found.size());
+		assertEquals(DiscountPlan.EMPLOYEE_FLAG, UserTierCache.userFlags(found.get("employee@mail.com")));
+		assertEquals(Arrays.asList("new@mail.com"), missing);
+	}
+
+	@Test
+	public void configure_metricsFollowNewCache() {
+		// set up
+		cache.put("employee@mail.com", UserTierCache.tier(DiscountPlan.EMPLOYEE_FLAG, null));
+		cache.lookup(Arrays.asList("employee@mail.com"), new HashMap<String, Long>(), new ArrayList<String>());
+		cache.configure(20, 60, 60);
+		for (int i = 0; i < 12; i++) {
+			cache.put("user" + i + "@mail.com", UserTierCache.tier(DiscountPlan.CUSTOMER_FLAG, null));
+		}
+
+		// execute
+		cache.lookup(Arrays.asList("user0@mail.com", "user1@mail.com", "new@mail.com"), new HashMap<String, Long>(),
+				new ArrayList<String>());
+
+		// assert
+		assertEquals(2, registry.get("cache.gets").tags("cache", UserTierCache.CACHE_NAME, "result", "hit")
+				.functionCounter().count(), 0);
+		assertEquals(12, registry.get("cache.size").tags("cache", UserTierCache.CACHE_NAME).gauge().value(), 0);
+	}
+
+	@Test
+	public void invalidate() {
+		// set up
+		cache.put("employee@mail.com", UserTierCache.tier(DiscountPlan.EMPLOYEE_FLAG, null));
+		cache.putUnknown("unknown@mail.com");
+		HashMap<String, Long> found = new HashMap<String, Long>();
+		ArrayList<String> missing = new ArrayList<String>();
+
+		// execute
+		cache.invalidate("employee@mail.com");
+		cache.invalidate("unknown@mail.com");
+		cache.lookup(Arrays.asList("employee@mail.com", "unknown@mail.com"), found, missing);
+
+		// assert
+		assertTrue(found.isEmpty());
+		assertEquals(Arrays.asList("employee@mail.com", "unknown@mail.com"), missing);
+	}
+
+}